@@ -0,0 +1,85 @@
+package de.jilocasin.nearestneighbour.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.jilocasin.nearestneighbour.kdtree.CompactKdTree;
+import de.jilocasin.nearestneighbour.kdtree.KdPoint;
+import de.jilocasin.nearestneighbour.kdtree.KdTree;
+import de.jilocasin.nearestneighbour.kdtree.generator.RandomKdTreeGenerator;
+import de.jilocasin.nearestneighbour.nnsolver.CompactNNSolver;
+import de.jilocasin.nearestneighbour.nnsolver.NNSolver;
+
+/**
+ * Compares the latency of single nearest point searches in the linked
+ * {@link KdTree} (<code>pointer</code>) to the same points in a
+ * {@link CompactKdTree} (<code>compact</code>).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompactKdTreeQueryBenchmark {
+	/**
+	 * Number of distinct search points, cycled through by the benchmark.
+	 */
+	private static final int SEARCH_POINT_COUNT = 1 << 12;
+
+	@Param({ "2", "3", "8" })
+	public int dimensionCount;
+
+	@Param({ "10000", "1000000" })
+	public int pointCount;
+
+	@Param
+	public PointDistribution distribution;
+
+	@Param({ "pointer", "compact" })
+	public String layout;
+
+	private NNSolver<Double> solver;
+	private CompactNNSolver<Double> compactSolver;
+
+	private List<KdPoint<Double>> searchPoints;
+
+	private int searchPointIndex;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		final RandomKdTreeGenerator<Double> generator = distribution.createGenerator();
+		final KdTree<Double> tree = generator.generate(dimensionCount, pointCount);
+
+		if ("compact".equals(layout)) {
+			compactSolver = new CompactNNSolver<>(new CompactKdTree<>(tree));
+		} else {
+			solver = new NNSolver<>(tree);
+		}
+
+		searchPoints = generator.generatePoints(dimensionCount, SEARCH_POINT_COUNT);
+	}
+
+	@Benchmark
+	public KdPoint<Double> findNearestPoint() {
+		searchPointIndex = (searchPointIndex + 1) & (SEARCH_POINT_COUNT - 1);
+
+		final KdPoint<Double> searchPoint = searchPoints.get(searchPointIndex);
+
+		return compactSolver != null ? compactSolver.findNearestPoint(searchPoint)
+		        : solver.findNearestPoint(searchPoint);
+	}
+}
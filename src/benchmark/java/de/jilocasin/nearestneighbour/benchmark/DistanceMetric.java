@@ -0,0 +1,32 @@
+package de.jilocasin.nearestneighbour.benchmark;
+
+import de.jilocasin.nearestneighbour.kdtree.distance.ChebyshevDistanceCalculator;
+import de.jilocasin.nearestneighbour.kdtree.distance.EuclideanDistanceCalculator;
+import de.jilocasin.nearestneighbour.kdtree.distance.KdDistanceCalculator;
+import de.jilocasin.nearestneighbour.kdtree.distance.ManhattanDistanceCalculator;
+
+/**
+ * The distance calculators used by the query benchmarks.
+ */
+public enum DistanceMetric {
+	EUCLIDEAN {
+		@Override
+		public KdDistanceCalculator createCalculator() {
+			return new EuclideanDistanceCalculator();
+		}
+	},
+	MANHATTAN {
+		@Override
+		public KdDistanceCalculator createCalculator() {
+			return new ManhattanDistanceCalculator();
+		}
+	},
+	CHEBYSHEV {
+		@Override
+		public KdDistanceCalculator createCalculator() {
+			return new ChebyshevDistanceCalculator();
+		}
+	};
+
+	public abstract KdDistanceCalculator createCalculator();
+}
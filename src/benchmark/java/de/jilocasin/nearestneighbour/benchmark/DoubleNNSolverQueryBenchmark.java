@@ -0,0 +1,111 @@
+package de.jilocasin.nearestneighbour.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.jilocasin.nearestneighbour.kdtree.DoubleDistanceKernel;
+import de.jilocasin.nearestneighbour.kdtree.DoubleDistanceKernels;
+import de.jilocasin.nearestneighbour.kdtree.DoubleKdTree;
+import de.jilocasin.nearestneighbour.kdtree.DoubleKdTreeFiles;
+import de.jilocasin.nearestneighbour.kdtree.ScalarDoubleDistanceKernel;
+import de.jilocasin.nearestneighbour.nnsolver.DoubleNNSolver;
+
+/**
+ * Measures the latency of single {@link DoubleNNSolver#findNearestPoint} calls
+ * for different bucket sizes of uniformly distributed trees. The
+ * <code>kernel</code> parameter compares the default kernel, which is the
+ * vector kernel when run with <code>--add-modules jdk.incubator.vector</code>,
+ * to the scalar one. The <code>storage</code> parameter compares a tree on
+ * the heap to the same tree in direct memory and mapped from a file by
+ * {@link DoubleKdTreeFiles}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DoubleNNSolverQueryBenchmark {
+	/**
+	 * Number of distinct search points, cycled through by the benchmark.
+	 */
+	private static final int SEARCH_POINT_COUNT = 1 << 12;
+
+	@Param({ "2", "3", "8", "16", "64" })
+	public int dimensionCount;
+
+	@Param({ "1000", "100000", "10000000" })
+	public int pointCount;
+
+	@Param({ "1", "8", "16", "32", "64" })
+	public int bucketSize;
+
+	@Param({ "default", "scalar" })
+	public String kernel;
+
+	@Param({ "array", "offheap", "mapped" })
+	public String storage;
+
+	private DoubleNNSolver solver;
+	private double[][] searchPoints;
+
+	private int searchPointIndex;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		final Random random = new Random(0);
+
+		final double[] coordinates = new double[pointCount * dimensionCount];
+
+		for (int i = 0; i < coordinates.length; i++) {
+			coordinates[i] = random.nextDouble();
+		}
+
+		final DoubleDistanceKernel distanceKernel = "scalar".equals(kernel) ? new ScalarDoubleDistanceKernel()
+		        : DoubleDistanceKernels.getDefault();
+
+		DoubleKdTree tree = "offheap".equals(storage) ? DoubleKdTree.offHeap(coordinates, dimensionCount, bucketSize)
+		        : new DoubleKdTree(coordinates, dimensionCount, bucketSize);
+
+		if ("mapped".equals(storage)) {
+			final Path path = Files.createTempFile("tree", ".kdt");
+
+			path.toFile().deleteOnExit();
+
+			DoubleKdTreeFiles.write(tree, path);
+			tree = DoubleKdTreeFiles.map(path);
+		}
+
+		solver = new DoubleNNSolver(tree, distanceKernel);
+		searchPoints = new double[SEARCH_POINT_COUNT][dimensionCount];
+
+		for (final double[] searchPoint : searchPoints) {
+			for (int axisIndex = 0; axisIndex < dimensionCount; axisIndex++) {
+				searchPoint[axisIndex] = random.nextDouble();
+			}
+		}
+	}
+
+	@Benchmark
+	public int findNearestPoint() {
+		searchPointIndex = (searchPointIndex + 1) & (SEARCH_POINT_COUNT - 1);
+
+		return solver.findNearestPoint(searchPoints[searchPointIndex]);
+	}
+}
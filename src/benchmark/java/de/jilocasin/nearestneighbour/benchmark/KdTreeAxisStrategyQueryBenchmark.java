@@ -0,0 +1,118 @@
+package de.jilocasin.nearestneighbour.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.jilocasin.nearestneighbour.kdtree.KdPoint;
+import de.jilocasin.nearestneighbour.kdtree.KdTree;
+import de.jilocasin.nearestneighbour.kdtree.KdTreeAxisStrategy;
+import de.jilocasin.nearestneighbour.kdtree.KdTreeBuildStrategy;
+import de.jilocasin.nearestneighbour.kdtree.generator.RandomKdTreeGenerator;
+import de.jilocasin.nearestneighbour.nnsolver.NNSearchResult;
+import de.jilocasin.nearestneighbour.nnsolver.NNSearchStatistics;
+import de.jilocasin.nearestneighbour.nnsolver.NNSolver;
+
+/**
+ * Measures the throughput of single {@link NNSolver#findNearestPoint} calls on
+ * trees built with the different {@link KdTreeAxisStrategy axis strategies}.
+ * The leaves visited by the queries are reported as the <code>leafVisits</code>
+ * rate, so dividing it by the query rate gives the leaves visited per query.
+ * With <code>recordStatistics</code> enabled, the nodes visited, distances
+ * computed and branches pruned are reported the same way, from a
+ * {@link NNSearchStatistics} recorder. See {@link KdTreeBuildBenchmark} for the
+ * effect on the build time.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KdTreeAxisStrategyQueryBenchmark {
+	/**
+	 * Number of distinct search points, cycled through by the benchmark.
+	 */
+	private static final int SEARCH_POINT_COUNT = 1 << 12;
+
+	@Param({ "3", "8" })
+	public int dimensionCount;
+
+	@Param({ "100000", "1000000" })
+	public int pointCount;
+
+	@Param({ "UNIFORM", "CLUSTERED", "ANISOTROPIC" })
+	public PointDistribution distribution;
+
+	@Param
+	public KdTreeAxisStrategy axisStrategy;
+
+	@Param({ "false", "true" })
+	public boolean recordStatistics;
+
+	private NNSolver<Double> solver;
+	private NNSearchStatistics statistics;
+	private List<KdPoint<Double>> searchPoints;
+
+	private int searchPointIndex;
+
+	/**
+	 * The leaves visited by the measured queries, and the steps recorded by the
+	 * statistics, if enabled.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class VisitCounters {
+		public long leafVisits;
+		public long nodeVisits;
+		public long distanceComputations;
+		public long prunedBranches;
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		final RandomKdTreeGenerator<Double> generator = distribution.createGenerator();
+
+		final KdTree<Double> tree = new KdTree<>(generator.generatePoints(dimensionCount, pointCount),
+		        KdTreeBuildStrategy.APPROXIMATE_MEDIAN, axisStrategy, null);
+
+		solver = new NNSolver<>(tree);
+		searchPoints = generator.generatePoints(dimensionCount, SEARCH_POINT_COUNT);
+
+		if (recordStatistics) {
+			statistics = new NNSearchStatistics();
+
+			solver.setSearchRecorder(statistics);
+		}
+	}
+
+	@Benchmark
+	public NNSearchResult<Double> findNearestPoint(final VisitCounters counters) {
+		searchPointIndex = (searchPointIndex + 1) & (SEARCH_POINT_COUNT - 1);
+
+		final NNSearchResult<Double> result = solver.findNearestPoint(searchPoints.get(searchPointIndex), 0);
+
+		counters.leafVisits += result.getLeafVisitCount();
+
+		if (statistics != null) {
+			counters.nodeVisits += statistics.getNodeVisitCount();
+			counters.distanceComputations += statistics.getDistanceComputationCount();
+			counters.prunedBranches += statistics.getPrunedBranchCount();
+		}
+
+		return result;
+	}
+}
@@ -0,0 +1,80 @@
+package de.jilocasin.nearestneighbour.benchmark;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.jilocasin.nearestneighbour.kdtree.KdPoint;
+import de.jilocasin.nearestneighbour.kdtree.KdTree;
+import de.jilocasin.nearestneighbour.kdtree.KdTreeAxisStrategy;
+import de.jilocasin.nearestneighbour.kdtree.KdTreeBuildStrategy;
+
+/**
+ * Measures the time to set up a {@link KdTree} from a list of points.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KdTreeBuildBenchmark {
+	@Param({ "2", "3", "8", "16" })
+	public int dimensionCount;
+
+	@Param({ "1000", "10000", "100000", "1000000", "10000000" })
+	public int pointCount;
+
+	@Param
+	public PointDistribution distribution;
+
+	@Param
+	public KdTreeBuildStrategy buildStrategy;
+
+	@Param
+	public KdTreeAxisStrategy axisStrategy;
+
+	/**
+	 * The number of threads building the tree. A value of 1 builds the tree on the
+	 * benchmark thread itself.
+	 */
+	@Param({ "1", "2", "4", "8" })
+	public int parallelism;
+
+	private List<KdPoint<Double>> points;
+
+	private ForkJoinPool pool;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		points = distribution.createGenerator().generatePoints(dimensionCount, pointCount);
+
+		pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		if (pool != null) {
+			pool.shutdown();
+		}
+	}
+
+	@Benchmark
+	public KdTree<Double> build() {
+		return new KdTree<>(points, buildStrategy, axisStrategy, pool);
+	}
+}
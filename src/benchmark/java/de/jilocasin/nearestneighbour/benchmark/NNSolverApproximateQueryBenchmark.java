@@ -0,0 +1,76 @@
+package de.jilocasin.nearestneighbour.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.jilocasin.nearestneighbour.kdtree.KdPoint;
+import de.jilocasin.nearestneighbour.kdtree.generator.RandomKdTreeGenerator;
+import de.jilocasin.nearestneighbour.nnsolver.NNSearchResult;
+import de.jilocasin.nearestneighbour.nnsolver.NNSearchStrategy;
+import de.jilocasin.nearestneighbour.nnsolver.NNSolver;
+
+/**
+ * Measures the latency of approximate {@link NNSolver#findNearestPoint} calls
+ * on higher dimensional trees, for different epsilon values and leaf visit
+ * budgets. The sample time mode reports percentiles, e.g. p0.99.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NNSolverApproximateQueryBenchmark {
+	/**
+	 * Number of distinct search points, cycled through by the benchmark.
+	 */
+	private static final int SEARCH_POINT_COUNT = 1 << 12;
+
+	@Param({ "8", "16" })
+	public int dimensionCount;
+
+	@Param({ "100000", "1000000" })
+	public int pointCount;
+
+	@Param({ "0", "0.5", "1" })
+	public double epsilon;
+
+	@Param({ "2147483647", "64" })
+	public int maxLeafVisits;
+
+	@Param({ "ITERATIVE", "BEST_BIN_FIRST" })
+	public NNSearchStrategy strategy;
+
+	private NNSolver<Double> solver;
+	private List<KdPoint<Double>> searchPoints;
+
+	private int searchPointIndex;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		final RandomKdTreeGenerator<Double> generator = PointDistribution.UNIFORM.createGenerator();
+
+		solver = new NNSolver<>(generator.generate(dimensionCount, pointCount), strategy);
+		searchPoints = generator.generatePoints(dimensionCount, SEARCH_POINT_COUNT);
+	}
+
+	@Benchmark
+	public NNSearchResult<Double> findNearestPoint() {
+		searchPointIndex = (searchPointIndex + 1) & (SEARCH_POINT_COUNT - 1);
+
+		return solver.findNearestPoint(searchPoints.get(searchPointIndex), epsilon, maxLeafVisits);
+	}
+}
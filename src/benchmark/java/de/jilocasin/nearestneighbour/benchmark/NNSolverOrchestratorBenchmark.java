@@ -0,0 +1,77 @@
+package de.jilocasin.nearestneighbour.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.jilocasin.nearestneighbour.kdtree.KdPoint;
+import de.jilocasin.nearestneighbour.kdtree.generator.RandomKdTreeGenerator;
+import de.jilocasin.nearestneighbour.nnsolver.NNQueryOrder;
+import de.jilocasin.nearestneighbour.nnsolver.NNSolverOrchestrator;
+
+/**
+ * Measures the query throughput of {@link NNSolverOrchestrator#findNearestPoints}
+ * for a fixed batch of search points. Scores are reported per search point.
+ * Add <code>-prof perfnorm</code> on Linux to compare the cache misses per
+ * search point of the query orders.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NNSolverOrchestratorBenchmark {
+	private static final int SEARCH_POINT_COUNT = 100_000;
+
+	@Param({ "2", "3", "8", "16" })
+	public int dimensionCount;
+
+	@Param({ "1000", "10000", "100000", "1000000", "10000000" })
+	public int pointCount;
+
+	@Param
+	public PointDistribution distribution;
+
+	@Param({ "1", "2", "4", "8" })
+	public int workerThreadsCount;
+
+	@Param
+	public NNQueryOrder queryOrder;
+
+	private NNSolverOrchestrator<Double> orchestrator;
+	private List<KdPoint<Double>> searchPoints;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		final RandomKdTreeGenerator<Double> generator = distribution.createGenerator();
+
+		orchestrator = new NNSolverOrchestrator<>(generator.generate(dimensionCount, pointCount), workerThreadsCount);
+		searchPoints = generator.generatePoints(dimensionCount, SEARCH_POINT_COUNT);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		orchestrator.close();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SEARCH_POINT_COUNT)
+	public List<KdPoint<Double>> findNearestPoints() {
+		return orchestrator.findNearestPoints(searchPoints, queryOrder);
+	}
+}
@@ -0,0 +1,75 @@
+package de.jilocasin.nearestneighbour.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.jilocasin.nearestneighbour.kdtree.KdPoint;
+import de.jilocasin.nearestneighbour.kdtree.generator.RandomKdTreeGenerator;
+import de.jilocasin.nearestneighbour.nnsolver.NNSearchStrategy;
+import de.jilocasin.nearestneighbour.nnsolver.NNSolver;
+
+/**
+ * Measures the latency of single {@link NNSolver#findNearestPoint} calls. The
+ * sample time mode reports percentiles, e.g. p0.50 and p0.99.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NNSolverQueryBenchmark {
+	/**
+	 * Number of distinct search points, cycled through by the benchmark.
+	 */
+	private static final int SEARCH_POINT_COUNT = 1 << 12;
+
+	@Param({ "2", "3", "8", "16" })
+	public int dimensionCount;
+
+	@Param({ "1000", "10000", "100000", "1000000", "10000000" })
+	public int pointCount;
+
+	@Param
+	public PointDistribution distribution;
+
+	@Param
+	public NNSearchStrategy strategy;
+
+	@Param
+	public DistanceMetric distance;
+
+	private NNSolver<Double> solver;
+	private List<KdPoint<Double>> searchPoints;
+
+	private int searchPointIndex;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		final RandomKdTreeGenerator<Double> generator = distribution.createGenerator();
+
+		solver = new NNSolver<>(generator.generate(dimensionCount, pointCount), strategy,
+		        distance.createCalculator());
+		searchPoints = generator.generatePoints(dimensionCount, SEARCH_POINT_COUNT);
+	}
+
+	@Benchmark
+	public KdPoint<Double> findNearestPoint() {
+		searchPointIndex = (searchPointIndex + 1) & (SEARCH_POINT_COUNT - 1);
+
+		return solver.findNearestPoint(searchPoints.get(searchPointIndex));
+	}
+}
@@ -0,0 +1,39 @@
+package de.jilocasin.nearestneighbour.benchmark;
+
+import de.jilocasin.nearestneighbour.kdtree.generator.AnisotropicDoubleKdTreeGenerator;
+import de.jilocasin.nearestneighbour.kdtree.generator.ClusteredDoubleKdTreeGenerator;
+import de.jilocasin.nearestneighbour.kdtree.generator.DuplicateDoubleKdTreeGenerator;
+import de.jilocasin.nearestneighbour.kdtree.generator.RandomDoubleKdTreeGenerator;
+import de.jilocasin.nearestneighbour.kdtree.generator.RandomKdTreeGenerator;
+
+/**
+ * The distributions of the generated benchmark points.
+ */
+public enum PointDistribution {
+	UNIFORM {
+		@Override
+		public RandomKdTreeGenerator<Double> createGenerator() {
+			return new RandomDoubleKdTreeGenerator();
+		}
+	},
+	CLUSTERED {
+		@Override
+		public RandomKdTreeGenerator<Double> createGenerator() {
+			return new ClusteredDoubleKdTreeGenerator();
+		}
+	},
+	DUPLICATES_HEAVY {
+		@Override
+		public RandomKdTreeGenerator<Double> createGenerator() {
+			return new DuplicateDoubleKdTreeGenerator();
+		}
+	},
+	ANISOTROPIC {
+		@Override
+		public RandomKdTreeGenerator<Double> createGenerator() {
+			return new AnisotropicDoubleKdTreeGenerator();
+		}
+	};
+
+	public abstract RandomKdTreeGenerator<Double> createGenerator();
+}
@@ -0,0 +1,74 @@
+package de.jilocasin.nearestneighbour.kdtree;
+
+/**
+ * Stores the data of a {@link DoubleKdTree} in plain arrays on the heap.
+ */
+final class ArrayDoubleKdTreeStorage implements DoubleKdTreeStorage {
+	private final int dimensionCount;
+
+	/**
+	 * The axis values of all points in tree order, interleaved by point.
+	 */
+	private final double[] coordinates;
+
+	/**
+	 * The original point index for each tree position.
+	 */
+	private final int[] pointIndices;
+
+	/**
+	 * The split axis of each internal node in heap order.
+	 */
+	private final int[] splitAxes;
+
+	/**
+	 * The split value of each internal node in heap order.
+	 */
+	private final double[] splitValues;
+
+	ArrayDoubleKdTreeStorage(final int dimensionCount, final double[] coordinates, final int[] pointIndices,
+	        final int[] splitAxes, final double[] splitValues) {
+		this.dimensionCount = dimensionCount;
+		this.coordinates = coordinates;
+		this.pointIndices = pointIndices;
+		this.splitAxes = splitAxes;
+		this.splitValues = splitValues;
+	}
+
+	@Override
+	public double getAxisValue(final int treeIndex, final int axisIndex) {
+		return coordinates[treeIndex * dimensionCount + axisIndex];
+	}
+
+	@Override
+	public int getPointIndex(final int treeIndex) {
+		return pointIndices[treeIndex];
+	}
+
+	@Override
+	public int getSplitAxis(final int nodeIndex) {
+		return splitAxes[nodeIndex];
+	}
+
+	@Override
+	public double getSplitValue(final int nodeIndex) {
+		return splitValues[nodeIndex];
+	}
+
+	@Override
+	public int getInternalNodeCount() {
+		return splitAxes.length;
+	}
+
+	@Override
+	public void close() {
+		// Nothing to release, the arrays are left to the garbage collector.
+	}
+
+	@Override
+	public void computeDistancesSquared(final DoubleDistanceKernel kernel, final int from, final int to,
+	        final double[] target, final double[] distancesSquared) {
+		kernel.computeDistancesSquared(coordinates, from * dimensionCount, to - from, dimensionCount, target,
+		        distancesSquared);
+	}
+}
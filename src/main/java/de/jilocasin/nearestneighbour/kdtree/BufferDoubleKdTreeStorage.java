@@ -0,0 +1,107 @@
+package de.jilocasin.nearestneighbour.kdtree;
+
+/**
+ * <p>
+ * Stores the data of a {@link DoubleKdTree} in a {@link SegmentedBuffer}, e.g.
+ * a memory-mapped file or direct memory. All values are read from the buffer
+ * on access, nothing is copied to the heap.
+ * </p>
+ *
+ * <p>
+ * Each array of the {@link ArrayDoubleKdTreeStorage} is stored as a section:
+ * first the split values, then the axis values of all points, the split axes
+ * and the point indices. Since the sections holding <code>double</code> values
+ * come first, every value is aligned to its size.
+ * </p>
+ */
+final class BufferDoubleKdTreeStorage implements DoubleKdTreeStorage {
+	private final SegmentedBuffer buffer;
+	private final int dimensionCount;
+	private final int internalNodeCount;
+
+	private final long splitValuesOffset;
+	private final long coordinatesOffset;
+	private final long splitAxesOffset;
+	private final long pointIndicesOffset;
+
+	/**
+	 * Creates a storage for the sections starting at the provided byte offset of
+	 * the buffer.
+	 */
+	BufferDoubleKdTreeStorage(final SegmentedBuffer buffer, final long offset, final int dimensionCount,
+	        final int pointCount, final int internalNodeCount) {
+		this.buffer = buffer;
+		this.dimensionCount = dimensionCount;
+		this.internalNodeCount = internalNodeCount;
+
+		this.splitValuesOffset = offset;
+		this.coordinatesOffset = splitValuesOffset + (long) internalNodeCount * Double.BYTES;
+		this.splitAxesOffset = coordinatesOffset + (long) pointCount * dimensionCount * Double.BYTES;
+		this.pointIndicesOffset = splitAxesOffset + (long) internalNodeCount * Integer.BYTES;
+	}
+
+	/**
+	 * Returns the number of bytes needed to store all sections.
+	 */
+	static long getLength(final int dimensionCount, final int pointCount, final int internalNodeCount) {
+		return (long) internalNodeCount * (Double.BYTES + Integer.BYTES)
+		        + (long) pointCount * ((long) dimensionCount * Double.BYTES + Integer.BYTES);
+	}
+
+	@Override
+	public double getAxisValue(final int treeIndex, final int axisIndex) {
+		return buffer.getDouble(coordinatesOffset + ((long) treeIndex * dimensionCount + axisIndex) * Double.BYTES);
+	}
+
+	@Override
+	public int getPointIndex(final int treeIndex) {
+		return buffer.getInt(pointIndicesOffset + (long) treeIndex * Integer.BYTES);
+	}
+
+	@Override
+	public int getSplitAxis(final int nodeIndex) {
+		return buffer.getInt(splitAxesOffset + (long) nodeIndex * Integer.BYTES);
+	}
+
+	@Override
+	public double getSplitValue(final int nodeIndex) {
+		return buffer.getDouble(splitValuesOffset + (long) nodeIndex * Double.BYTES);
+	}
+
+	@Override
+	public int getInternalNodeCount() {
+		return internalNodeCount;
+	}
+
+	/**
+	 * Frees the off-heap or mapped segments of the buffer right away. The storage
+	 * must not be searched afterwards.
+	 */
+	@Override
+	public void close() {
+		buffer.release();
+	}
+
+	/**
+	 * Computes the distances straight from the buffer. The kernels only work on
+	 * arrays, so the provided kernel is not used.
+	 */
+	@Override
+	public void computeDistancesSquared(final DoubleDistanceKernel kernel, final int from, final int to,
+	        final double[] target, final double[] distancesSquared) {
+		long offset = coordinatesOffset + (long) from * dimensionCount * Double.BYTES;
+
+		for (int i = 0; i < to - from; i++) {
+			double distanceSquared = 0;
+
+			for (int axisIndex = 0; axisIndex < dimensionCount; axisIndex++) {
+				final double delta = buffer.getDouble(offset) - target[axisIndex];
+
+				distanceSquared += (delta * delta);
+				offset += Double.BYTES;
+			}
+
+			distancesSquared[i] = distanceSquared;
+		}
+	}
+}
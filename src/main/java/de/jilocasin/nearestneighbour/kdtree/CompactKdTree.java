@@ -0,0 +1,267 @@
+package de.jilocasin.nearestneighbour.kdtree;
+
+import java.util.List;
+
+import de.jilocasin.nearestneighbour.kdtree.exception.InvalidKdDimensionCountException;
+import de.jilocasin.nearestneighbour.kdtree.exception.InvalidKdPointCountException;
+import de.jilocasin.nearestneighbour.kdtree.exception.KdTreeException;
+
+/**
+ * <p>
+ * An immutable k-d tree of points with axis values of the given generic type,
+ * stored in arrays instead of linked {@link KdNode} objects.
+ * </p>
+ *
+ * <p>
+ * The nodes are stored in breadth-first order like a binary heap: the children
+ * of the node at index <code>i</code> are found at <code>2 * i + 1</code> and
+ * <code>2 * i + 2</code>, starting with the root node at index 0. The tree is
+ * left-balanced, so all levels are full except for the last one, which is
+ * filled from the left. This way the array has no gaps and a node has children
+ * exactly if their indices are less than the size of the tree.
+ * </p>
+ *
+ * <p>
+ * The split axis of each node cycles with its depth, and its split value is its
+ * own value on that axis. The axis values of all nodes are kept as
+ * <code>double</code> values in one contiguous array, so moving down the tree
+ * only reads from this array, and the top levels of the tree share a few cache
+ * lines.
+ * </p>
+ */
+public class CompactKdTree<T extends Number & Comparable<T>> {
+	public final int dimensionCount;
+
+	/**
+	 * The points of all nodes in heap order.
+	 */
+	private final KdPoint<T>[] points;
+
+	/**
+	 * The axis values of all nodes in heap order, interleaved by node.
+	 */
+	private final double[] coordinates;
+
+	/**
+	 * Creates a new CompactKdTree instance based on the provided data points. The
+	 * number of axis values of the first data point determines the number of
+	 * dimensions.
+	 *
+	 * @throws InvalidKdPointCountException
+	 *             if the provided list of points was null or did not contain at
+	 *             least one point.
+	 * @throws InvalidKdDimensionCountException
+	 *             if any point has a different number of axis values than the
+	 *             first one.
+	 */
+	public CompactKdTree(final List<KdPoint<T>> points) throws KdTreeException {
+		this(toArray(points));
+	}
+
+	/**
+	 * Creates a new CompactKdTree instance containing the points of the provided
+	 * tree, except for removed points. The provided tree is not modified.
+	 *
+	 * @throws InvalidKdPointCountException
+	 *             if the provided tree is empty.
+	 */
+	public CompactKdTree(final KdTree<T> tree) throws KdTreeException {
+		this(tree.getPoints());
+	}
+
+	private CompactKdTree(final KdPoint<T>[] sourcePoints) {
+		if (sourcePoints.length == 0) {
+			throw new InvalidKdPointCountException();
+		}
+
+		this.dimensionCount = sourcePoints[0].getDimensions();
+
+		if (dimensionCount <= 0) {
+			throw new InvalidKdDimensionCountException();
+		}
+
+		final double[] sourceCoordinates = new double[sourcePoints.length * dimensionCount];
+
+		for (int i = 0; i < sourcePoints.length; i++) {
+			if (sourcePoints[i].getDimensions() != dimensionCount) {
+				throw new InvalidKdDimensionCountException();
+			}
+
+			for (int axisIndex = 0; axisIndex < dimensionCount; axisIndex++) {
+				sourceCoordinates[i * dimensionCount + axisIndex] = sourcePoints[i].getAxisValue(axisIndex)
+				        .doubleValue();
+			}
+		}
+
+		this.points = newPointArray(sourcePoints.length);
+		this.coordinates = new double[sourceCoordinates.length];
+
+		final int[] order = new int[sourcePoints.length];
+
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+
+		buildNode(sourcePoints, sourceCoordinates, order, 0, 0, order.length, 0);
+	}
+
+	public int size() {
+		return points.length;
+	}
+
+	/**
+	 * Returns the point of the node with the provided index.
+	 */
+	public KdPoint<T> getPoint(final int nodeIndex) {
+		return points[nodeIndex];
+	}
+
+	/**
+	 * Returns the value of the node with the provided index on the given axis.
+	 */
+	public double getAxisValue(final int nodeIndex, final int axisIndex) {
+		return coordinates[nodeIndex * dimensionCount + axisIndex];
+	}
+
+	/**
+	 * Returns the squared euclidean distance between the point of the node with
+	 * the provided index and the provided axis values.
+	 */
+	public double getDistanceSquared(final int nodeIndex, final double[] target) {
+		final int offset = nodeIndex * dimensionCount;
+
+		double distanceSquared = 0;
+
+		for (int axisIndex = 0; axisIndex < dimensionCount; axisIndex++) {
+			final double delta = coordinates[offset + axisIndex] - target[axisIndex];
+
+			distanceSquared += (delta * delta);
+		}
+
+		return distanceSquared;
+	}
+
+	/**
+	 * Returns the split axis of the node with the provided index, which only
+	 * depends on its depth.
+	 */
+	public int getSplitAxis(final int nodeIndex) {
+		return getDepth(nodeIndex) % dimensionCount;
+	}
+
+	/**
+	 * Returns the depth of the node with the provided index, starting with 0 for
+	 * the root node.
+	 */
+	public static int getDepth(final int nodeIndex) {
+		return 31 - Integer.numberOfLeadingZeros(nodeIndex + 1);
+	}
+
+	/**
+	 * Returns the depth of the deepest node.
+	 */
+	public int getMaxDepth() {
+		return getDepth(points.length - 1);
+	}
+
+	private void buildNode(final KdPoint<T>[] sourcePoints, final double[] sourceCoordinates, final int[] order,
+	        final int nodeIndex, final int from, final int to, final int depth) {
+		if (from >= to) {
+			return;
+		}
+
+		// The node point has to be the one that leaves exactly as many points on its
+		// left as a left-balanced subtree of this size contains.
+
+		final int median = from + getLeftSubtreeSize(to - from);
+		final int axisIndex = depth % dimensionCount;
+
+		selectNth(sourceCoordinates, order, from, to - 1, median, axisIndex);
+
+		points[nodeIndex] = sourcePoints[order[median]];
+
+		System.arraycopy(sourceCoordinates, order[median] * dimensionCount, coordinates, nodeIndex * dimensionCount,
+		        dimensionCount);
+
+		buildNode(sourcePoints, sourceCoordinates, order, 2 * nodeIndex + 1, from, median, depth + 1);
+		buildNode(sourcePoints, sourceCoordinates, order, 2 * nodeIndex + 2, median + 1, to, depth + 1);
+	}
+
+	/**
+	 * Returns the size of the left subtree of a left-balanced tree with the
+	 * provided size.
+	 */
+	static int getLeftSubtreeSize(final int size) {
+		if (size <= 1) {
+			return 0;
+		}
+
+		// The number of levels below the root which are full.
+
+		final int fullLevelCount = 31 - Integer.numberOfLeadingZeros(size);
+
+		final int lastLevelSize = size - ((1 << fullLevelCount) - 1);
+		final int leftLastLevelCapacity = 1 << (fullLevelCount - 1);
+
+		return (leftLastLevelCapacity - 1) + Math.min(lastLevelSize, leftLastLevelCapacity);
+	}
+
+	/**
+	 * Partially sorts the point order between <code>left</code> and
+	 * <code>right</code> (both inclusive), so the point at index <code>n</code> is
+	 * the one that would be there if the range was fully sorted by the given axis.
+	 */
+	private void selectNth(final double[] sourceCoordinates, final int[] order, int left, int right, final int n,
+	        final int axisIndex) {
+		while (right > left) {
+			final double pivot = sourceCoordinates[order[(left + right) >>> 1] * dimensionCount + axisIndex];
+
+			int i = left;
+			int j = right;
+
+			while (i <= j) {
+				while (sourceCoordinates[order[i] * dimensionCount + axisIndex] < pivot) {
+					i++;
+				}
+
+				while (sourceCoordinates[order[j] * dimensionCount + axisIndex] > pivot) {
+					j--;
+				}
+
+				if (i <= j) {
+					final int temp = order[i];
+
+					order[i] = order[j];
+					order[j] = temp;
+
+					i++;
+					j--;
+				}
+			}
+
+			// Continue with the part containing the requested index.
+
+			if (n <= j) {
+				right = j;
+			} else if (n >= i) {
+				left = i;
+			} else {
+				return;
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T extends Number & Comparable<T>> KdPoint<T>[] newPointArray(final int length) {
+		return (KdPoint<T>[]) new KdPoint<?>[length];
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T extends Number & Comparable<T>> KdPoint<T>[] toArray(final List<KdPoint<T>> points) {
+		if (points == null) {
+			throw new InvalidKdPointCountException();
+		}
+
+		return (KdPoint<T>[]) points.toArray(new KdPoint<?>[points.size()]);
+	}
+}
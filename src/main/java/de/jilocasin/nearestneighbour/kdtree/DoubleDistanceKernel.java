@@ -0,0 +1,29 @@
+package de.jilocasin.nearestneighbour.kdtree;
+
+/**
+ * Computes the squared euclidean distances from one target point to a block of
+ * points, whose axis values are stored next to each other.
+ */
+public interface DoubleDistanceKernel {
+	/**
+	 * Stores the squared distance of each point in the block to the target in the
+	 * result array, starting at index 0.
+	 * 
+	 * @param coordinates
+	 *            the interleaved axis values of all points.
+	 * @param offset
+	 *            the index of the first axis value of the first point in the
+	 *            block.
+	 * @param pointCount
+	 *            the number of points in the block.
+	 * @param dimensionCount
+	 *            the number of axis values per point.
+	 * @param target
+	 *            the axis values of the target point.
+	 * @param distancesSquared
+	 *            the array to store the results in, with space for at least
+	 *            <code>pointCount</code> values.
+	 */
+	void computeDistancesSquared(double[] coordinates, int offset, int pointCount, int dimensionCount,
+	        double[] target, double[] distancesSquared);
+}
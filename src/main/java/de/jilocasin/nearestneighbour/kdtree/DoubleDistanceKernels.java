@@ -0,0 +1,49 @@
+package de.jilocasin.nearestneighbour.kdtree;
+
+/**
+ * <p>
+ * Selects the fastest {@link DoubleDistanceKernel} available at runtime.
+ * </p>
+ * 
+ * <p>
+ * When built with the <code>vector</code> Maven profile, the library contains a
+ * kernel using the incubating Vector API of JDK 17 and newer. It is only used
+ * if the JVM was started with <code>--add-modules jdk.incubator.vector</code>.
+ * Otherwise, or if the system property
+ * <code>de.jilocasin.nearestneighbour.vector</code> is set to
+ * <code>false</code>, the {@link ScalarDoubleDistanceKernel} is used.
+ * </p>
+ */
+public final class DoubleDistanceKernels {
+	/**
+	 * The system property to disable the vector kernel.
+	 */
+	public static final String VECTOR_PROPERTY = "de.jilocasin.nearestneighbour.vector";
+
+	private static final String VECTOR_KERNEL_CLASS_NAME = "de.jilocasin.nearestneighbour.kdtree.VectorDoubleDistanceKernel";
+
+	private static final DoubleDistanceKernel DEFAULT_KERNEL = createDefaultKernel();
+
+	private DoubleDistanceKernels() {
+	}
+
+	/**
+	 * Returns the vector kernel if it is available, the scalar kernel otherwise.
+	 */
+	public static DoubleDistanceKernel getDefault() {
+		return DEFAULT_KERNEL;
+	}
+
+	private static DoubleDistanceKernel createDefaultKernel() {
+		if (!"false".equals(System.getProperty(VECTOR_PROPERTY))) {
+			try {
+				return (DoubleDistanceKernel) Class.forName(VECTOR_KERNEL_CLASS_NAME).getConstructor().newInstance();
+			} catch (final ReflectiveOperationException | LinkageError e) {
+				// The kernel was not built, the JVM is too old or the incubator module was not
+				// added. Fall back to the scalar kernel.
+			}
+		}
+
+		return new ScalarDoubleDistanceKernel();
+	}
+}
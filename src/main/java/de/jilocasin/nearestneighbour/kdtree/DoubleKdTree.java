@@ -0,0 +1,280 @@
+package de.jilocasin.nearestneighbour.kdtree;
+
+import de.jilocasin.nearestneighbour.kdtree.exception.InvalidKdDimensionCountException;
+import de.jilocasin.nearestneighbour.kdtree.exception.InvalidKdPointCountException;
+import de.jilocasin.nearestneighbour.kdtree.exception.KdTreeException;
+
+/**
+ * <p>
+ * A k-d tree specialised for primitive double axis values.
+ * </p>
+ *
+ * <p>
+ * Instead of linking {@link KdNode} objects, this tree uses an implicit node
+ * layout: the points are reordered so that each node covers an index range
+ * <code>[from, to)</code>. Ranges of at most the bucket size are leaves, which
+ * are searched by scanning all of their points. Any larger range is an
+ * internal node, which only stores a split axis and value. Its left subtree is
+ * <code>[from, middle)</code> with values less than or equal to the split
+ * value, and its right subtree is <code>[middle, to)</code> with values greater
+ * than or equal to it.
+ * </p>
+ * 
+ * <p>
+ * The axis values of all points are stored in one contiguous array in this tree
+ * order, and an <code>int</code> array maps each tree position back to the
+ * index of the point as it was provided. The internal nodes are stored in heap
+ * order: the children of the node at index <code>i</code> are found at
+ * <code>2 * i + 1</code> and <code>2 * i + 2</code>, starting with the root
+ * node at index 0.
+ * </p>
+ *
+ * <p>
+ * Trees created by {@link #offHeap(double[], int, int)} or mapped from a file
+ * by {@link DoubleKdTreeFiles} keep these values outside of the heap. Close
+ * them to release the memory immediately.
+ * </p>
+ */
+public class DoubleKdTree implements AutoCloseable {
+	/**
+	 * The default maximum number of points per leaf.
+	 */
+	public static final int DEFAULT_BUCKET_SIZE = 16;
+
+	public final int dimensionCount;
+	public final int pointCount;
+
+	/**
+	 * The maximum number of points per leaf.
+	 */
+	public final int bucketSize;
+
+	private final DoubleKdTreeStorage storage;
+
+	/**
+	 * Creates a new DoubleKdTree instance based on the provided points. The number
+	 * of axis values of the first point determines the number of dimensions.
+	 *
+	 * @param points
+	 *            the axis values of each point to include in the tree data.
+	 * @throws InvalidKdPointCountException
+	 *             if the provided array of points was null or did not contain at
+	 *             least one point.
+	 * @throws InvalidKdDimensionCountException
+	 *             if any point has a different number of axis values than the
+	 *             first one.
+	 */
+	public DoubleKdTree(final double[][] points) throws KdTreeException {
+		this(flatten(points), points[0].length);
+	}
+
+	/**
+	 * Creates a new DoubleKdTree instance based on the provided axis values, using
+	 * the {@link #DEFAULT_BUCKET_SIZE}. See
+	 * {@link #DoubleKdTree(double[], int, int)}.
+	 */
+	public DoubleKdTree(final double[] coordinates, final int dimensionCount) throws KdTreeException {
+		this(coordinates, dimensionCount, DEFAULT_BUCKET_SIZE);
+	}
+
+	/**
+	 * Creates a new DoubleKdTree instance based on the provided axis values. The
+	 * values of each point are expected to be stored next to each other, so the
+	 * value of point <code>i</code> on axis <code>a</code> is found at
+	 * <code>coordinates[i * dimensionCount + a]</code>. The provided array is not
+	 * modified.
+	 *
+	 * @param coordinates
+	 *            the interleaved axis values of all points.
+	 * @param dimensionCount
+	 *            the number of axis values per point.
+	 * @param bucketSize
+	 *            the maximum number of points per leaf. Larger buckets make the
+	 *            tree smaller and are scanned in tight loops, but each search has
+	 *            to check more points.
+	 * @throws InvalidKdPointCountException
+	 *             if the provided array was null or empty.
+	 * @throws InvalidKdDimensionCountException
+	 *             if the dimension count is not positive or does not evenly
+	 *             divide the number of axis values.
+	 * @throws IllegalArgumentException
+	 *             if the bucket size is less than 1.
+	 */
+	public DoubleKdTree(final double[] coordinates, final int dimensionCount, final int bucketSize)
+	        throws KdTreeException {
+		validate(coordinates, dimensionCount, bucketSize);
+
+		this.dimensionCount = dimensionCount;
+		this.pointCount = coordinates.length / dimensionCount;
+		this.bucketSize = bucketSize;
+
+		this.storage = new DoubleKdTreeBuilder(coordinates, dimensionCount, bucketSize).build();
+	}
+
+	/**
+	 * Creates a DoubleKdTree instance for already built tree data, e.g. loaded
+	 * from a file.
+	 */
+	DoubleKdTree(final int dimensionCount, final int pointCount, final int bucketSize,
+	        final DoubleKdTreeStorage storage) {
+		this.dimensionCount = dimensionCount;
+		this.pointCount = pointCount;
+		this.bucketSize = bucketSize;
+		this.storage = storage;
+	}
+
+	/**
+	 * <p>
+	 * Creates a new DoubleKdTree instance like
+	 * {@link #DoubleKdTree(double[], int, int)}, but stores the built tree in
+	 * direct memory. Besides the provided axis values, the build only needs one
+	 * <code>int</code> per point on the heap, all of which can be garbage
+	 * collected afterwards. Searching the tree does not allocate any memory
+	 * proportional to its size.
+	 * </p>
+	 *
+	 * <p>
+	 * The direct memory is limited by the JVM option
+	 * <code>-XX:MaxDirectMemorySize</code>, which defaults to the maximum heap
+	 * size. It is released when the tree is closed or, if it is never closed,
+	 * garbage collected.
+	 * </p>
+	 */
+	public static DoubleKdTree offHeap(final double[] coordinates, final int dimensionCount, final int bucketSize)
+	        throws KdTreeException {
+		return offHeap(coordinates, dimensionCount, bucketSize, SegmentedBuffer.DEFAULT_SEGMENT_SHIFT);
+	}
+
+	static DoubleKdTree offHeap(final double[] coordinates, final int dimensionCount, final int bucketSize,
+	        final int segmentShift) throws KdTreeException {
+		validate(coordinates, dimensionCount, bucketSize);
+
+		final DoubleKdTreeStorage storage = new DoubleKdTreeBuilder(coordinates, dimensionCount, bucketSize)
+		        .buildOffHeap(segmentShift);
+
+		return new DoubleKdTree(dimensionCount, coordinates.length / dimensionCount, bucketSize, storage);
+	}
+
+	/**
+	 * Returns the axis index for the provided depth, based on the dimension count
+	 * of this tree.
+	 *
+	 * @param depth
+	 *            the requested tree node depth.
+	 */
+	public int getAxisIndex(final int depth) {
+		return depth % dimensionCount;
+	}
+
+	/**
+	 * Returns the value of the point at the provided tree position on the axis
+	 * with the provided index.
+	 */
+	public double getAxisValueAt(final int treeIndex, final int axisIndex) {
+		return storage.getAxisValue(treeIndex, axisIndex);
+	}
+
+	/**
+	 * Returns the squared euclidean distance between the point at the provided
+	 * tree position and the provided axis values.
+	 */
+	public double getDistanceSquaredAt(final int treeIndex, final double[] target) {
+		double distanceSquared = 0;
+
+		for (int axisIndex = 0; axisIndex < dimensionCount; axisIndex++) {
+			final double delta = storage.getAxisValue(treeIndex, axisIndex) - target[axisIndex];
+
+			distanceSquared += (delta * delta);
+		}
+
+		return distanceSquared;
+	}
+
+	/**
+	 * Stores the squared euclidean distances between the points at the provided
+	 * tree positions and the provided axis values in the result array, using the
+	 * given kernel.
+	 */
+	public void computeDistancesSquared(final DoubleDistanceKernel kernel, final int from, final int to,
+	        final double[] target, final double[] distancesSquared) {
+		storage.computeDistancesSquared(kernel, from, to, target, distancesSquared);
+	}
+
+	/**
+	 * Returns the original index of the point at the provided tree position.
+	 */
+	public int getPointIndexAt(final int treeIndex) {
+		return storage.getPointIndex(treeIndex);
+	}
+
+	/**
+	 * Returns whether the node covering the provided tree positions is a leaf.
+	 */
+	public boolean isLeaf(final int from, final int to) {
+		return to - from <= bucketSize;
+	}
+
+	/**
+	 * Returns the split axis of the internal node with the provided heap index.
+	 */
+	public int getSplitAxis(final int nodeIndex) {
+		return storage.getSplitAxis(nodeIndex);
+	}
+
+	/**
+	 * Returns the split value of the internal node with the provided heap index.
+	 */
+	public double getSplitValue(final int nodeIndex) {
+		return storage.getSplitValue(nodeIndex);
+	}
+
+	/**
+	 * Returns the number of internal nodes, which are stored in heap order.
+	 */
+	int getInternalNodeCount() {
+		return storage.getInternalNodeCount();
+	}
+
+	/**
+	 * Releases the memory of trees stored outside of the heap. The tree must not
+	 * be searched anymore once this method was called, and not while it runs.
+	 * Does nothing for trees on the heap.
+	 */
+	@Override
+	public void close() {
+		storage.close();
+	}
+
+	private static void validate(final double[] coordinates, final int dimensionCount, final int bucketSize) {
+		if (coordinates == null || coordinates.length == 0) {
+			throw new InvalidKdPointCountException();
+		}
+
+		if (dimensionCount <= 0 || coordinates.length % dimensionCount != 0) {
+			throw new InvalidKdDimensionCountException();
+		}
+
+		if (bucketSize < 1) {
+			throw new IllegalArgumentException("bucketSize must be at least 1, but was " + bucketSize);
+		}
+	}
+
+	private static double[] flatten(final double[][] points) {
+		if (points == null || points.length == 0) {
+			throw new InvalidKdPointCountException();
+		}
+
+		final int dimensionCount = points[0].length;
+		final double[] coordinates = new double[points.length * dimensionCount];
+
+		for (int i = 0; i < points.length; i++) {
+			if (points[i].length != dimensionCount) {
+				throw new InvalidKdDimensionCountException();
+			}
+
+			System.arraycopy(points[i], 0, coordinates, i * dimensionCount, dimensionCount);
+		}
+
+		return coordinates;
+	}
+}
@@ -0,0 +1,189 @@
+package de.jilocasin.nearestneighbour.kdtree;
+
+/**
+ * Builds the storage of a {@link DoubleKdTree} from interleaved axis values.
+ * The points are reordered through an index array, so the provided axis values
+ * are not modified.
+ */
+final class DoubleKdTreeBuilder {
+	private final double[] sourceCoordinates;
+	private final int dimensionCount;
+	private final int pointCount;
+	private final int bucketSize;
+
+	private final int[] pointIndices;
+	private final int[] splitAxes;
+	private final double[] splitValues;
+
+	DoubleKdTreeBuilder(final double[] sourceCoordinates, final int dimensionCount, final int bucketSize) {
+		this.sourceCoordinates = sourceCoordinates;
+		this.dimensionCount = dimensionCount;
+		this.pointCount = sourceCoordinates.length / dimensionCount;
+		this.bucketSize = bucketSize;
+
+		this.pointIndices = new int[pointCount];
+
+		for (int i = 0; i < pointCount; i++) {
+			pointIndices[i] = i;
+		}
+
+		final int internalNodeCount = getInternalNodeCount(pointCount, bucketSize);
+
+		this.splitAxes = new int[internalNodeCount];
+		this.splitValues = new double[internalNodeCount];
+	}
+
+	ArrayDoubleKdTreeStorage build() {
+		buildNode(0, 0, pointCount, 0);
+
+		// Copy the axis values into tree order, so each subtree is stored in one
+		// contiguous block.
+
+		final double[] coordinates = new double[sourceCoordinates.length];
+
+		for (int treeIndex = 0; treeIndex < pointCount; treeIndex++) {
+			System.arraycopy(sourceCoordinates, pointIndices[treeIndex] * dimensionCount, coordinates,
+			        treeIndex * dimensionCount, dimensionCount);
+		}
+
+		return new ArrayDoubleKdTreeStorage(dimensionCount, coordinates, pointIndices, splitAxes, splitValues);
+	}
+
+	/**
+	 * Builds the tree and copies the result to direct memory, without creating a
+	 * reordered copy of the axis values on the heap.
+	 */
+	BufferDoubleKdTreeStorage buildOffHeap(final int segmentShift) {
+		buildNode(0, 0, pointCount, 0);
+
+		final SegmentedBuffer buffer = SegmentedBuffer.allocateDirect(
+		        BufferDoubleKdTreeStorage.getLength(dimensionCount, pointCount, splitAxes.length), segmentShift);
+
+		long offset = 0;
+
+		for (final double splitValue : splitValues) {
+			buffer.putDouble(offset, splitValue);
+			offset += Double.BYTES;
+		}
+
+		for (final int pointIndex : pointIndices) {
+			for (int axisIndex = 0; axisIndex < dimensionCount; axisIndex++) {
+				buffer.putDouble(offset, sourceCoordinates[pointIndex * dimensionCount + axisIndex]);
+				offset += Double.BYTES;
+			}
+		}
+
+		for (final int splitAxis : splitAxes) {
+			buffer.putInt(offset, splitAxis);
+			offset += Integer.BYTES;
+		}
+
+		for (final int pointIndex : pointIndices) {
+			buffer.putInt(offset, pointIndex);
+			offset += Integer.BYTES;
+		}
+
+		return new BufferDoubleKdTreeStorage(buffer, 0, dimensionCount, pointCount, splitAxes.length);
+	}
+
+	private void buildNode(final int nodeIndex, final int from, final int to, final int depth) {
+		if (to - from <= bucketSize) {
+			return;
+		}
+
+		final int middle = (from + to) >>> 1;
+		final int axisIndex = depth % dimensionCount;
+
+		selectNth(from, to - 1, middle, axisIndex);
+
+		splitAxes[nodeIndex] = axisIndex;
+		splitValues[nodeIndex] = valueOf(middle, axisIndex);
+
+		buildNode(2 * nodeIndex + 1, from, middle, depth + 1);
+		buildNode(2 * nodeIndex + 2, middle, to, depth + 1);
+	}
+
+	/**
+	 * Returns the size of the heap of internal nodes. The ranges on each level of
+	 * the tree differ in size by at most one, so all leaves are on the last two
+	 * levels.
+	 */
+	static int getInternalNodeCount(final int pointCount, final int bucketSize) {
+		int levelCount = 0;
+		int maxRangeSize = pointCount;
+
+		while (maxRangeSize > bucketSize) {
+			levelCount++;
+			maxRangeSize = (maxRangeSize + 1) / 2;
+		}
+
+		return (1 << levelCount) - 1;
+	}
+
+	/**
+	 * Partially sorts the point indices between <code>left</code> and
+	 * <code>right</code> (both inclusive), so the point at index <code>n</code> is
+	 * the one that would be there if the range was fully sorted by the given axis.
+	 * All points before it have smaller or equal values, all points after it have
+	 * greater or equal values.
+	 */
+	private void selectNth(int left, int right, final int n, final int axisIndex) {
+		while (right > left) {
+			// Use the median of three as pivot to avoid the worst case on sorted input.
+
+			final int middle = (left + right) >>> 1;
+
+			final double pivot = medianOfThree(valueOf(left, axisIndex), valueOf(middle, axisIndex),
+			        valueOf(right, axisIndex));
+
+			int i = left;
+			int j = right;
+
+			while (i <= j) {
+				while (valueOf(i, axisIndex) < pivot) {
+					i++;
+				}
+
+				while (valueOf(j, axisIndex) > pivot) {
+					j--;
+				}
+
+				if (i <= j) {
+					swap(i, j);
+
+					i++;
+					j--;
+				}
+			}
+
+			// Continue with the part containing the requested index.
+
+			if (n <= j) {
+				right = j;
+			} else if (n >= i) {
+				left = i;
+			} else {
+				return;
+			}
+		}
+	}
+
+	private double valueOf(final int position, final int axisIndex) {
+		return sourceCoordinates[pointIndices[position] * dimensionCount + axisIndex];
+	}
+
+	private void swap(final int i, final int j) {
+		final int temp = pointIndices[i];
+
+		pointIndices[i] = pointIndices[j];
+		pointIndices[j] = temp;
+	}
+
+	private static double medianOfThree(final double a, final double b, final double c) {
+		if (a < b) {
+			return b < c ? b : (a < c ? c : a);
+		} else {
+			return a < c ? a : (b < c ? c : b);
+		}
+	}
+}
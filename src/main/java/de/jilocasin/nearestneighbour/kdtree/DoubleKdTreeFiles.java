@@ -0,0 +1,270 @@
+package de.jilocasin.nearestneighbour.kdtree;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+import de.jilocasin.nearestneighbour.kdtree.exception.InvalidKdTreeFileException;
+
+/**
+ * <p>
+ * Writes a built {@link DoubleKdTree} to a file and loads it again by mapping
+ * the file into memory. A mapped tree answers searches straight from the file
+ * contents, without reading them into arrays first, so loading is nearly
+ * instant and the operating system only pages in the parts of the tree that are
+ * actually searched.
+ * </p>
+ *
+ * <p>
+ * All values are stored little-endian. A file starts with a header of
+ * {@value #HEADER_LENGTH} bytes:
+ * </p>
+ * <ul>
+ * <li>magic number and format version (<code>int</code> each)</li>
+ * <li>dimension count, point count, bucket size and internal node count
+ * (<code>int</code> each)</li>
+ * <li>payload length and CRC32 checksum of the payload (<code>long</code>
+ * each)</li>
+ * </ul>
+ * <p>
+ * The payload holds the split values of the internal nodes, the axis values of
+ * all points in tree order, the split axes of the internal nodes and the
+ * original point indices in tree order. Since the sections holding
+ * <code>double</code> values come first, every value is aligned to its size.
+ * </p>
+ */
+public final class DoubleKdTreeFiles {
+	/**
+	 * The bytes "KDTD" when read as a little-endian <code>int</code>.
+	 */
+	static final int MAGIC = 0x4454444B;
+
+	static final int VERSION = 1;
+
+	static final int HEADER_LENGTH = 40;
+
+	private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+	private DoubleKdTreeFiles() {
+	}
+
+	/**
+	 * Writes the provided tree to the given file, replacing any existing file.
+	 */
+	public static void write(final DoubleKdTree tree, final Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+		        StandardOpenOption.TRUNCATE_EXISTING)) {
+			final int internalNodeCount = tree.getInternalNodeCount();
+
+			// Write the payload first, so its checksum is known when writing the header.
+
+			channel.position(HEADER_LENGTH);
+
+			final ChunkedWriter writer = new ChunkedWriter(channel);
+
+			for (int nodeIndex = 0; nodeIndex < internalNodeCount; nodeIndex++) {
+				writer.putDouble(tree.getSplitValue(nodeIndex));
+			}
+
+			for (int treeIndex = 0; treeIndex < tree.pointCount; treeIndex++) {
+				for (int axisIndex = 0; axisIndex < tree.dimensionCount; axisIndex++) {
+					writer.putDouble(tree.getAxisValueAt(treeIndex, axisIndex));
+				}
+			}
+
+			for (int nodeIndex = 0; nodeIndex < internalNodeCount; nodeIndex++) {
+				writer.putInt(tree.getSplitAxis(nodeIndex));
+			}
+
+			for (int treeIndex = 0; treeIndex < tree.pointCount; treeIndex++) {
+				writer.putInt(tree.getPointIndexAt(treeIndex));
+			}
+
+			writer.flush();
+
+			final ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+
+			header.putInt(MAGIC);
+			header.putInt(VERSION);
+			header.putInt(tree.dimensionCount);
+			header.putInt(tree.pointCount);
+			header.putInt(tree.bucketSize);
+			header.putInt(internalNodeCount);
+			header.putLong(BufferDoubleKdTreeStorage.getLength(tree.dimensionCount, tree.pointCount, internalNodeCount));
+			header.putLong(writer.checksum.getValue());
+			header.flip();
+
+			channel.position(0);
+
+			writeFully(channel, header);
+		}
+	}
+
+	/**
+	 * Maps the provided file into memory and returns the tree stored in it,
+	 * after verifying the checksum of the whole file. See
+	 * {@link #map(Path, boolean)}.
+	 */
+	public static DoubleKdTree map(final Path path) throws IOException {
+		return map(path, true);
+	}
+
+	/**
+	 * Maps the provided file into memory and returns the tree stored in it. The
+	 * file must not be modified as long as the tree is used. Close the tree to
+	 * unmap the file immediately instead of waiting for the garbage collector.
+	 *
+	 * @param verifyChecksum
+	 *            whether to check the whole file against its checksum. This reads
+	 *            the complete file once, so pass <code>false</code> to load a
+	 *            trusted file without touching its contents.
+	 * @throws InvalidKdTreeFileException
+	 *             if the file was not written by {@link #write}, uses an
+	 *             unsupported version, is truncated or does not match its
+	 *             checksum.
+	 */
+	public static DoubleKdTree map(final Path path, final boolean verifyChecksum) throws IOException {
+		return map(path, verifyChecksum, SegmentedBuffer.DEFAULT_SEGMENT_SHIFT);
+	}
+
+	static DoubleKdTree map(final Path path, final boolean verifyChecksum, final int segmentShift)
+	        throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			final long fileLength = channel.size();
+
+			if (fileLength < HEADER_LENGTH) {
+				throw new InvalidKdTreeFileException("File is too short to contain a header: " + fileLength);
+			}
+
+			final ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+
+			while (header.hasRemaining()) {
+				if (channel.read(header, header.position()) < 0) {
+					throw new InvalidKdTreeFileException("Unexpected end of file");
+				}
+			}
+
+			header.flip();
+
+			if (header.getInt() != MAGIC) {
+				throw new InvalidKdTreeFileException("Not a tree file");
+			}
+
+			final int version = header.getInt();
+
+			if (version != VERSION) {
+				throw new InvalidKdTreeFileException("Unsupported version " + version);
+			}
+
+			final int dimensionCount = header.getInt();
+			final int pointCount = header.getInt();
+			final int bucketSize = header.getInt();
+			final int internalNodeCount = header.getInt();
+			final long payloadLength = header.getLong();
+			final long checksum = header.getLong();
+
+			if (dimensionCount <= 0 || pointCount <= 0 || bucketSize < 1
+			        || internalNodeCount != DoubleKdTreeBuilder.getInternalNodeCount(pointCount, bucketSize)
+			        || payloadLength != BufferDoubleKdTreeStorage.getLength(dimensionCount, pointCount, internalNodeCount)) {
+				throw new InvalidKdTreeFileException("Invalid header");
+			}
+
+			if (fileLength != HEADER_LENGTH + payloadLength) {
+				throw new InvalidKdTreeFileException(
+				        "Expected " + (HEADER_LENGTH + payloadLength) + " bytes, but the file has " + fileLength);
+			}
+
+			// Map the whole file including the header, so file offsets can be used as
+			// buffer offsets. The mapping stays valid after the channel is closed.
+
+			final ByteBuffer[] segments = new ByteBuffer[SegmentedBuffer.getSegmentCount(fileLength, segmentShift)];
+
+			for (int i = 0; i < segments.length; i++) {
+				final long position = (long) i << segmentShift;
+				final long size = Math.min(1L << segmentShift, fileLength - position);
+
+				segments[i] = channel.map(MapMode.READ_ONLY, position, size).order(ByteOrder.LITTLE_ENDIAN);
+			}
+
+			if (verifyChecksum && getChecksum(segments) != checksum) {
+				throw new InvalidKdTreeFileException("Checksum mismatch");
+			}
+
+			final DoubleKdTreeStorage storage = new BufferDoubleKdTreeStorage(
+			        new SegmentedBuffer(segments, segmentShift), HEADER_LENGTH, dimensionCount, pointCount,
+			        internalNodeCount);
+
+			return new DoubleKdTree(dimensionCount, pointCount, bucketSize, storage);
+		}
+	}
+
+	/**
+	 * Returns the checksum of all bytes after the header.
+	 */
+	private static long getChecksum(final ByteBuffer[] segments) {
+		final CRC32 checksum = new CRC32();
+
+		long segmentStart = 0;
+
+		for (final ByteBuffer segment : segments) {
+			final ByteBuffer view = segment.duplicate();
+
+			view.position((int) Math.max(0, Math.min(HEADER_LENGTH - segmentStart, view.limit())));
+			checksum.update(view);
+
+			segmentStart += segment.capacity();
+		}
+
+		return checksum.getValue();
+	}
+
+	private static void writeFully(final FileChannel channel, final ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	/**
+	 * Collects values in a small buffer, which is written to the channel and added
+	 * to the checksum whenever it is full.
+	 */
+	private static final class ChunkedWriter {
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		private final CRC32 checksum = new CRC32();
+
+		private ChunkedWriter(final FileChannel channel) {
+			this.channel = channel;
+		}
+
+		private void putDouble(final double value) throws IOException {
+			if (buffer.remaining() < Double.BYTES) {
+				flush();
+			}
+
+			buffer.putDouble(value);
+		}
+
+		private void putInt(final int value) throws IOException {
+			if (buffer.remaining() < Integer.BYTES) {
+				flush();
+			}
+
+			buffer.putInt(value);
+		}
+
+		private void flush() throws IOException {
+			buffer.flip();
+
+			checksum.update(buffer.array(), 0, buffer.limit());
+			writeFully(channel, buffer);
+
+			buffer.clear();
+		}
+	}
+}
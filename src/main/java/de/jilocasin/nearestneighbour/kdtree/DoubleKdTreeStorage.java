@@ -0,0 +1,30 @@
+package de.jilocasin.nearestneighbour.kdtree;
+
+/**
+ * Holds the data of a {@link DoubleKdTree}: the axis values and original
+ * indices of all points in tree order, and the split axis and value of each
+ * internal node in heap order.
+ */
+interface DoubleKdTreeStorage {
+	double getAxisValue(int treeIndex, int axisIndex);
+
+	int getPointIndex(int treeIndex);
+
+	int getSplitAxis(int nodeIndex);
+
+	double getSplitValue(int nodeIndex);
+
+	int getInternalNodeCount();
+
+	/**
+	 * Releases any memory held outside of the heap.
+	 */
+	void close();
+
+	/**
+	 * Stores the squared euclidean distances between the points at the provided
+	 * tree positions and the provided axis values in the result array.
+	 */
+	void computeDistancesSquared(DoubleDistanceKernel kernel, int from, int to, double[] target,
+	        double[] distancesSquared);
+}
@@ -0,0 +1,106 @@
+package de.jilocasin.nearestneighbour.kdtree;
+
+/**
+ * Chooses the split axis of each node while a {@link KdTree} is built.
+ */
+interface KdAxisSelector {
+	/**
+	 * Cycles through the axes by depth, see {@link KdTree#getAxisIndex(int)}.
+	 */
+	KdAxisSelector CYCLIC = new KdAxisSelector() {
+		@Override
+		public <T extends Number & Comparable<T>> int selectAxis(final KdPoint<T>[] points, final int from,
+		        final int to, final int depth) {
+			return depth % points[from].getDimensions();
+		}
+	};
+
+	/**
+	 * Chooses the axis with the largest difference between the minimum and
+	 * maximum value.
+	 */
+	KdAxisSelector MAX_SPREAD = new KdAxisSelector() {
+		@Override
+		public <T extends Number & Comparable<T>> int selectAxis(final KdPoint<T>[] points, final int from,
+		        final int to, final int depth) {
+			final int dimensionCount = points[from].getDimensions();
+
+			int bestAxisIndex = 0;
+			double bestSpread = -1;
+
+			for (int axisIndex = 0; axisIndex < dimensionCount; axisIndex++) {
+				double minValue = Double.POSITIVE_INFINITY;
+				double maxValue = Double.NEGATIVE_INFINITY;
+
+				for (int i = from; i < to; i++) {
+					final double value = points[i].getAxisValue(axisIndex).doubleValue();
+
+					minValue = Math.min(minValue, value);
+					maxValue = Math.max(maxValue, value);
+				}
+
+				if (maxValue - minValue > bestSpread) {
+					bestAxisIndex = axisIndex;
+					bestSpread = maxValue - minValue;
+				}
+			}
+
+			return bestAxisIndex;
+		}
+	};
+
+	/**
+	 * Chooses the axis with the highest variance.
+	 */
+	KdAxisSelector MAX_VARIANCE = new KdAxisSelector() {
+		@Override
+		public <T extends Number & Comparable<T>> int selectAxis(final KdPoint<T>[] points, final int from,
+		        final int to, final int depth) {
+			final int dimensionCount = points[from].getDimensions();
+
+			int bestAxisIndex = 0;
+			double bestVariance = -1;
+
+			for (int axisIndex = 0; axisIndex < dimensionCount; axisIndex++) {
+				final double variance = getVariance(points, from, to, axisIndex, 1);
+
+				if (variance > bestVariance) {
+					bestAxisIndex = axisIndex;
+					bestVariance = variance;
+				}
+			}
+
+			return bestAxisIndex;
+		}
+	};
+
+	/**
+	 * Returns the split axis for the node of the points in the given range of the
+	 * array, which must not be empty. The range must not be modified.
+	 */
+	<T extends Number & Comparable<T>> int selectAxis(KdPoint<T>[] points, int from, int to, int depth);
+
+	/**
+	 * Returns the variance of the values on the given axis of every
+	 * <code>step</code>-th point in the given range.
+	 */
+	static <T extends Number & Comparable<T>> double getVariance(final KdPoint<T>[] points, final int from,
+	        final int to, final int axisIndex, final int step) {
+		int count = 0;
+		double mean = 0;
+		double squaredDeviationSum = 0;
+
+		// Welford's algorithm, which stays accurate for values far from zero.
+
+		for (int i = from; i < to; i += step) {
+			final double value = points[i].getAxisValue(axisIndex).doubleValue();
+			final double delta = value - mean;
+
+			count++;
+			mean += delta / count;
+			squaredDeviationSum += delta * (value - mean);
+		}
+
+		return squaredDeviationSum / count;
+	}
+}
@@ -0,0 +1,146 @@
+package de.jilocasin.nearestneighbour.kdtree;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import de.jilocasin.nearestneighbour.kdtree.exception.InvalidKdPointCountException;
+import de.jilocasin.nearestneighbour.kdtree.exception.KdTreeException;
+
+/**
+ * <p>
+ * A set of randomized k-d trees over the same points, for approximate nearest
+ * neighbour searches on data with many dimensions.
+ * </p>
+ * 
+ * <p>
+ * Instead of cycling through the axes, each node of each tree is split on an
+ * axis chosen at random among the axes with the highest variance of its
+ * points. The trees therefore partition the space differently. A search with a
+ * limited budget, which would miss the nearest point in a single tree, is
+ * likely to find it in one of the others. Search all trees at once by passing
+ * the forest to a {@link de.jilocasin.nearestneighbour.nnsolver.NNSolver}.
+ * </p>
+ */
+public class KdForest<T extends Number & Comparable<T>> {
+	/**
+	 * The default number of trees.
+	 */
+	public static final int DEFAULT_TREE_COUNT = 4;
+
+	public final int dimensionCount;
+
+	private final List<KdTree<T>> trees;
+
+	/**
+	 * Creates a forest of {@link #DEFAULT_TREE_COUNT} trees, built in parallel on
+	 * the common pool.
+	 * 
+	 * @throws InvalidKdPointCountException
+	 *             if the provided list of points was null or did not contain at
+	 *             least one point.
+	 */
+	public KdForest(final List<KdPoint<T>> points) throws KdTreeException {
+		this(points, DEFAULT_TREE_COUNT);
+	}
+
+	/**
+	 * Creates a forest of the given number of trees, built in parallel on the
+	 * common pool.
+	 * 
+	 * @throws InvalidKdPointCountException
+	 *             if the provided list of points was null or did not contain at
+	 *             least one point.
+	 * @throws IllegalArgumentException
+	 *             if the tree count is less than 1.
+	 */
+	public KdForest(final List<KdPoint<T>> points, final int treeCount) throws KdTreeException {
+		this(points, treeCount, KdTreeBuildStrategy.APPROXIMATE_MEDIAN, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Creates a forest of the given number of trees. The same points and tree
+	 * count always result in the same trees.
+	 * 
+	 * @param points
+	 *            the points to include in each tree. The list is not modified.
+	 * @param treeCount
+	 *            the number of trees.
+	 * @param buildStrategy
+	 *            the strategy to choose the point of each node.
+	 * @param pool
+	 *            the pool to build the trees on in parallel, or null to build them
+	 *            one after another on the calling thread.
+	 * @throws InvalidKdPointCountException
+	 *             if the provided list of points was null or did not contain at
+	 *             least one point.
+	 * @throws IllegalArgumentException
+	 *             if the tree count is less than 1.
+	 */
+	public KdForest(final List<KdPoint<T>> points, final int treeCount, final KdTreeBuildStrategy buildStrategy,
+	        final ForkJoinPool pool) throws KdTreeException {
+		if (points == null || points.isEmpty()) {
+			throw new InvalidKdPointCountException();
+		}
+
+		if (treeCount < 1) {
+			throw new IllegalArgumentException("treeCount must be at least 1, but was " + treeCount);
+		}
+
+		this.dimensionCount = points.get(0).getDimensions();
+
+		final List<KdTree<T>> builtTrees = new ArrayList<>(treeCount);
+
+		if (pool == null) {
+			for (int treeIndex = 0; treeIndex < treeCount; treeIndex++) {
+				builtTrees.add(buildTree(points, buildStrategy, treeIndex));
+			}
+		} else {
+			final List<ForkJoinTask<KdTree<T>>> tasks = new ArrayList<>(treeCount);
+
+			for (int treeIndex = 0; treeIndex < treeCount; treeIndex++) {
+				final int seed = treeIndex;
+
+				tasks.add(pool.submit(() -> buildTree(points, buildStrategy, seed)));
+			}
+
+			for (final ForkJoinTask<KdTree<T>> task : tasks) {
+				builtTrees.add(task.join());
+			}
+		}
+
+		this.trees = Collections.unmodifiableList(builtTrees);
+	}
+
+	/**
+	 * Returns the trees of this forest. Each tree contains all points and is
+	 * immutable.
+	 */
+	public List<KdTree<T>> getTrees() {
+		return trees;
+	}
+
+	public int getTreeCount() {
+		return trees.size();
+	}
+
+	/**
+	 * Returns the number of points in this forest.
+	 */
+	public int size() {
+		return trees.get(0).size();
+	}
+
+	private static <T extends Number & Comparable<T>> KdTree<T> buildTree(final List<KdPoint<T>> points,
+	        final KdTreeBuildStrategy buildStrategy, final long seed) {
+		final KdTree<T> tree = new KdTree<>(points, buildStrategy, new RandomizedAxisSelector(seed), null);
+
+		// All trees have to keep the same points.
+
+		tree.makeImmutable();
+
+		return tree;
+	}
+}
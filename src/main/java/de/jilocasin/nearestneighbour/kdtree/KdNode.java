@@ -10,6 +10,9 @@ public class KdNode<T extends Number & Comparable<T>> {
 	private KdNode<T> leftNode;
 	private KdNode<T> rightNode;
 
+	private int subtreeSize = 1;
+	private boolean removed;
+
 	public KdNode(final KdPoint<T> point, final int depth, final int axisIndex) {
 		this.point = point;
 		this.depth = depth;
@@ -40,6 +43,31 @@ public class KdNode<T extends Number & Comparable<T>> {
 		this.rightNode = rightNode;
 	}
 
+	/**
+	 * Returns the number of nodes in the subtree of this node, including this node
+	 * itself and nodes of removed points.
+	 */
+	public int getSubtreeSize() {
+		return subtreeSize;
+	}
+
+	void setSubtreeSize(final int subtreeSize) {
+		this.subtreeSize = subtreeSize;
+	}
+
+	/**
+	 * Returns whether the point of this node was removed from the tree. The node
+	 * is kept to split its subtree until the next rebuild, but its point must not
+	 * be returned by any search.
+	 */
+	public boolean isRemoved() {
+		return removed;
+	}
+
+	void markRemoved() {
+		this.removed = true;
+	}
+
 	public boolean hasParentNode() {
 		return parentNode != null;
 	}
@@ -1,30 +1,77 @@
 package de.jilocasin.nearestneighbour.kdtree;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
+import de.jilocasin.nearestneighbour.kdtree.exception.ImmutableKdTreeException;
+import de.jilocasin.nearestneighbour.kdtree.exception.InvalidKdDimensionCountException;
 import de.jilocasin.nearestneighbour.kdtree.exception.InvalidKdPointCountException;
 import de.jilocasin.nearestneighbour.kdtree.exception.KdTreeException;
 
+/**
+ * <p>
+ * A k-d tree of points with axis values of the given generic type.
+ * </p>
+ * 
+ * <p>
+ * Points can be inserted and removed after setup. Removed points are only
+ * marked as such and skipped by all searches, until more than half of all nodes
+ * are removed and the tree is rebuilt. Whenever an insert makes the tree too
+ * deep, the smallest subtree containing the new point that is too unbalanced is
+ * rebuilt (like a scapegoat tree), which keeps updates at amortised O(log n).
+ * </p>
+ * 
+ * <p>
+ * Instances are not thread safe. Searches must not run while the tree is
+ * modified. Use a {@link VersionedKdTree} to search while points are added or
+ * removed.
+ * </p>
+ */
 public class KdTree<T extends Number & Comparable<T>> {
 	/**
-	 * Use 1% of all relevant points to choose a median approximation.
+	 * The maximum share of the nodes of a subtree that one of its child subtrees
+	 * may contain, before the subtree is considered unbalanced after an insert.
 	 */
-	private static final float MEDIAN_APPROXIMATION_POINTS_PERCENTAGE = 0.01f;
+	private static final double REBALANCE_ALPHA = 0.7;
+
+	public final int dimensionCount;
+
+	private final KdTreeBuildStrategy buildStrategy;
+	private final KdAxisSelector axisSelector;
 
 	/**
-	 * Random instance used for the median approximation.
+	 * Partial rebuilds always use the exact median. Their subtrees are usually
+	 * small, so a sample of their points would not restore the balance.
 	 */
-	private static final Random random = new Random(0);
+	private final KdTreeBuilder<T> rebuildBuilder;
 
-	public final int dimensionCount;
+	private KdNode<T> rootNode;
+
+	/**
+	 * The number of points in this tree.
+	 */
+	private int size;
 
-	public final KdNode<T> rootNode;
+	/**
+	 * The number of nodes in this tree, including the nodes of removed points.
+	 */
+	private int nodeCount;
 
 	/**
-	 * Creates a new KdTree instance based on the provided data points. The number
-	 * of axis values of the first data point determines the number of dimensions.
+	 * Set once this tree was published as a snapshot by a {@link VersionedKdTree}.
+	 */
+	private boolean immutable;
+
+	/**
+	 * The number of points inserted into or removed from this tree since it was
+	 * created.
+	 */
+	private int modificationCount;
+
+	/**
+	 * Creates a new KdTree instance based on the provided data points, using the
+	 * {@link KdTreeBuildStrategy#APPROXIMATE_MEDIAN} build strategy. The number of
+	 * axis values of the first data point determines the number of dimensions.
 	 * 
 	 * @param points
 	 *            the points to include in the tree data.
@@ -33,6 +80,77 @@ public class KdTree<T extends Number & Comparable<T>> {
 	 *             least one point.
 	 */
 	public KdTree(final List<KdPoint<T>> points) throws KdTreeException {
+		this(points, KdTreeBuildStrategy.APPROXIMATE_MEDIAN);
+	}
+
+	/**
+	 * Creates a new KdTree instance based on the provided data points. The number
+	 * of axis values of the first data point determines the number of dimensions.
+	 * 
+	 * @param points
+	 *            the points to include in the tree data. The list is not modified.
+	 * @param buildStrategy
+	 *            the strategy to choose the point of each node.
+	 * @throws InvalidKdPointCountException
+	 *             if the provided list of points was null or did not contain at
+	 *             least one point.
+	 */
+	public KdTree(final List<KdPoint<T>> points, final KdTreeBuildStrategy buildStrategy) throws KdTreeException {
+		this(points, buildStrategy, null);
+	}
+
+	/**
+	 * Creates a new KdTree instance based on the provided data points, building
+	 * larger subtrees in parallel on the provided pool. The resulting tree is the
+	 * same as the one built by {@link #KdTree(List, KdTreeBuildStrategy)}.
+	 * 
+	 * @param points
+	 *            the points to include in the tree data. The list is not modified.
+	 * @param buildStrategy
+	 *            the strategy to choose the point of each node.
+	 * @param pool
+	 *            the pool to run the build tasks on, or null to build the tree on
+	 *            the calling thread.
+	 * @throws InvalidKdPointCountException
+	 *             if the provided list of points was null or did not contain at
+	 *             least one point.
+	 */
+	public KdTree(final List<KdPoint<T>> points, final KdTreeBuildStrategy buildStrategy, final ForkJoinPool pool)
+	        throws KdTreeException {
+		this(points, buildStrategy, KdAxisSelector.CYCLIC, pool);
+	}
+
+	/**
+	 * Creates a new KdTree instance based on the provided data points, choosing
+	 * the split axis of each node according to the provided axis strategy. Nodes
+	 * added later by {@link #insert(KdPoint)} use the {@link #getAxisIndex(int)
+	 * cyclic axis}, but rebuilt subtrees use the axis strategy again.
+	 * 
+	 * @param points
+	 *            the points to include in the tree data. The list is not modified.
+	 * @param buildStrategy
+	 *            the strategy to choose the point of each node.
+	 * @param axisStrategy
+	 *            the strategy to choose the split axis of each node.
+	 * @param pool
+	 *            the pool to run the build tasks on, or null to build the tree on
+	 *            the calling thread.
+	 * @throws InvalidKdPointCountException
+	 *             if the provided list of points was null or did not contain at
+	 *             least one point.
+	 */
+	public KdTree(final List<KdPoint<T>> points, final KdTreeBuildStrategy buildStrategy,
+	        final KdTreeAxisStrategy axisStrategy, final ForkJoinPool pool) throws KdTreeException {
+		this(points, buildStrategy, axisStrategy.getAxisSelector(), pool);
+	}
+
+	/**
+	 * Creates a new KdTree instance based on the provided data points, choosing
+	 * the split axis of each node with the provided selector. See
+	 * {@link #KdTree(List, KdTreeBuildStrategy, KdTreeAxisStrategy, ForkJoinPool)}.
+	 */
+	KdTree(final List<KdPoint<T>> points, final KdTreeBuildStrategy buildStrategy, final KdAxisSelector axisSelector,
+	        final ForkJoinPool pool) throws KdTreeException {
 		// Make sure at least one point was provided.
 
 		if (points == null || points.isEmpty()) {
@@ -40,8 +158,180 @@ public class KdTree<T extends Number & Comparable<T>> {
 		}
 
 		this.dimensionCount = points.get(0).getDimensions();
+		this.buildStrategy = buildStrategy;
+		this.axisSelector = axisSelector;
+		this.rebuildBuilder = new KdTreeBuilder<>(this, KdTreeBuildStrategy.EXACT_MEDIAN);
+
+		final KdPoint<T>[] pointArray = toArray(points);
+		final KdTreeBuilder<T> builder = new KdTreeBuilder<>(this, buildStrategy);
+
+		if (pool == null) {
+			this.rootNode = builder.buildNode(null, pointArray, 0, pointArray.length, 0);
+		} else {
+			this.rootNode = builder.buildNodeInParallel(pool, null, pointArray, 0, pointArray.length, 0);
+		}
+
+		this.size = pointArray.length;
+		this.nodeCount = pointArray.length;
+	}
+
+	/**
+	 * Creates a new, empty KdTree instance for points with the given number of
+	 * dimensions. Points have to be added using {@link #insert(KdPoint)}.
+	 * 
+	 * @throws InvalidKdDimensionCountException
+	 *             if the dimension count is not positive.
+	 */
+	public KdTree(final int dimensionCount) throws KdTreeException {
+		if (dimensionCount <= 0) {
+			throw new InvalidKdDimensionCountException();
+		}
+
+		this.dimensionCount = dimensionCount;
+		this.buildStrategy = KdTreeBuildStrategy.EXACT_MEDIAN;
+		this.axisSelector = KdAxisSelector.CYCLIC;
+		this.rebuildBuilder = new KdTreeBuilder<>(this, buildStrategy);
+	}
+
+	/**
+	 * Creates a copy of the provided tree, including the nodes of removed points.
+	 * The copy is not immutable, even if the source tree is.
+	 */
+	KdTree(final KdTree<T> sourceTree) {
+		this.dimensionCount = sourceTree.dimensionCount;
+		this.buildStrategy = sourceTree.buildStrategy;
+		this.axisSelector = sourceTree.axisSelector;
+		this.rebuildBuilder = new KdTreeBuilder<>(this, KdTreeBuildStrategy.EXACT_MEDIAN);
+
+		this.rootNode = copyNode(null, sourceTree.rootNode);
+
+		this.size = sourceTree.size;
+		this.nodeCount = sourceTree.nodeCount;
+	}
+
+	/**
+	 * Returns the root node of this tree, or null if the tree is empty.
+	 */
+	public KdNode<T> getRootNode() {
+		return rootNode;
+	}
+
+	/**
+	 * Returns the number of points in this tree.
+	 */
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
 
-		this.rootNode = buildNode(null, points, 0);
+	/**
+	 * Returns a report of the current shape of this tree, like its height and the
+	 * number of nodes at each depth. Visits all nodes, so it takes time
+	 * proportional to the size of the tree.
+	 */
+	public KdTreeShape getShape() {
+		return new KdTreeShape(rootNode, size);
+	}
+
+	/**
+	 * Returns the number of points inserted into or removed from this tree since
+	 * it was created. Anything derived from the points of this tree is outdated
+	 * once this number changed.
+	 */
+	public int getModificationCount() {
+		return modificationCount;
+	}
+
+	/**
+	 * Adds the provided point to this tree. If the tree gets too deep, the
+	 * unbalanced part of it is rebuilt.
+	 * 
+	 * @throws InvalidKdDimensionCountException
+	 *             if the point does not have the dimension count of this tree.
+	 * @throws ImmutableKdTreeException
+	 *             if this tree is a snapshot of a {@link VersionedKdTree}.
+	 */
+	public void insert(final KdPoint<T> point) throws KdTreeException {
+		checkMutable();
+
+		if (point.getDimensions() != dimensionCount) {
+			throw new InvalidKdDimensionCountException();
+		}
+
+		size++;
+		nodeCount++;
+		modificationCount++;
+
+		if (rootNode == null) {
+			rootNode = new KdNode<>(point, 0, getAxisIndex(0));
+
+			return;
+		}
+
+		// Move down the tree just like a search would, counting the new node for each
+		// subtree on the way.
+
+		KdNode<T> node = rootNode;
+
+		while (true) {
+			node.setSubtreeSize(node.getSubtreeSize() + 1);
+
+			final boolean isRightOfNode = isRightOf(point, node);
+			final KdNode<T> childNode = isRightOfNode ? node.getRightNode() : node.getLeftNode();
+
+			if (childNode == null) {
+				final KdNode<T> newNode = new KdNode<>(point, node.depth + 1, getAxisIndex(node.depth + 1));
+
+				newNode.setParentNode(node);
+
+				if (isRightOfNode) {
+					node.setRightNode(newNode);
+				} else {
+					node.setLeftNode(newNode);
+				}
+
+				if (newNode.depth > getMaxBalancedDepth()) {
+					rebalanceAbove(newNode);
+				}
+
+				return;
+			}
+
+			node = childNode;
+		}
+	}
+
+	/**
+	 * Removes the provided point instance from this tree.
+	 * 
+	 * @return true if the point was included in this tree, false otherwise.
+	 * @throws ImmutableKdTreeException
+	 *             if this tree is a snapshot of a {@link VersionedKdTree}.
+	 */
+	public boolean remove(final KdPoint<T> point) throws KdTreeException {
+		checkMutable();
+
+		final KdNode<T> node = findNode(point);
+
+		if (node == null) {
+			return false;
+		}
+
+		node.markRemoved();
+
+		size--;
+		modificationCount++;
+
+		// Get rid of the removed nodes once they make up most of the tree.
+
+		if (nodeCount - size > nodeCount / 2) {
+			rebuild(rootNode);
+		}
+
+		return true;
 	}
 
 	/**
@@ -55,88 +345,175 @@ public class KdTree<T extends Number & Comparable<T>> {
 		return depth % dimensionCount;
 	}
 
-	private KdNode<T> buildNode(final KdNode<T> parentNode, final List<KdPoint<T>> points, final int depth) {
-		if (points.isEmpty()) {
-			return null;
+	public KdTreeBuildStrategy getBuildStrategy() {
+		return buildStrategy;
+	}
+
+	KdAxisSelector getAxisSelector() {
+		return axisSelector;
+	}
+
+	/**
+	 * Returns whether this tree is a snapshot published by a
+	 * {@link VersionedKdTree}, which must not be modified anymore.
+	 */
+	public boolean isImmutable() {
+		return immutable;
+	}
+
+	void makeImmutable() {
+		this.immutable = true;
+	}
+
+	private void checkMutable() {
+		if (immutable) {
+			throw new ImmutableKdTreeException();
 		}
+	}
 
-		final int axisIndex = getAxisIndex(depth);
+	/**
+	 * Returns whether the provided point instance is included in this tree.
+	 */
+	boolean contains(final KdPoint<T> point) {
+		return findNode(point) != null;
+	}
 
-		final KdPoint<T> medianPoint = getFastApproximatedMedianPoint(points, axisIndex);
+	/**
+	 * Returns the node of the provided point instance, or null if it is not
+	 * included in this tree.
+	 */
+	private KdNode<T> findNode(final KdPoint<T> point) {
+		KdNode<T> node = rootNode;
 
-		// Create node and construct subtrees.
+		while (node != null && (node.point != point || node.isRemoved())) {
+			node = isRightOf(point, node) ? node.getRightNode() : node.getLeftNode();
+		}
 
-		final KdNode<T> newNode = new KdNode<>(medianPoint, depth, axisIndex);
+		return node;
+	}
+
+	private boolean isRightOf(final KdPoint<T> point, final KdNode<T> node) {
+		return point.getAxisValue(node.axisIndex).compareTo(node.point.getAxisValue(node.axisIndex)) > 0;
+	}
+
+	/**
+	 * Returns the maximum depth of any node in a tree with the current number of
+	 * nodes, as long as no subtree is unbalanced.
+	 */
+	private int getMaxBalancedDepth() {
+		return (int) (Math.log(nodeCount) / Math.log(1 / REBALANCE_ALPHA));
+	}
 
-		// Assume both sides have approximately half the number of points.
+	/**
+	 * Rebuilds the lowest ancestor of the provided node, whose subtree on the side
+	 * of the node contains too large a share of its nodes.
+	 */
+	private void rebalanceAbove(final KdNode<T> node) {
+		KdNode<T> childNode = node;
+		KdNode<T> parentNode = node.getParentNode();
 
-		final List<KdPoint<T>> leftOfMedian = new ArrayList<>(points.size() / 2);
-		final List<KdPoint<T>> rightOfMedian = new ArrayList<>(points.size() / 2);
+		while (parentNode != null) {
+			if (childNode.getSubtreeSize() > REBALANCE_ALPHA * parentNode.getSubtreeSize()) {
+				rebuild(parentNode);
 
-		for (final KdPoint<T> point : points) {
-			if (point == medianPoint) {
-				continue;
+				return;
 			}
 
-			if (point.getAxisValue(axisIndex).compareTo(medianPoint.getAxisValue(axisIndex)) > 0) {
-				rightOfMedian.add(point);
-			} else {
-				leftOfMedian.add(point);
-			}
+			childNode = parentNode;
+			parentNode = parentNode.getParentNode();
+		}
+	}
+
+	/**
+	 * Replaces the subtree of the provided node with a balanced subtree of its
+	 * remaining points, dropping the nodes of removed points.
+	 */
+	private void rebuild(final KdNode<T> node) {
+		final KdPoint<T>[] points = newPointArray(node.getSubtreeSize());
+
+		final int pointCount = collectPoints(node, points, 0);
+
+		final KdNode<T> parentNode = node.getParentNode();
+		final KdNode<T> newNode = rebuildBuilder.buildNode(parentNode, points, 0, pointCount, node.depth);
+
+		if (parentNode == null) {
+			rootNode = newNode;
+		} else if (parentNode.getLeftNode() == node) {
+			parentNode.setLeftNode(newNode);
+		} else {
+			parentNode.setRightNode(newNode);
 		}
 
-		final KdNode<T> leftNode = buildNode(newNode, leftOfMedian, depth + 1);
-		final KdNode<T> rightNode = buildNode(newNode, rightOfMedian, depth + 1);
+		// Update the node counts for the dropped nodes.
+
+		final int droppedNodeCount = node.getSubtreeSize() - pointCount;
 
-		newNode.setLeftNode(leftNode);
-		newNode.setRightNode(rightNode);
-		newNode.setParentNode(parentNode);
+		nodeCount -= droppedNodeCount;
 
-		return newNode;
+		for (KdNode<T> ancestor = parentNode; ancestor != null; ancestor = ancestor.getParentNode()) {
+			ancestor.setSubtreeSize(ancestor.getSubtreeSize() - droppedNodeCount);
+		}
 	}
 
 	/**
-	 * Uses a small subset of the points to choose a median point approximating the
-	 * median of all provided points.
+	 * Returns the points of this tree, which were not removed, in no particular
+	 * order.
 	 */
-	private KdPoint<T> getFastApproximatedMedianPoint(final List<KdPoint<T>> points, final int axisIndex) {
-		final int numberOfElements = (int) Math.max(points.size() * MEDIAN_APPROXIMATION_POINTS_PERCENTAGE, 1);
-
-		final List<KdPoint<T>> subset = pickRandomSubset(points, numberOfElements);
+	KdPoint<T>[] getPoints() {
+		final KdPoint<T>[] points = newPointArray(size);
 
-		sortByAxisIndex(subset, axisIndex);
+		collectPoints(rootNode, points, 0);
 
-		return subset.get(subset.size() / 2);
+		return points;
 	}
 
-	private final void sortByAxisIndex(final List<KdPoint<T>> points, final int axisIndex) {
-		points.sort((point1, point2) -> {
-			return point1.getAxisValue(axisIndex).compareTo(point2.getAxisValue(axisIndex));
-		});
-	};
-
 	/**
-	 * <p>
-	 * Picks a random subset of points from the given list.
-	 * </p>
+	 * Stores the points of all nodes in the provided subtree, which were not
+	 * removed, in the array, starting at the given index.
 	 * 
-	 * <b>Important:</b>
-	 * 
-	 * <p>
-	 * This method uses a simple select-one-of-N approach to choose each random
-	 * point. This may result in points being included multiple times in the
-	 * returned list.
-	 * </p>
+	 * @return the index after the last stored point.
 	 */
-	private List<KdPoint<T>> pickRandomSubset(final List<KdPoint<T>> points, final int numberOfElements) {
-		final List<KdPoint<T>> subset = new ArrayList<>(numberOfElements);
+	private int collectPoints(final KdNode<T> node, final KdPoint<T>[] points, int index) {
+		if (node == null) {
+			return index;
+		}
+
+		if (!node.isRemoved()) {
+			points[index++] = node.point;
+		}
+
+		index = collectPoints(node.getLeftNode(), points, index);
 
-		for (int i = 0; i < numberOfElements; i++) {
-			final int randomIndex = random.nextInt(numberOfElements);
+		return collectPoints(node.getRightNode(), points, index);
+	}
+
+	private KdNode<T> copyNode(final KdNode<T> parentNode, final KdNode<T> sourceNode) {
+		if (sourceNode == null) {
+			return null;
+		}
+
+		final KdNode<T> node = new KdNode<>(sourceNode.point, sourceNode.depth, sourceNode.axisIndex);
+
+		node.setParentNode(parentNode);
+		node.setSubtreeSize(sourceNode.getSubtreeSize());
 
-			subset.add(points.get(randomIndex));
+		if (sourceNode.isRemoved()) {
+			node.markRemoved();
 		}
 
-		return subset;
+		node.setLeftNode(copyNode(node, sourceNode.getLeftNode()));
+		node.setRightNode(copyNode(node, sourceNode.getRightNode()));
+
+		return node;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T extends Number & Comparable<T>> KdPoint<T>[] newPointArray(final int length) {
+		return (KdPoint<T>[]) new KdPoint<?>[length];
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T extends Number & Comparable<T>> KdPoint<T>[] toArray(final List<KdPoint<T>> points) {
+		return (KdPoint<T>[]) points.toArray(new KdPoint<?>[points.size()]);
 	}
 }
@@ -0,0 +1,37 @@
+package de.jilocasin.nearestneighbour.kdtree;
+
+/**
+ * Defines how the split axis of each node is chosen while building a
+ * {@link KdTree}.
+ */
+public enum KdTreeAxisStrategy {
+	/**
+	 * Cycles through the axes by the depth of the node, see
+	 * {@link KdTree#getAxisIndex(int)}. This needs no additional pass over the
+	 * points, but wastes splits on axes with little spread.
+	 */
+	CYCLIC(KdAxisSelector.CYCLIC),
+
+	/**
+	 * Splits each node on the axis with the largest difference between the
+	 * minimum and maximum value of its points. Keeps the cells close to cubes on
+	 * data with very different ranges per axis.
+	 */
+	MAX_SPREAD(KdAxisSelector.MAX_SPREAD),
+
+	/**
+	 * Splits each node on the axis with the highest variance of its points. Less
+	 * sensitive to single outliers than {@link #MAX_SPREAD}.
+	 */
+	MAX_VARIANCE(KdAxisSelector.MAX_VARIANCE);
+
+	private final KdAxisSelector axisSelector;
+
+	KdTreeAxisStrategy(final KdAxisSelector axisSelector) {
+		this.axisSelector = axisSelector;
+	}
+
+	KdAxisSelector getAxisSelector() {
+		return axisSelector;
+	}
+}
@@ -0,0 +1,31 @@
+package de.jilocasin.nearestneighbour.kdtree;
+
+/**
+ * Defines how a {@link KdTree} chooses the point of each node during setup.
+ * Regardless of the strategy, all points in the left subtree of a node are less
+ * than or equal to the node point on its axis, and all points in the right
+ * subtree are greater.
+ */
+public enum KdTreeBuildStrategy {
+	/**
+	 * Uses the median of a small random sample of the points as node point. This
+	 * is the fastest strategy, but may result in slightly unbalanced trees.
+	 */
+	APPROXIMATE_MEDIAN,
+
+	/**
+	 * Uses the exact median of the points as node point. Setup takes O(n log n)
+	 * time. The tree is only balanced if the points have distinct values on each
+	 * axis: all points equal to the median move into the left subtree, so many
+	 * duplicate values make the tree unbalanced, and points sharing the same
+	 * value on every axis form a chain with one node per level.
+	 */
+	EXACT_MEDIAN,
+
+	/**
+	 * Uses the point closest to the middle of the value range on the node axis as
+	 * node point. This avoids long and thin cells for clustered data, but does not
+	 * guarantee a balanced tree.
+	 */
+	SLIDING_MIDPOINT
+}
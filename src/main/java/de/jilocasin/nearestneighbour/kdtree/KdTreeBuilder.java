@@ -0,0 +1,382 @@
+package de.jilocasin.nearestneighbour.kdtree;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * <p>
+ * Builds the nodes of a {@link KdTree} from an array of points.
+ * </p>
+ * 
+ * <p>
+ * The points of each subtree are kept in one range of the array. For each node,
+ * the range is partitioned in place, so the points of the left subtree end up
+ * before the node point and the points of the right subtree after it. No lists
+ * are copied for the individual tree levels.
+ * </p>
+ */
+class KdTreeBuilder<T extends Number & Comparable<T>> {
+	/**
+	 * Use 1% of all relevant points to choose a median approximation.
+	 */
+	private static final float MEDIAN_APPROXIMATION_POINTS_PERCENTAGE = 0.01f;
+
+	/**
+	 * Seed for the random sample used by the median approximation.
+	 */
+	private static final long MEDIAN_APPROXIMATION_SEED = 0;
+
+	/**
+	 * Subtrees with fewer points than this are built sequentially by a single task
+	 * when building in parallel.
+	 */
+	private static final int PARALLEL_BUILD_THRESHOLD = 8_192;
+
+	private final KdTree<T> tree;
+	private final KdTreeBuildStrategy buildStrategy;
+
+	KdTreeBuilder(final KdTree<T> tree, final KdTreeBuildStrategy buildStrategy) {
+		this.tree = tree;
+		this.buildStrategy = buildStrategy;
+	}
+
+	/**
+	 * Builds the subtree for the points in the given range of the array. The range
+	 * will be reordered.
+	 * 
+	 * @return the root node of the subtree, or null if the range is empty.
+	 */
+	KdNode<T> buildNode(final KdNode<T> parentNode, final KdPoint<T>[] points, final int from, final int to,
+	        final int depth) {
+		if (from >= to) {
+			return null;
+		}
+
+		final int axisIndex = tree.getAxisSelector().selectAxis(points, from, to, depth);
+
+		final int nodeIndex = partition(points, from, to, axisIndex);
+
+		// Create node and construct subtrees.
+
+		final KdNode<T> newNode = new KdNode<>(points[nodeIndex], depth, axisIndex);
+
+		newNode.setSubtreeSize(to - from);
+
+		final KdNode<T> leftNode = buildNode(newNode, points, from, nodeIndex, depth + 1);
+		final KdNode<T> rightNode = buildNode(newNode, points, nodeIndex + 1, to, depth + 1);
+
+		newNode.setLeftNode(leftNode);
+		newNode.setRightNode(rightNode);
+		newNode.setParentNode(parentNode);
+
+		return newNode;
+	}
+
+	/**
+	 * Builds the subtree for the points in the given range of the array just like
+	 * {@link #buildNode}, but splits the work for larger subtrees into tasks run by
+	 * the given pool. The result is the same as for a sequential build.
+	 */
+	KdNode<T> buildNodeInParallel(final ForkJoinPool pool, final KdNode<T> parentNode, final KdPoint<T>[] points,
+	        final int from, final int to, final int depth) {
+		return pool.invoke(new BuildNodeTask(parentNode, points, from, to, depth));
+	}
+
+	/**
+	 * Builds one subtree. The range of each task is only modified by itself and its
+	 * subtasks, so all tasks can share the same array.
+	 */
+	private final class BuildNodeTask extends RecursiveTask<KdNode<T>> {
+		private static final long serialVersionUID = -2937508465213542076L;
+
+		private final KdNode<T> parentNode;
+		private final KdPoint<T>[] points;
+		private final int from;
+		private final int to;
+		private final int depth;
+
+		BuildNodeTask(final KdNode<T> parentNode, final KdPoint<T>[] points, final int from, final int to,
+		        final int depth) {
+			this.parentNode = parentNode;
+			this.points = points;
+			this.from = from;
+			this.to = to;
+			this.depth = depth;
+		}
+
+		@Override
+		protected KdNode<T> compute() {
+			if (to - from < PARALLEL_BUILD_THRESHOLD) {
+				return buildNode(parentNode, points, from, to, depth);
+			}
+
+			final int axisIndex = tree.getAxisSelector().selectAxis(points, from, to, depth);
+
+			final int nodeIndex = partition(points, from, to, axisIndex);
+
+			final KdNode<T> newNode = new KdNode<>(points[nodeIndex], depth, axisIndex);
+
+			newNode.setSubtreeSize(to - from);
+
+			// Build the left subtree in a forked task while this thread continues with the
+			// right one.
+
+			final BuildNodeTask leftTask = new BuildNodeTask(newNode, points, from, nodeIndex, depth + 1);
+			final BuildNodeTask rightTask = new BuildNodeTask(newNode, points, nodeIndex + 1, to, depth + 1);
+
+			leftTask.fork();
+
+			final KdNode<T> rightNode = rightTask.compute();
+			final KdNode<T> leftNode = leftTask.join();
+
+			newNode.setLeftNode(leftNode);
+			newNode.setRightNode(rightNode);
+			newNode.setParentNode(parentNode);
+
+			return newNode;
+		}
+	}
+
+	/**
+	 * Chooses the node point for the given range according to the build strategy
+	 * and reorders the range around it.
+	 * 
+	 * @return the index of the node point. All points before it are less than or
+	 *         equal to it on the given axis, all points after it are greater.
+	 */
+	int partition(final KdPoint<T>[] points, final int from, final int to, final int axisIndex) {
+		switch (buildStrategy) {
+		case EXACT_MEDIAN:
+			return partitionAtExactMedian(points, from, to, axisIndex);
+		case SLIDING_MIDPOINT:
+			return partitionAtSlidingMidpoint(points, from, to, axisIndex);
+		case APPROXIMATE_MEDIAN:
+		default:
+			return partitionAtApproximatedMedian(points, from, to, axisIndex);
+		}
+	}
+
+	/**
+	 * Uses a small random subset of the points to choose a median point
+	 * approximating the median of all provided points.
+	 */
+	private int partitionAtApproximatedMedian(final KdPoint<T>[] points, final int from, final int to,
+	        final int axisIndex) {
+		final int size = to - from;
+		final int numberOfElements = (int) Math.max(size * MEDIAN_APPROXIMATION_POINTS_PERCENTAGE, 1);
+
+		// Move a random subset to the start of the range, then select its median.
+
+		pickRandomSubset(points, from, to, numberOfElements);
+
+		final int medianIndex = from + numberOfElements / 2;
+
+		selectNth(points, from, from + numberOfElements - 1, medianIndex, axisIndex);
+
+		return partitionAround(points, from, to, medianIndex, axisIndex);
+	}
+
+	/**
+	 * Selects the exact median point, then moves all points with the same value on
+	 * the given axis to its left. With many equal values, the node point is
+	 * therefore moved towards the end of the range.
+	 */
+	private int partitionAtExactMedian(final KdPoint<T>[] points, final int from, final int to,
+	        final int axisIndex) {
+		final int medianIndex = (from + to) >>> 1;
+
+		selectNth(points, from, to - 1, medianIndex, axisIndex);
+
+		// All points before the median are less than or equal to it, all points after
+		// it are greater than or equal to it. Move the equal ones behind it to its left
+		// and put the median point at the end of them.
+
+		final T medianValue = points[medianIndex].getAxisValue(axisIndex);
+
+		int equalEnd = medianIndex + 1;
+
+		for (int i = medianIndex + 1; i < to; i++) {
+			if (points[i].getAxisValue(axisIndex).compareTo(medianValue) == 0) {
+				swap(points, i, equalEnd++);
+			}
+		}
+
+		swap(points, medianIndex, equalEnd - 1);
+
+		return equalEnd - 1;
+	}
+
+	/**
+	 * Uses the point with the largest value not greater than the middle of the
+	 * value range on the given axis.
+	 */
+	private int partitionAtSlidingMidpoint(final KdPoint<T>[] points, final int from, final int to,
+	        final int axisIndex) {
+		double minValue = Double.POSITIVE_INFINITY;
+		double maxValue = Double.NEGATIVE_INFINITY;
+
+		for (int i = from; i < to; i++) {
+			final double value = points[i].getAxisValue(axisIndex).doubleValue();
+
+			minValue = Math.min(minValue, value);
+			maxValue = Math.max(maxValue, value);
+		}
+
+		final double midpoint = minValue + (maxValue - minValue) / 2;
+
+		// Slide the split to the nearest point on the lower side, so it is never empty.
+
+		int nodeIndex = from;
+
+		for (int i = from + 1; i < to; i++) {
+			final double value = points[i].getAxisValue(axisIndex).doubleValue();
+
+			if (value <= midpoint && value > points[nodeIndex].getAxisValue(axisIndex).doubleValue()) {
+				nodeIndex = i;
+			}
+		}
+
+		return partitionAround(points, from, to, nodeIndex, axisIndex);
+	}
+
+	/**
+	 * Reorders the range so all points less than or equal to the point at the
+	 * given index come first, followed by that point and then all greater points.
+	 * 
+	 * @return the new index of the node point.
+	 */
+	private int partitionAround(final KdPoint<T>[] points, final int from, final int to, final int nodeIndex,
+	        final int axisIndex) {
+		swap(points, from, nodeIndex);
+
+		final T nodeValue = points[from].getAxisValue(axisIndex);
+
+		int lessOrEqualEnd = from + 1;
+
+		for (int i = from + 1; i < to; i++) {
+			if (points[i].getAxisValue(axisIndex).compareTo(nodeValue) <= 0) {
+				swap(points, i, lessOrEqualEnd++);
+			}
+		}
+
+		swap(points, from, lessOrEqualEnd - 1);
+
+		return lessOrEqualEnd - 1;
+	}
+
+	/**
+	 * <p>
+	 * Moves a random subset of the given size to the start of the range, using a
+	 * partial Fisher-Yates shuffle.
+	 * </p>
+	 * 
+	 * <p>
+	 * The random values only depend on the range, so the same points always result
+	 * in the same tree, no matter in which order the subtrees are built.
+	 * </p>
+	 */
+	private void pickRandomSubset(final KdPoint<T>[] points, final int from, final int to,
+	        final int numberOfElements) {
+		final long rangeSeed = mix(MEDIAN_APPROXIMATION_SEED + from * 0x9E3779B97F4A7C15L + to);
+
+		for (int i = 0; i < numberOfElements; i++) {
+			final long random = mix(rangeSeed + i) >>> 1;
+			final int randomIndex = from + i + (int) (random % (to - from - i));
+
+			swap(points, from + i, randomIndex);
+		}
+	}
+
+	/**
+	 * <p>
+	 * Partially sorts the points between <code>left</code> and <code>right</code>
+	 * (both inclusive), so the point at index <code>n</code> is the one that would
+	 * be there if the range was fully sorted by the given axis. All points before
+	 * it are less than or equal to it, all points after it are greater than or
+	 * equal to it.
+	 * </p>
+	 * 
+	 * <p>
+	 * This is a quickselect using the median of three as pivot. If the partitions
+	 * keep being unbalanced, the remaining range is sorted instead, which limits
+	 * the worst case to O(n log n).
+	 * </p>
+	 */
+	private void selectNth(final KdPoint<T>[] points, int left, int right, final int n, final int axisIndex) {
+		int remainingPartitions = 2 * (32 - Integer.numberOfLeadingZeros(right - left + 1));
+
+		while (right > left) {
+			if (remainingPartitions-- == 0) {
+				final Comparator<KdPoint<T>> comparator = (point1, point2) -> point1.getAxisValue(axisIndex)
+				        .compareTo(point2.getAxisValue(axisIndex));
+
+				Arrays.sort(points, left, right + 1, comparator);
+
+				return;
+			}
+
+			final int middle = (left + right) >>> 1;
+
+			final T pivot = medianOfThree(points[left].getAxisValue(axisIndex),
+			        points[middle].getAxisValue(axisIndex), points[right].getAxisValue(axisIndex));
+
+			int i = left;
+			int j = right;
+
+			while (i <= j) {
+				while (points[i].getAxisValue(axisIndex).compareTo(pivot) < 0) {
+					i++;
+				}
+
+				while (points[j].getAxisValue(axisIndex).compareTo(pivot) > 0) {
+					j--;
+				}
+
+				if (i <= j) {
+					swap(points, i, j);
+
+					i++;
+					j--;
+				}
+			}
+
+			// Continue with the part containing the requested index.
+
+			if (n <= j) {
+				right = j;
+			} else if (n >= i) {
+				left = i;
+			} else {
+				return;
+			}
+		}
+	}
+
+	private T medianOfThree(final T a, final T b, final T c) {
+		if (a.compareTo(b) < 0) {
+			return b.compareTo(c) < 0 ? b : (a.compareTo(c) < 0 ? c : a);
+		} else {
+			return a.compareTo(c) < 0 ? a : (b.compareTo(c) < 0 ? c : b);
+		}
+	}
+
+	private static <T extends Number & Comparable<T>> void swap(final KdPoint<T>[] points, final int i, final int j) {
+		final KdPoint<T> temp = points[i];
+
+		points[i] = points[j];
+		points[j] = temp;
+	}
+
+	/**
+	 * Scrambles the bits of the given value (the SplitMix64 finalizer), to derive
+	 * pseudo random numbers from it.
+	 */
+	static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+
+		return z ^ (z >>> 31);
+	}
+}
@@ -0,0 +1,156 @@
+package de.jilocasin.nearestneighbour.kdtree;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * A report of the shape of a {@link KdTree} at the time it was created, see
+ * {@link KdTree#getShape()}.
+ * </p>
+ *
+ * <p>
+ * The depth of a node is the number of nodes above it, so the root node has a
+ * depth of 0. A search moves down at least to the depth of a leaf before it
+ * finds its first candidate, so deep leaves make searches slow even if most of
+ * the tree is balanced.
+ * </p>
+ */
+public final class KdTreeShape {
+	private final int pointCount;
+	private final int nodeCount;
+	private final int leafCount;
+
+	/**
+	 * The number of nodes at each depth.
+	 */
+	private final int[] depthHistogram;
+
+	private final long leafDepthSum;
+
+	KdTreeShape(final KdNode<?> rootNode, final int pointCount) {
+		this.pointCount = pointCount;
+
+		final Counter counter = new Counter();
+
+		countNodes(rootNode, 0, counter);
+
+		this.nodeCount = counter.nodeCount;
+		this.leafCount = counter.leafCount;
+		this.depthHistogram = Arrays.copyOf(counter.depthHistogram, counter.height + 1);
+		this.leafDepthSum = counter.leafDepthSum;
+	}
+
+	/**
+	 * Returns the number of points in the tree.
+	 */
+	public int getPointCount() {
+		return pointCount;
+	}
+
+	/**
+	 * Returns the number of nodes in the tree, including the nodes of removed
+	 * points.
+	 */
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	/**
+	 * Returns the number of nodes of removed points, which are kept until the
+	 * tree is rebuilt.
+	 */
+	public int getRemovedNodeCount() {
+		return nodeCount - pointCount;
+	}
+
+	public int getLeafCount() {
+		return leafCount;
+	}
+
+	/**
+	 * Returns the depth of the deepest node, or -1 if the tree is empty.
+	 */
+	public int getHeight() {
+		return depthHistogram.length - 1;
+	}
+
+	/**
+	 * Returns the number of nodes at each depth, starting with the root node at
+	 * index 0.
+	 */
+	public int[] getDepthHistogram() {
+		return depthHistogram.clone();
+	}
+
+	/**
+	 * Returns the average depth of the leaves, or 0 if the tree is empty.
+	 */
+	public double getAverageLeafDepth() {
+		return leafCount == 0 ? 0 : (double) leafDepthSum / leafCount;
+	}
+
+	/**
+	 * Returns the height of the tree divided by the height of a perfectly
+	 * balanced tree with the same number of nodes, counting the root level for
+	 * both. A value of 1 means the tree is as flat as possible, a value of 2 means
+	 * searches may have to move down twice as many levels.
+	 */
+	public double getBalanceFactor() {
+		if (nodeCount == 0) {
+			return 1;
+		}
+
+		final int balancedHeight = 31 - Integer.numberOfLeadingZeros(nodeCount);
+
+		return (double) (getHeight() + 1) / (balancedHeight + 1);
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder builder = new StringBuilder();
+
+		builder.append("points: ").append(pointCount);
+		builder.append(", nodes: ").append(nodeCount);
+		builder.append(", removed nodes: ").append(getRemovedNodeCount());
+		builder.append(", leaves: ").append(leafCount);
+		builder.append(", height: ").append(getHeight());
+		builder.append(String.format(", average leaf depth: %.2f", getAverageLeafDepth()));
+		builder.append(String.format(", balance factor: %.2f", getBalanceFactor()));
+		builder.append(", nodes per depth: ").append(Arrays.toString(depthHistogram));
+
+		return builder.toString();
+	}
+
+	private static void countNodes(final KdNode<?> node, final int depth, final Counter counter) {
+		if (node == null) {
+			return;
+		}
+
+		if (depth == counter.depthHistogram.length) {
+			counter.depthHistogram = Arrays.copyOf(counter.depthHistogram, depth * 2);
+		}
+
+		counter.nodeCount++;
+		counter.depthHistogram[depth]++;
+		counter.height = Math.max(counter.height, depth);
+
+		if (!node.hasChildren()) {
+			counter.leafCount++;
+			counter.leafDepthSum += depth;
+
+			return;
+		}
+
+		countNodes(node.getLeftNode(), depth + 1, counter);
+		countNodes(node.getRightNode(), depth + 1, counter);
+	}
+
+	private static final class Counter {
+		private int nodeCount;
+		private int leafCount;
+		private int height = -1;
+		private long leafDepthSum;
+
+		private int[] depthHistogram = new int[32];
+	}
+}
@@ -0,0 +1,73 @@
+package de.jilocasin.nearestneighbour.kdtree;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Splits each node on an axis chosen at random among the axes with the highest
+ * variance of its points, like the randomized k-d trees of FLANN. Trees built
+ * with different seeds split differently, so their searches complement each
+ * other in a {@link KdForest}.
+ * </p>
+ * 
+ * <p>
+ * The variance is estimated from an evenly spaced sample of the points. The
+ * random choice only depends on the seed and the range, so the same points
+ * always result in the same tree, no matter in which order the subtrees are
+ * built.
+ * </p>
+ */
+final class RandomizedAxisSelector implements KdAxisSelector {
+	/**
+	 * The number of highest variance axes to choose from.
+	 */
+	static final int TOP_AXIS_COUNT = 5;
+
+	/**
+	 * The maximum number of points used to estimate the variance of each axis.
+	 */
+	private static final int VARIANCE_SAMPLE_SIZE = 100;
+
+	private final long seed;
+
+	RandomizedAxisSelector(final long seed) {
+		this.seed = seed;
+	}
+
+	@Override
+	public <T extends Number & Comparable<T>> int selectAxis(final KdPoint<T>[] points, final int from, final int to,
+	        final int depth) {
+		final int dimensionCount = points[from].getDimensions();
+		final int topAxisCount = Math.min(TOP_AXIS_COUNT, dimensionCount);
+		final int step = Math.max((to - from) / VARIANCE_SAMPLE_SIZE, 1);
+
+		// Keep the highest variances in descending order, using insertion sort.
+
+		final int[] topAxes = new int[topAxisCount];
+		final double[] topVariances = new double[topAxisCount];
+
+		Arrays.fill(topVariances, Double.NEGATIVE_INFINITY);
+
+		for (int axisIndex = 0; axisIndex < dimensionCount; axisIndex++) {
+			final double variance = KdAxisSelector.getVariance(points, from, to, axisIndex, step);
+
+			int i = topAxisCount - 1;
+
+			if (variance <= topVariances[i]) {
+				continue;
+			}
+
+			for (; i > 0 && variance > topVariances[i - 1]; i--) {
+				topAxes[i] = topAxes[i - 1];
+				topVariances[i] = topVariances[i - 1];
+			}
+
+			topAxes[i] = axisIndex;
+			topVariances[i] = variance;
+		}
+
+		final long random = KdTreeBuilder.mix(seed + from * 0x9E3779B97F4A7C15L + to) >>> 1;
+
+		return topAxes[(int) (random % topAxisCount)];
+	}
+}
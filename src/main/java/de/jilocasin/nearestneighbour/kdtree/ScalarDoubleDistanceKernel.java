@@ -0,0 +1,24 @@
+package de.jilocasin.nearestneighbour.kdtree;
+
+/**
+ * Computes squared distances one axis value after the other. Works on any JVM.
+ */
+public final class ScalarDoubleDistanceKernel implements DoubleDistanceKernel {
+	@Override
+	public void computeDistancesSquared(final double[] coordinates, final int offset, final int pointCount,
+	        final int dimensionCount, final double[] target, final double[] distancesSquared) {
+		for (int i = 0; i < pointCount; i++) {
+			final int pointOffset = offset + i * dimensionCount;
+
+			double distanceSquared = 0;
+
+			for (int axisIndex = 0; axisIndex < dimensionCount; axisIndex++) {
+				final double delta = coordinates[pointOffset + axisIndex] - target[axisIndex];
+
+				distanceSquared += (delta * delta);
+			}
+
+			distancesSquared[i] = distanceSquared;
+		}
+	}
+}
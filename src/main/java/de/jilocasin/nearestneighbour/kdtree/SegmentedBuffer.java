@@ -0,0 +1,134 @@
+package de.jilocasin.nearestneighbour.kdtree;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * <p>
+ * A sequence of byte buffers of equal, power of two size, addressed by a
+ * <code>long</code> byte offset. A single buffer can only hold up to 2 GB, so
+ * larger trees have to be split.
+ * </p>
+ *
+ * <p>
+ * Values are never split across two buffers, as long as they are stored at an
+ * offset which is a multiple of their size.
+ * </p>
+ *
+ * <p>
+ * Direct and mapped segments can be released with {@link #release()} instead
+ * of waiting for the garbage collector. This frees the underlying memory
+ * immediately, so the buffer must not be accessed by any thread afterwards.
+ * </p>
+ */
+final class SegmentedBuffer {
+	/**
+	 * The default segment size of 1 GB.
+	 */
+	static final int DEFAULT_SEGMENT_SHIFT = 30;
+
+	/**
+	 * <code>sun.misc.Unsafe.invokeCleaner</code>, which is only available on JDK 9
+	 * and newer. On older JVMs, released segments are freed by the garbage
+	 * collector.
+	 */
+	private static final Method INVOKE_CLEANER;
+	private static final Object UNSAFE;
+
+	static {
+		Method invokeCleaner = null;
+		Object unsafe = null;
+
+		try {
+			final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			final Field unsafeField = unsafeClass.getDeclaredField("theUnsafe");
+
+			unsafeField.setAccessible(true);
+
+			invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+			unsafe = unsafeField.get(null);
+		} catch (final ReflectiveOperationException | RuntimeException e) {
+			invokeCleaner = null;
+			unsafe = null;
+		}
+
+		INVOKE_CLEANER = invokeCleaner;
+		UNSAFE = unsafe;
+	}
+
+	private final ByteBuffer[] segments;
+	private final int shift;
+	private final long mask;
+
+	SegmentedBuffer(final ByteBuffer[] segments, final int shift) {
+		this.segments = segments;
+		this.shift = shift;
+		this.mask = (1L << shift) - 1;
+	}
+
+	double getDouble(final long byteOffset) {
+		return segments[(int) (byteOffset >>> shift)].getDouble((int) (byteOffset & mask));
+	}
+
+	int getInt(final long byteOffset) {
+		return segments[(int) (byteOffset >>> shift)].getInt((int) (byteOffset & mask));
+	}
+
+	void putDouble(final long byteOffset, final double value) {
+		segments[(int) (byteOffset >>> shift)].putDouble((int) (byteOffset & mask), value);
+	}
+
+	void putInt(final long byteOffset, final int value) {
+		segments[(int) (byteOffset >>> shift)].putInt((int) (byteOffset & mask), value);
+	}
+
+	ByteBuffer[] getSegments() {
+		return segments;
+	}
+
+	/**
+	 * Frees the memory of all direct or mapped segments. Any later access throws a
+	 * {@link NullPointerException}, but accesses running concurrently to this call
+	 * may read freed memory.
+	 */
+	void release() {
+		for (int i = 0; i < segments.length; i++) {
+			final ByteBuffer segment = segments[i];
+
+			segments[i] = null;
+
+			if (segment != null && segment.isDirect() && INVOKE_CLEANER != null) {
+				try {
+					INVOKE_CLEANER.invoke(UNSAFE, segment);
+				} catch (final ReflectiveOperationException | RuntimeException e) {
+					// Leave the segment to the garbage collector.
+				}
+			}
+		}
+	}
+
+	/**
+	 * Allocates a new buffer of direct segments with the provided total length.
+	 * Only the last segment may be smaller than the segment size.
+	 */
+	static SegmentedBuffer allocateDirect(final long length, final int shift) {
+		final ByteBuffer[] segments = new ByteBuffer[getSegmentCount(length, shift)];
+
+		for (int i = 0; i < segments.length; i++) {
+			final long size = Math.min(1L << shift, length - ((long) i << shift));
+
+			segments[i] = ByteBuffer.allocateDirect((int) size).order(ByteOrder.LITTLE_ENDIAN);
+		}
+
+		return new SegmentedBuffer(segments, shift);
+	}
+
+	/**
+	 * Returns the number of segments needed to hold the provided number of bytes.
+	 */
+	static int getSegmentCount(final long length, final int shift) {
+		return (int) ((length + (1L << shift) - 1) >>> shift);
+	}
+}
@@ -0,0 +1,152 @@
+package de.jilocasin.nearestneighbour.kdtree;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import de.jilocasin.nearestneighbour.kdtree.exception.InvalidKdDimensionCountException;
+import de.jilocasin.nearestneighbour.kdtree.exception.InvalidKdPointCountException;
+import de.jilocasin.nearestneighbour.kdtree.exception.KdTreeException;
+
+/**
+ * <p>
+ * A k-d tree that can be searched by any number of threads while points are
+ * added or removed.
+ * </p>
+ *
+ * <p>
+ * Readers get the current state as an immutable {@link KdTree} snapshot through
+ * {@link #getSnapshot()}, which never blocks. Writers copy the current
+ * snapshot, apply their changes to the copy and then publish it as the new
+ * snapshot. Searches on an older snapshot are not affected, they just don't see
+ * the changes. Since every update copies the whole tree, changes should be
+ * applied in batches using {@link #update(Consumer)}.
+ * </p>
+ *
+ * <p>
+ * Writers are serialized, so concurrent updates never get lost.
+ * </p>
+ */
+public class VersionedKdTree<T extends Number & Comparable<T>> {
+	private final AtomicReference<KdTree<T>> snapshot;
+
+	/**
+	 * Used to serialize the writers. Readers never take this lock.
+	 */
+	private final Object writeLock = new Object();
+
+	/**
+	 * Creates a new VersionedKdTree instance with an initial snapshot based on the
+	 * provided data points.
+	 *
+	 * @throws InvalidKdPointCountException
+	 *             if the provided list of points was null or did not contain at
+	 *             least one point.
+	 */
+	public VersionedKdTree(final List<KdPoint<T>> points) throws KdTreeException {
+		this(new KdTree<>(points));
+	}
+
+	/**
+	 * Creates a new, empty VersionedKdTree instance for points with the given
+	 * number of dimensions.
+	 *
+	 * @throws InvalidKdDimensionCountException
+	 *             if the dimension count is not positive.
+	 */
+	public VersionedKdTree(final int dimensionCount) throws KdTreeException {
+		this(new KdTree<>(dimensionCount));
+	}
+
+	/**
+	 * Creates a new VersionedKdTree instance using a copy of the provided tree as
+	 * its initial snapshot. The provided tree is not modified.
+	 */
+	public VersionedKdTree(final KdTree<T> tree) {
+		final KdTree<T> initialSnapshot = new KdTree<>(tree);
+
+		initialSnapshot.makeImmutable();
+
+		this.snapshot = new AtomicReference<>(initialSnapshot);
+	}
+
+	/**
+	 * Returns the latest published snapshot. It will never change, so any number
+	 * of searches can run on it concurrently.
+	 */
+	public KdTree<T> getSnapshot() {
+		return snapshot.get();
+	}
+
+	/**
+	 * Adds the provided point and publishes the result as a new snapshot.
+	 *
+	 * @throws InvalidKdDimensionCountException
+	 *             if the point does not have the dimension count of this tree.
+	 */
+	public void insert(final KdPoint<T> point) throws KdTreeException {
+		update(tree -> tree.insert(point));
+	}
+
+	/**
+	 * Adds all provided points and publishes the result as a single new snapshot.
+	 *
+	 * @throws InvalidKdDimensionCountException
+	 *             if any point does not have the dimension count of this tree. No
+	 *             snapshot is published in that case.
+	 */
+	public void insertAll(final Collection<KdPoint<T>> points) throws KdTreeException {
+		update(tree -> points.forEach(tree::insert));
+	}
+
+	/**
+	 * Removes the provided point instance and publishes the result as a new
+	 * snapshot, if it was included in this tree.
+	 *
+	 * @return true if the point was included in this tree, false otherwise.
+	 */
+	public boolean remove(final KdPoint<T> point) {
+		synchronized (writeLock) {
+			// Check the current snapshot first, so missing points don't cost a copy of the
+			// whole tree.
+
+			if (!snapshot.get().contains(point)) {
+				return false;
+			}
+
+			final KdTree<T> tree = new KdTree<>(snapshot.get());
+
+			tree.remove(point);
+
+			publish(tree);
+
+			return true;
+		}
+	}
+
+	/**
+	 * Applies all changes of the provided updater to a copy of the latest snapshot
+	 * and publishes the result as a single new snapshot. The updater must not keep
+	 * a reference to the tree it is passed. If it throws an exception, no snapshot
+	 * is published.
+	 */
+	public void update(final Consumer<? super KdTree<T>> updater) {
+		synchronized (writeLock) {
+			final KdTree<T> tree = new KdTree<>(snapshot.get());
+
+			updater.accept(tree);
+
+			publish(tree);
+		}
+	}
+
+	private void publish(final KdTree<T> tree) {
+		tree.makeImmutable();
+
+		// Setting the reference makes all previous writes to the tree and its nodes
+		// visible to any thread reading the new snapshot.
+
+		snapshot.set(tree);
+	}
+}
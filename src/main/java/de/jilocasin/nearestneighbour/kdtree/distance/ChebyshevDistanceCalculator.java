@@ -0,0 +1,41 @@
+package de.jilocasin.nearestneighbour.kdtree.distance;
+
+import de.jilocasin.nearestneighbour.kdtree.KdPoint;
+
+/**
+ * Calculates the <a href="https://en.wikipedia.org/wiki/Chebyshev_distance">
+ * Chebyshev distance</a> between points, the largest absolute difference on any
+ * axis.
+ */
+public final class ChebyshevDistanceCalculator implements KdDistanceCalculator {
+	@Override
+	public <T extends Number & Comparable<T>> double getComparableDistance(final KdPoint<T> point,
+	        final KdPoint<T> otherPoint) {
+		final int dimensions = point.getDimensions();
+
+		double distance = 0;
+
+		for (int i = 0; i < dimensions; i++) {
+			distance = Math.max(distance,
+			        Math.abs(point.getAxisValue(i).doubleValue() - otherPoint.getAxisValue(i).doubleValue()));
+		}
+
+		return distance;
+	}
+
+	@Override
+	public <T extends Number & Comparable<T>> double getComparableAxisDistance(final KdPoint<T> targetPoint,
+	        final int axisIndex, final double splitValue) {
+		return Math.abs(targetPoint.getAxisValue(axisIndex).doubleValue() - splitValue);
+	}
+
+	@Override
+	public double toComparableDistance(final double distance) {
+		return distance;
+	}
+
+	@Override
+	public double fromComparableDistance(final double comparableDistance) {
+		return comparableDistance;
+	}
+}
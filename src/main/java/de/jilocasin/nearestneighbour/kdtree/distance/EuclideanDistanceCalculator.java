@@ -0,0 +1,34 @@
+package de.jilocasin.nearestneighbour.kdtree.distance;
+
+import de.jilocasin.nearestneighbour.kdtree.KdPoint;
+
+/**
+ * Calculates the <a href="https://en.wikipedia.org/wiki/Euclidean_distance">
+ * euclidean distance</a> between points. The comparable distance is the squared
+ * distance.
+ */
+public final class EuclideanDistanceCalculator implements KdDistanceCalculator {
+	@Override
+	public <T extends Number & Comparable<T>> double getComparableDistance(final KdPoint<T> point,
+	        final KdPoint<T> otherPoint) {
+		return point.getDistanceSquared(otherPoint);
+	}
+
+	@Override
+	public <T extends Number & Comparable<T>> double getComparableAxisDistance(final KdPoint<T> targetPoint,
+	        final int axisIndex, final double splitValue) {
+		final double axisDistance = targetPoint.getAxisValue(axisIndex).doubleValue() - splitValue;
+
+		return axisDistance * axisDistance;
+	}
+
+	@Override
+	public double toComparableDistance(final double distance) {
+		return distance * distance;
+	}
+
+	@Override
+	public double fromComparableDistance(final double comparableDistance) {
+		return Math.sqrt(comparableDistance);
+	}
+}
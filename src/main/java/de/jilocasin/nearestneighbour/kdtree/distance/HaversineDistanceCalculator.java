@@ -0,0 +1,141 @@
+package de.jilocasin.nearestneighbour.kdtree.distance;
+
+import de.jilocasin.nearestneighbour.kdtree.KdPoint;
+
+/**
+ * <p>
+ * Calculates the <a href="https://en.wikipedia.org/wiki/Haversine_formula">
+ * great-circle distance</a> between points on a sphere. Each point must have
+ * its latitude in degrees as first axis value and its longitude in degrees
+ * between -180 and 180 as second axis value.
+ * </p>
+ * 
+ * <p>
+ * The comparable distance is the haversine of the central angle between the
+ * points, a value between 0 and 1. Actual distances, e.g. a search radius, are
+ * measured in the unit of the sphere radius.
+ * </p>
+ */
+public final class HaversineDistanceCalculator implements KdDistanceCalculator {
+	/**
+	 * The mean radius of the earth in meters.
+	 */
+	public static final double EARTH_RADIUS = 6_371_008.8;
+
+	private static final int LATITUDE_AXIS_INDEX = 0;
+	private static final int LONGITUDE_AXIS_INDEX = 1;
+
+	private final double radius;
+
+	/**
+	 * Creates a calculator for distances in meters on the earth.
+	 */
+	public HaversineDistanceCalculator() {
+		this(EARTH_RADIUS);
+	}
+
+	/**
+	 * Creates a calculator for distances on a sphere with the provided radius.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the radius is not positive.
+	 */
+	public HaversineDistanceCalculator(final double radius) {
+		if (!(radius > 0)) {
+			throw new IllegalArgumentException("radius must be positive, but was " + radius);
+		}
+
+		this.radius = radius;
+	}
+
+	@Override
+	public <T extends Number & Comparable<T>> double getComparableDistance(final KdPoint<T> point,
+	        final KdPoint<T> otherPoint) {
+		final double latitude = Math.toRadians(point.getAxisValue(LATITUDE_AXIS_INDEX).doubleValue());
+		final double otherLatitude = Math.toRadians(otherPoint.getAxisValue(LATITUDE_AXIS_INDEX).doubleValue());
+
+		final double longitudeDelta = Math.toRadians(point.getAxisValue(LONGITUDE_AXIS_INDEX).doubleValue()
+		        - otherPoint.getAxisValue(LONGITUDE_AXIS_INDEX).doubleValue());
+
+		return haversine(latitude - otherLatitude)
+		        + Math.cos(latitude) * Math.cos(otherLatitude) * haversine(longitudeDelta);
+	}
+
+	@Override
+	public <T extends Number & Comparable<T>> double getComparableAxisDistance(final KdPoint<T> targetPoint,
+	        final int axisIndex, final double splitValue) {
+		final double latitude = Math.toRadians(targetPoint.getAxisValue(LATITUDE_AXIS_INDEX).doubleValue());
+
+		if (axisIndex == LATITUDE_AXIS_INDEX) {
+			// Any point on the other side of a circle of latitude differs at least by the
+			// latitude difference, which alone is the first term of the haversine formula.
+
+			return haversine(latitude - Math.toRadians(splitValue));
+		}
+
+		if (axisIndex == LONGITUDE_AXIS_INDEX) {
+			// Any path to the other side of a meridian either crosses that meridian or the
+			// antimeridian, since the longitude values wrap around there.
+
+			final double longitude = targetPoint.getAxisValue(LONGITUDE_AXIS_INDEX).doubleValue();
+
+			final double splitMeridianAngle = getAngleToMeridian(latitude, longitude - splitValue);
+			final double antimeridianAngle = getAngleToMeridian(latitude, 180 - Math.abs(longitude));
+
+			return haversine(Math.min(splitMeridianAngle, antimeridianAngle));
+		}
+
+		return 0;
+	}
+
+	@Override
+	public double toComparableDistance(final double distance) {
+		final double angle = distance / radius;
+
+		return angle >= Math.PI ? 1 : haversine(angle);
+	}
+
+	@Override
+	public double fromComparableDistance(final double comparableDistance) {
+		return 2 * Math.asin(Math.sqrt(Math.min(comparableDistance, 1))) * radius;
+	}
+
+	/**
+	 * Returns the central angle between the point with the given latitude and
+	 * the nearest point of the meridian with the given longitude difference in
+	 * degrees.
+	 */
+	private static double getAngleToMeridian(final double latitude, final double longitudeDelta) {
+		final double delta = Math.toRadians(Math.abs(normalizeLongitude(longitudeDelta)));
+
+		if (delta >= Math.PI / 2) {
+			// The nearest point of the meridian is the nearer pole.
+
+			return Math.PI / 2 - Math.abs(latitude);
+		}
+
+		return Math.asin(Math.cos(latitude) * Math.sin(delta));
+	}
+
+	/**
+	 * Returns the provided longitude difference in degrees in the range between
+	 * -180 and 180.
+	 */
+	private static double normalizeLongitude(final double longitudeDelta) {
+		final double normalized = longitudeDelta % 360;
+
+		if (normalized > 180) {
+			return normalized - 360;
+		} else if (normalized < -180) {
+			return normalized + 360;
+		}
+
+		return normalized;
+	}
+
+	private static double haversine(final double angle) {
+		final double sin = Math.sin(angle / 2);
+
+		return sin * sin;
+	}
+}
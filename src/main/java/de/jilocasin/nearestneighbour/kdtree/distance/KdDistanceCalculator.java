@@ -0,0 +1,49 @@
+package de.jilocasin.nearestneighbour.kdtree.distance;
+
+import de.jilocasin.nearestneighbour.kdtree.KdPoint;
+
+/**
+ * <p>
+ * Calculates the distance between points for the searches of a
+ * {@link de.jilocasin.nearestneighbour.nnsolver.NNSolver}.
+ * </p>
+ * 
+ * <p>
+ * All distances are returned as comparable distances: any value that grows
+ * strictly with the actual distance, e.g. the squared euclidean distance. This
+ * saves the calculation of the actual distance for each visited point.
+ * </p>
+ * 
+ * <p>
+ * To prune the tree, a calculator also has to provide a lower bound of the
+ * distance to any point on the other side of a splitting hyperplane. The
+ * search results are only correct if this bound is never greater than the
+ * actual distance.
+ * </p>
+ */
+public interface KdDistanceCalculator {
+	/**
+	 * Returns the comparable distance between the provided points.
+	 */
+	<T extends Number & Comparable<T>> double getComparableDistance(KdPoint<T> point, KdPoint<T> otherPoint);
+
+	/**
+	 * Returns a comparable distance that is less than or equal to the distance of
+	 * the provided target point to any point on the other side of the hyperplane
+	 * with the given value on the given axis.
+	 */
+	<T extends Number & Comparable<T>> double getComparableAxisDistance(KdPoint<T> targetPoint, int axisIndex,
+	        double splitValue);
+
+	/**
+	 * Converts the provided actual distance, e.g. a search radius, to a
+	 * comparable distance.
+	 */
+	double toComparableDistance(double distance);
+
+	/**
+	 * Converts the provided comparable distance back to an actual distance. This
+	 * is the inverse of {@link #toComparableDistance(double)}.
+	 */
+	double fromComparableDistance(double comparableDistance);
+}
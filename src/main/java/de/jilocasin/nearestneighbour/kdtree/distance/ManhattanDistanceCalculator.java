@@ -0,0 +1,40 @@
+package de.jilocasin.nearestneighbour.kdtree.distance;
+
+import de.jilocasin.nearestneighbour.kdtree.KdPoint;
+
+/**
+ * Calculates the <a href="https://en.wikipedia.org/wiki/Taxicab_geometry">
+ * Manhattan distance</a> between points, the sum of the absolute differences
+ * on all axes.
+ */
+public final class ManhattanDistanceCalculator implements KdDistanceCalculator {
+	@Override
+	public <T extends Number & Comparable<T>> double getComparableDistance(final KdPoint<T> point,
+	        final KdPoint<T> otherPoint) {
+		final int dimensions = point.getDimensions();
+
+		double distance = 0;
+
+		for (int i = 0; i < dimensions; i++) {
+			distance += Math.abs(point.getAxisValue(i).doubleValue() - otherPoint.getAxisValue(i).doubleValue());
+		}
+
+		return distance;
+	}
+
+	@Override
+	public <T extends Number & Comparable<T>> double getComparableAxisDistance(final KdPoint<T> targetPoint,
+	        final int axisIndex, final double splitValue) {
+		return Math.abs(targetPoint.getAxisValue(axisIndex).doubleValue() - splitValue);
+	}
+
+	@Override
+	public double toComparableDistance(final double distance) {
+		return distance;
+	}
+
+	@Override
+	public double fromComparableDistance(final double comparableDistance) {
+		return comparableDistance;
+	}
+}
@@ -0,0 +1,63 @@
+package de.jilocasin.nearestneighbour.kdtree.distance;
+
+import de.jilocasin.nearestneighbour.kdtree.KdPoint;
+
+/**
+ * Calculates the euclidean distance between points with a separate weight for
+ * the squared difference on each axis. The comparable distance is the squared
+ * distance.
+ */
+public final class WeightedEuclideanDistanceCalculator implements KdDistanceCalculator {
+	private final double[] weights;
+
+	/**
+	 * @param weights
+	 *            the weight of each axis. Points must not have more axes than
+	 *            weights provided.
+	 * @throws IllegalArgumentException
+	 *             if any weight is negative or not a number.
+	 */
+	public WeightedEuclideanDistanceCalculator(final double... weights) {
+		for (final double weight : weights) {
+			if (!(weight >= 0)) {
+				throw new IllegalArgumentException("weights must not be negative, but was " + weight);
+			}
+		}
+
+		this.weights = weights.clone();
+	}
+
+	@Override
+	public <T extends Number & Comparable<T>> double getComparableDistance(final KdPoint<T> point,
+	        final KdPoint<T> otherPoint) {
+		final int dimensions = point.getDimensions();
+
+		double distance = 0;
+
+		for (int i = 0; i < dimensions; i++) {
+			final double delta = point.getAxisValue(i).doubleValue() - otherPoint.getAxisValue(i).doubleValue();
+
+			distance += weights[i] * (delta * delta);
+		}
+
+		return distance;
+	}
+
+	@Override
+	public <T extends Number & Comparable<T>> double getComparableAxisDistance(final KdPoint<T> targetPoint,
+	        final int axisIndex, final double splitValue) {
+		final double axisDistance = targetPoint.getAxisValue(axisIndex).doubleValue() - splitValue;
+
+		return weights[axisIndex] * (axisDistance * axisDistance);
+	}
+
+	@Override
+	public double toComparableDistance(final double distance) {
+		return distance * distance;
+	}
+
+	@Override
+	public double fromComparableDistance(final double comparableDistance) {
+		return Math.sqrt(comparableDistance);
+	}
+}
@@ -0,0 +1,12 @@
+package de.jilocasin.nearestneighbour.kdtree.exception;
+
+/**
+ * Thrown to indicate that a tree snapshot published by a
+ * {@link de.jilocasin.nearestneighbour.kdtree.VersionedKdTree} was about to be
+ * modified.
+ */
+public class ImmutableKdTreeException extends KdTreeException {
+
+	private static final long serialVersionUID = 7263914052811349871L;
+
+}
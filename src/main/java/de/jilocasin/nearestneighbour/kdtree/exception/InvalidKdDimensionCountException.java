@@ -0,0 +1,11 @@
+package de.jilocasin.nearestneighbour.kdtree.exception;
+
+/**
+ * Thrown to indicate that the provided axis values during tree setup did not
+ * match the requested number of dimensions.
+ */
+public class InvalidKdDimensionCountException extends KdTreeException {
+
+	private static final long serialVersionUID = -3190645521370838513L;
+
+}
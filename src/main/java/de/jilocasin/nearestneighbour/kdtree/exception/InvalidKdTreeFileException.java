@@ -0,0 +1,15 @@
+package de.jilocasin.nearestneighbour.kdtree.exception;
+
+/**
+ * Thrown to indicate that a file to load a tree from was not written by
+ * {@link de.jilocasin.nearestneighbour.kdtree.DoubleKdTreeFiles}, uses an
+ * unsupported version or is damaged.
+ */
+public class InvalidKdTreeFileException extends KdTreeException {
+
+	private static final long serialVersionUID = -5518373340166281945L;
+
+	public InvalidKdTreeFileException(final String message) {
+		super(message);
+	}
+}
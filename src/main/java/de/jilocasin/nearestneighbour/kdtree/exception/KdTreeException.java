@@ -4,4 +4,11 @@ public class KdTreeException extends RuntimeException {
 
 	private static final long serialVersionUID = 4568865659903364090L;
 
+	public KdTreeException() {
+		super();
+	}
+
+	public KdTreeException(final String message) {
+		super(message);
+	}
 }
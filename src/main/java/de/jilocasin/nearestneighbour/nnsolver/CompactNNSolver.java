@@ -0,0 +1,199 @@
+package de.jilocasin.nearestneighbour.nnsolver;
+
+import java.util.List;
+
+import de.jilocasin.nearestneighbour.kdtree.CompactKdTree;
+import de.jilocasin.nearestneighbour.kdtree.KdPoint;
+import de.jilocasin.nearestneighbour.kdtree.distance.EuclideanDistanceCalculator;
+import de.jilocasin.nearestneighbour.kdtree.distance.KdDistanceCalculator;
+
+/**
+ * <p>
+ * Solver class to find nearest neighbour elements in a given
+ * {@link CompactKdTree}. It searches the tree iteratively, finding the children
+ * of each node by their index instead of following references.
+ * </p>
+ *
+ * <p>
+ * Distances are euclidean by default. Euclidean distances are computed from
+ * the axis values stored in the tree, any other {@link KdDistanceCalculator} is
+ * passed the points of the visited nodes.
+ * </p>
+ */
+public class CompactNNSolver<T extends Number & Comparable<T>> {
+	private final CompactKdTree<T> tree;
+
+	private final KdDistanceCalculator distanceCalculator;
+	private final boolean euclidean;
+
+	private final NNNearestPointCollector<T> nearestPointCollector = new NNNearestPointCollector<>();
+	private final NNCandidateHeap<T> candidateHeap = new NNCandidateHeap<>();
+
+	/**
+	 * The axis values of the current search target.
+	 */
+	private final double[] searchTarget;
+
+	/**
+	 * Nodes still to visit, with the comparable distance of the search point to
+	 * their subtree. The stack never holds more than one node per depth.
+	 */
+	private final int[] nodeStack;
+	private final double[] nodeStackDistances;
+
+	private KdPoint<T> searchTargetPoint;
+
+	private NNCandidateCollector<T> collector;
+
+	/**
+	 * Creates a solver using euclidean distances.
+	 */
+	public CompactNNSolver(final CompactKdTree<T> tree) {
+		this(tree, new EuclideanDistanceCalculator());
+	}
+
+	public CompactNNSolver(final CompactKdTree<T> tree, final KdDistanceCalculator distanceCalculator) {
+		this.tree = tree;
+
+		this.distanceCalculator = distanceCalculator;
+		this.euclidean = distanceCalculator instanceof EuclideanDistanceCalculator;
+
+		this.searchTarget = new double[tree.dimensionCount];
+
+		this.nodeStack = new int[tree.getMaxDepth() + 1];
+		this.nodeStackDistances = new double[nodeStack.length];
+	}
+
+	public CompactKdTree<T> getTree() {
+		return tree;
+	}
+
+	public KdDistanceCalculator getDistanceCalculator() {
+		return distanceCalculator;
+	}
+
+	/**
+	 * Returns the nearest tree point to the provided target point. Just like
+	 * {@link NNSolver#findNearestPoint(KdPoint)}, a point instance included in the
+	 * tree data will not be returned as its own neighbour.
+	 */
+	public KdPoint<T> findNearestPoint(final KdPoint<T> searchTargetPoint) {
+		nearestPointCollector.reset();
+
+		solve(searchTargetPoint, nearestPointCollector);
+
+		return nearestPointCollector.getPoint();
+	}
+
+	/**
+	 * Returns the k nearest tree points to the provided target point, ordered by
+	 * their distance to it, nearest first. See
+	 * {@link NNSolver#findKNearestPoints(KdPoint, int)}.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if k is less than 1.
+	 */
+	public List<KdPoint<T>> findKNearestPoints(final KdPoint<T> searchTargetPoint, final int k) {
+		if (k < 1) {
+			throw new IllegalArgumentException("k must be at least 1, but was " + k);
+		}
+
+		candidateHeap.reset(k);
+
+		solve(searchTargetPoint, candidateHeap);
+
+		return candidateHeap.pollAllSorted();
+	}
+
+	private void solve(final KdPoint<T> searchTargetPoint, final NNCandidateCollector<T> collector) {
+		this.searchTargetPoint = searchTargetPoint;
+		this.collector = collector;
+
+		for (int axisIndex = 0; axisIndex < searchTarget.length; axisIndex++) {
+			searchTarget[axisIndex] = searchTargetPoint.getAxisValue(axisIndex).doubleValue();
+		}
+
+		final int size = tree.size();
+
+		nodeStack[0] = 0;
+		nodeStackDistances[0] = 0;
+
+		int stackSize = 1;
+
+		while (stackSize > 0) {
+			stackSize--;
+
+			// The collector may have found better points since this node was pushed.
+
+			if (nodeStackDistances[stackSize] >= collector.getMaxDistance()) {
+				continue;
+			}
+
+			int nodeIndex = nodeStack[stackSize];
+			int axisIndex = tree.getSplitAxis(nodeIndex);
+
+			// Move down to a leaf, always following the side of the search point and
+			// remembering the other side if the hyperplane is close enough.
+
+			while (nodeIndex < size) {
+				offer(nodeIndex);
+
+				final double splitValue = tree.getAxisValue(nodeIndex, axisIndex);
+				final double axisDistance = searchTarget[axisIndex] - splitValue;
+				final double comparableAxisDistance = getComparableAxisDistance(axisIndex, axisDistance, splitValue);
+
+				final int leftIndex = 2 * nodeIndex + 1;
+
+				final int nearIndex;
+				final int farIndex;
+
+				if (axisDistance > 0) {
+					nearIndex = leftIndex + 1;
+					farIndex = leftIndex;
+				} else {
+					nearIndex = leftIndex;
+					farIndex = leftIndex + 1;
+				}
+
+				if (farIndex < size && comparableAxisDistance < collector.getMaxDistance()) {
+					nodeStack[stackSize] = farIndex;
+					nodeStackDistances[stackSize] = comparableAxisDistance;
+					stackSize++;
+				}
+
+				nodeIndex = nearIndex;
+				axisIndex = axisIndex + 1 == searchTarget.length ? 0 : axisIndex + 1;
+			}
+		}
+
+		// Don't keep the caller's point reachable after the search.
+
+		this.searchTargetPoint = null;
+	}
+
+	/**
+	 * Offers the point of the provided node to the collector of the current
+	 * search, unless it is the search point itself.
+	 */
+	private void offer(final int nodeIndex) {
+		final KdPoint<T> point = tree.getPoint(nodeIndex);
+
+		if (point == searchTargetPoint) {
+			return;
+		}
+
+		final double distance = euclidean ? tree.getDistanceSquared(nodeIndex, searchTarget)
+		        : distanceCalculator.getComparableDistance(point, searchTargetPoint);
+
+		collector.offer(point, distance);
+	}
+
+	private double getComparableAxisDistance(final int axisIndex, final double axisDistance,
+	        final double splitValue) {
+		if (euclidean) {
+			return axisDistance * axisDistance;
+		}
+
+		return distanceCalculator.getComparableAxisDistance(searchTargetPoint, axisIndex, splitValue);
+	}
+}
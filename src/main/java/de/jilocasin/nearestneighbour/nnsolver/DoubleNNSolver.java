@@ -0,0 +1,133 @@
+package de.jilocasin.nearestneighbour.nnsolver;
+
+import de.jilocasin.nearestneighbour.kdtree.DoubleDistanceKernel;
+import de.jilocasin.nearestneighbour.kdtree.DoubleDistanceKernels;
+import de.jilocasin.nearestneighbour.kdtree.DoubleKdTree;
+
+/**
+ * Solver class to find nearest neighbour elements in a given
+ * {@link DoubleKdTree}. Points are identified by the index they had when the
+ * tree was set up.
+ */
+public class DoubleNNSolver {
+	/**
+	 * Returned if no nearest point could be found.
+	 */
+	public static final int NO_POINT = -1;
+
+	private final DoubleKdTree tree;
+	private final DoubleDistanceKernel kernel;
+
+	/**
+	 * The distances of the points of the current leaf to the search target.
+	 */
+	private final double[] leafDistancesSquared;
+
+	private double[] searchTarget;
+	private int excludedPointIndex;
+
+	private int currentBestTreeIndex;
+	private double currentBestDistanceSquared;
+
+	/**
+	 * Creates a solver using the {@link DoubleDistanceKernels#getDefault()
+	 * default kernel}.
+	 */
+	public DoubleNNSolver(final DoubleKdTree tree) {
+		this(tree, DoubleDistanceKernels.getDefault());
+	}
+
+	/**
+	 * Creates a solver using the provided kernel to compute the distances to the
+	 * points of each leaf.
+	 */
+	public DoubleNNSolver(final DoubleKdTree tree, final DoubleDistanceKernel kernel) {
+		this.tree = tree;
+		this.kernel = kernel;
+
+		this.leafDistancesSquared = new double[Math.min(tree.bucketSize, tree.pointCount)];
+	}
+
+	/**
+	 * Returns the index of the nearest tree point to the provided target axis
+	 * values.
+	 */
+	public int findNearestPoint(final double[] searchTarget) {
+		return findNearestPoint(searchTarget, NO_POINT);
+	}
+
+	/**
+	 * <p>
+	 * Returns the index of the nearest tree point to the provided target axis
+	 * values, ignoring the tree point with the given index.
+	 * </p>
+	 *
+	 * <p>
+	 * This is the equivalent of passing a point instance included in the tree
+	 * data to {@link NNSolver#findNearestPoint}: the closest point except the
+	 * search point itself will be returned.
+	 * </p>
+	 *
+	 * @return the index of the nearest point, or {@link #NO_POINT} if the tree
+	 *         does not contain any other point.
+	 */
+	public int findNearestPoint(final double[] searchTarget, final int excludedPointIndex) {
+		this.searchTarget = searchTarget;
+		this.excludedPointIndex = excludedPointIndex;
+
+		this.currentBestTreeIndex = NO_POINT;
+		this.currentBestDistanceSquared = Double.POSITIVE_INFINITY;
+
+		solveForNode(0, 0, tree.pointCount);
+
+		return currentBestTreeIndex == NO_POINT ? NO_POINT : tree.getPointIndexAt(currentBestTreeIndex);
+	}
+
+	private void solveForNode(final int nodeIndex, final int from, final int to) {
+		if (tree.isLeaf(from, to)) {
+			scanLeaf(from, to);
+
+			return;
+		}
+
+		final int middle = (from + to) >>> 1;
+
+		final double axisDistance = searchTarget[tree.getSplitAxis(nodeIndex)] - tree.getSplitValue(nodeIndex);
+
+		// Continue on the side of the search point first, then check whether the
+		// hypersphere around it still intersects the hyperplane of this node.
+
+		if (axisDistance > 0) {
+			solveForNode(2 * nodeIndex + 2, middle, to);
+
+			if (axisDistance * axisDistance < currentBestDistanceSquared) {
+				solveForNode(2 * nodeIndex + 1, from, middle);
+			}
+		} else {
+			solveForNode(2 * nodeIndex + 1, from, middle);
+
+			if (axisDistance * axisDistance < currentBestDistanceSquared) {
+				solveForNode(2 * nodeIndex + 2, middle, to);
+			}
+		}
+	}
+
+	/**
+	 * Checks all points of a leaf, which are stored next to each other.
+	 */
+	private void scanLeaf(final int from, final int to) {
+		tree.computeDistancesSquared(kernel, from, to, searchTarget, leafDistancesSquared);
+
+		for (int treeIndex = from; treeIndex < to; treeIndex++) {
+			final double distanceSquared = leafDistancesSquared[treeIndex - from];
+
+			// Don't use the excluded point as the best point.
+
+			if (distanceSquared < currentBestDistanceSquared
+			        && tree.getPointIndexAt(treeIndex) != excludedPointIndex) {
+				currentBestTreeIndex = treeIndex;
+				currentBestDistanceSquared = distanceSquared;
+			}
+		}
+	}
+}
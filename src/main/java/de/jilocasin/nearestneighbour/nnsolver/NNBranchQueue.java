@@ -0,0 +1,137 @@
+package de.jilocasin.nearestneighbour.nnsolver;
+
+import java.util.Arrays;
+
+import de.jilocasin.nearestneighbour.kdtree.KdNode;
+
+/**
+ * <p>
+ * Keeps the unexplored branches of a best-bin-first search in a binary
+ * min-heap, ordered by the comparable distance of the search point to their
+ * subtree. The most promising branch is always at the top.
+ * </p>
+ *
+ * <p>
+ * The backing arrays only grow if a search needs more space than any search
+ * before, so reusing an instance across searches does not allocate.
+ * </p>
+ */
+class NNBranchQueue<T extends Number & Comparable<T>> {
+	private static final int INITIAL_CAPACITY = 64;
+
+	private KdNode<T>[] nodes;
+	private double[] distances;
+
+	private int size;
+
+	NNBranchQueue() {
+		this.nodes = newNodeArray(INITIAL_CAPACITY);
+		this.distances = new double[INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Removes all branches.
+	 */
+	void clear() {
+		// Drop the references of the previous search.
+
+		Arrays.fill(nodes, 0, size, null);
+
+		size = 0;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	int size() {
+		return size;
+	}
+
+	void add(final KdNode<T> node, final double distance) {
+		if (size == nodes.length) {
+			nodes = Arrays.copyOf(nodes, size * 2);
+			distances = Arrays.copyOf(distances, size * 2);
+		}
+
+		nodes[size] = node;
+		distances[size] = distance;
+
+		siftUp(size++);
+	}
+
+	/**
+	 * Returns the distance of the nearest branch. Must not be called on an empty
+	 * queue.
+	 */
+	double peekDistance() {
+		return distances[0];
+	}
+
+	/**
+	 * Removes and returns the nearest branch. Must not be called on an empty
+	 * queue.
+	 */
+	KdNode<T> poll() {
+		final KdNode<T> node = nodes[0];
+		final int last = --size;
+
+		nodes[0] = nodes[last];
+		distances[0] = distances[last];
+		nodes[last] = null;
+
+		siftDown(0);
+
+		return node;
+	}
+
+	private void siftUp(int index) {
+		while (index > 0) {
+			final int parent = (index - 1) >>> 1;
+
+			if (distances[parent] <= distances[index]) {
+				return;
+			}
+
+			swap(index, parent);
+
+			index = parent;
+		}
+	}
+
+	private void siftDown(int index) {
+		while (true) {
+			final int left = 2 * index + 1;
+
+			if (left >= size) {
+				return;
+			}
+
+			final int right = left + 1;
+			final int smaller = right < size && distances[right] < distances[left] ? right : left;
+
+			if (distances[index] <= distances[smaller]) {
+				return;
+			}
+
+			swap(index, smaller);
+
+			index = smaller;
+		}
+	}
+
+	private void swap(final int i, final int j) {
+		final KdNode<T> node = nodes[i];
+		nodes[i] = nodes[j];
+		nodes[j] = node;
+
+		final double distance = distances[i];
+		distances[i] = distances[j];
+		distances[j] = distance;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T extends Number & Comparable<T>> KdNode<T>[] newNodeArray(final int length) {
+		return (KdNode<T>[]) new KdNode<?>[length];
+	}
+}
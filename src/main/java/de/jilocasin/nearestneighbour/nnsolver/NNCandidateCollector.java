@@ -0,0 +1,23 @@
+package de.jilocasin.nearestneighbour.nnsolver;
+
+import de.jilocasin.nearestneighbour.kdtree.KdPoint;
+import de.jilocasin.nearestneighbour.kdtree.distance.KdDistanceCalculator;
+
+/**
+ * Collects the points visited by a {@link NNSolver} search. The collector
+ * decides which points to keep and how far away any other point may be to
+ * still be of interest, which the solver uses to prune branches of the tree.
+ */
+abstract class NNCandidateCollector<T extends Number & Comparable<T>> {
+	/**
+	 * Offers a visited point with its distance to the search target, as returned
+	 * by {@link KdDistanceCalculator#getComparableDistance}.
+	 */
+	abstract void offer(KdPoint<T> point, double distance);
+
+	/**
+	 * Returns the comparable distance any point has to be below to be collected.
+	 * Tree branches further away than this can be skipped.
+	 */
+	abstract double getMaxDistance();
+}
@@ -0,0 +1,179 @@
+package de.jilocasin.nearestneighbour.nnsolver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.jilocasin.nearestneighbour.kdtree.KdPoint;
+
+/**
+ * <p>
+ * Keeps the k nearest points offered since the last reset in a bounded binary
+ * max-heap, so the farthest of the current candidates is always at the top and
+ * can be replaced in logarithmic time.
+ * </p>
+ *
+ * <p>
+ * The backing arrays only grow if a larger k is requested, so reusing an
+ * instance across searches does not allocate.
+ * </p>
+ */
+class NNCandidateHeap<T extends Number & Comparable<T>> extends NNCandidateCollector<T> {
+	private KdPoint<T>[] points;
+	private double[] distances;
+
+	private int capacity;
+	private int size;
+
+	/**
+	 * Whether the same point may be offered more than once per search, e.g. by
+	 * the trees of a forest.
+	 */
+	private final boolean skipDuplicates;
+
+	NNCandidateHeap() {
+		this(false);
+	}
+
+	NNCandidateHeap(final boolean skipDuplicates) {
+		this.points = newPointArray(0);
+		this.distances = new double[0];
+		this.skipDuplicates = skipDuplicates;
+	}
+
+	/**
+	 * Removes all candidates and sets the number of points to keep.
+	 */
+	void reset(final int capacity) {
+		if (points.length < capacity) {
+			points = newPointArray(capacity);
+			distances = new double[capacity];
+		} else {
+			// Drop the references of the previous search.
+
+			for (int i = 0; i < size; i++) {
+				points[i] = null;
+			}
+		}
+
+		this.capacity = capacity;
+		this.size = 0;
+	}
+
+	int size() {
+		return size;
+	}
+
+	@Override
+	void offer(final KdPoint<T> point, final double distance) {
+		if (skipDuplicates && distance < getMaxDistance() && contains(point)) {
+			return;
+		}
+
+		if (size < capacity) {
+			points[size] = point;
+			distances[size] = distance;
+
+			siftUp(size++);
+		} else if (distance < distances[0]) {
+			// Replace the farthest candidate.
+
+			points[0] = point;
+			distances[0] = distance;
+
+			siftDown(0);
+		}
+	}
+
+	@Override
+	double getMaxDistance() {
+		return size < capacity ? Double.POSITIVE_INFINITY : distances[0];
+	}
+
+	/**
+	 * Removes all candidates from this heap and returns them ordered by their
+	 * distance, nearest first.
+	 */
+	List<KdPoint<T>> pollAllSorted() {
+		final List<KdPoint<T>> result = new ArrayList<>(size);
+
+		for (int i = 0; i < size; i++) {
+			result.add(null);
+		}
+
+		// Repeatedly move the farthest remaining candidate to the end of the result.
+
+		while (size > 0) {
+			final int last = --size;
+
+			result.set(last, points[0]);
+
+			points[0] = points[last];
+			distances[0] = distances[last];
+			points[last] = null;
+
+			siftDown(0);
+		}
+
+		return result;
+	}
+
+	private boolean contains(final KdPoint<T> point) {
+		for (int i = 0; i < size; i++) {
+			if (points[i] == point) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private void siftUp(int index) {
+		while (index > 0) {
+			final int parent = (index - 1) >>> 1;
+
+			if (distances[parent] >= distances[index]) {
+				return;
+			}
+
+			swap(index, parent);
+
+			index = parent;
+		}
+	}
+
+	private void siftDown(int index) {
+		while (true) {
+			final int left = 2 * index + 1;
+
+			if (left >= size) {
+				return;
+			}
+
+			final int right = left + 1;
+			final int larger = right < size && distances[right] > distances[left] ? right : left;
+
+			if (distances[index] >= distances[larger]) {
+				return;
+			}
+
+			swap(index, larger);
+
+			index = larger;
+		}
+	}
+
+	private void swap(final int i, final int j) {
+		final KdPoint<T> point = points[i];
+		points[i] = points[j];
+		points[j] = point;
+
+		final double distance = distances[i];
+		distances[i] = distances[j];
+		distances[j] = distance;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T extends Number & Comparable<T>> KdPoint<T>[] newPointArray(final int length) {
+		return (KdPoint<T>[]) new KdPoint<?>[length];
+	}
+}
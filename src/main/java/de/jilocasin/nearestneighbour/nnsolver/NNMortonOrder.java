@@ -0,0 +1,132 @@
+package de.jilocasin.nearestneighbour.nnsolver;
+
+import java.util.Arrays;
+
+import de.jilocasin.nearestneighbour.kdtree.KdPoint;
+
+/**
+ * <p>
+ * Sorts points along a Morton (Z-order) curve. The axis values of each point
+ * are scaled to integers within the bounding box of all points, and the bits
+ * of these integers are interleaved to a code. Points with similar codes are
+ * close to each other.
+ * </p>
+ *
+ * <p>
+ * Each code is stored in the upper bits of a <code>long</code> with the index
+ * of its point in the lower bits, so all points are sorted with a single
+ * primitive sort. Fewer bits per axis are left for larger batches and more
+ * dimensions, which only makes the order coarser.
+ * </p>
+ */
+final class NNMortonOrder {
+	private NNMortonOrder() {
+	}
+
+	/**
+	 * Returns the indices of the provided points, ordered by the Morton code of
+	 * the points.
+	 */
+	static <T extends Number & Comparable<T>> int[] sort(final KdPoint<T>[] points) {
+		final int size = points.length;
+
+		if (size == 0) {
+			return new int[0];
+		}
+
+		final int dimensionCount = points[0].getDimensions();
+
+		// Keep the sign bit clear, so the signed sort orders the codes correctly.
+
+		final int indexBits = 32 - Integer.numberOfLeadingZeros(Math.max(1, size - 1));
+		final int codeBits = 63 - indexBits;
+
+		final int axisCount = Math.min(dimensionCount, codeBits);
+		final int bitsPerAxis = codeBits / axisCount;
+
+		final double[] min = new double[axisCount];
+		final double[] scale = new double[axisCount];
+
+		computeScale(points, axisCount, bitsPerAxis, min, scale);
+
+		final long maxValue = (1L << bitsPerAxis) - 1;
+		final long[] values = new long[axisCount];
+		final long[] keys = new long[size];
+
+		for (int i = 0; i < size; i++) {
+			for (int axisIndex = 0; axisIndex < axisCount; axisIndex++) {
+				final double value = (points[i].getAxisValue(axisIndex).doubleValue() - min[axisIndex])
+				        * scale[axisIndex];
+
+				// Clamps infinite values to the bounds and maps NaN to 0.
+
+				values[axisIndex] = Math.max(0, Math.min(maxValue, (long) value));
+			}
+
+			keys[i] = (interleave(values, bitsPerAxis) << indexBits) | i;
+		}
+
+		Arrays.sort(keys);
+
+		final int indexMask = (int) ((1L << indexBits) - 1);
+		final int[] order = new int[size];
+
+		for (int i = 0; i < size; i++) {
+			order[i] = (int) keys[i] & indexMask;
+		}
+
+		return order;
+	}
+
+	private static <T extends Number & Comparable<T>> void computeScale(final KdPoint<T>[] points,
+	        final int axisCount, final int bitsPerAxis, final double[] min, final double[] scale) {
+		final double[] max = new double[axisCount];
+
+		Arrays.fill(min, Double.POSITIVE_INFINITY);
+		Arrays.fill(max, Double.NEGATIVE_INFINITY);
+
+		for (final KdPoint<T> point : points) {
+			for (int axisIndex = 0; axisIndex < axisCount; axisIndex++) {
+				final double value = point.getAxisValue(axisIndex).doubleValue();
+
+				// Non-finite values are clamped to the bounds later, so they must not
+				// widen or, for NaN, erase the bounds of the finite ones.
+
+				if (!Double.isFinite(value)) {
+					continue;
+				}
+
+				min[axisIndex] = Math.min(min[axisIndex], value);
+				max[axisIndex] = Math.max(max[axisIndex], value);
+			}
+		}
+
+		for (int axisIndex = 0; axisIndex < axisCount; axisIndex++) {
+			final double range = max[axisIndex] - min[axisIndex];
+
+			// Use a scale of 0 for axes with a single finite value or none at all.
+
+			scale[axisIndex] = range > 0 && range < Double.POSITIVE_INFINITY ? (1L << bitsPerAxis) / range : 0;
+
+			if (!Double.isFinite(min[axisIndex])) {
+				min[axisIndex] = 0;
+			}
+		}
+	}
+
+	/**
+	 * Interleaves the bits of the provided values, starting with the most
+	 * significant bit of the first value.
+	 */
+	static long interleave(final long[] values, final int bitsPerAxis) {
+		long code = 0;
+
+		for (int bit = bitsPerAxis - 1; bit >= 0; bit--) {
+			for (final long value : values) {
+				code = (code << 1) | ((value >>> bit) & 1);
+			}
+		}
+
+		return code;
+	}
+}
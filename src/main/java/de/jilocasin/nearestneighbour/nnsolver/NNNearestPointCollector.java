@@ -0,0 +1,33 @@
+package de.jilocasin.nearestneighbour.nnsolver;
+
+import de.jilocasin.nearestneighbour.kdtree.KdPoint;
+
+/**
+ * Keeps the single nearest point offered since the last reset.
+ */
+class NNNearestPointCollector<T extends Number & Comparable<T>> extends NNCandidateCollector<T> {
+	private KdPoint<T> currentBestPoint;
+	private double currentBestDistance;
+
+	void reset() {
+		currentBestPoint = null;
+		currentBestDistance = Double.POSITIVE_INFINITY;
+	}
+
+	KdPoint<T> getPoint() {
+		return currentBestPoint;
+	}
+
+	@Override
+	void offer(final KdPoint<T> point, final double distance) {
+		if (distance < currentBestDistance) {
+			currentBestPoint = point;
+			currentBestDistance = distance;
+		}
+	}
+
+	@Override
+	double getMaxDistance() {
+		return currentBestDistance;
+	}
+}
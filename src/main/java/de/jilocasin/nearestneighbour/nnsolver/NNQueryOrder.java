@@ -0,0 +1,21 @@
+package de.jilocasin.nearestneighbour.nnsolver;
+
+/**
+ * Defines the order in which a {@link NNSolverOrchestrator} runs the searches
+ * of a batch. The results are always returned in the order of the search
+ * points, the order only affects performance.
+ */
+public enum NNQueryOrder {
+	/**
+	 * Runs the searches in the order of the search points.
+	 */
+	INPUT,
+
+	/**
+	 * Sorts the search points along a Morton (Z-order) curve first, so each
+	 * thread runs searches for points close to each other one after another.
+	 * These searches mostly visit the same nodes, which are then still cached.
+	 * Pays off for large batches of unordered points on large trees.
+	 */
+	MORTON
+}
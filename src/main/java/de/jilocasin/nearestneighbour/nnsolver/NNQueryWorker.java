@@ -0,0 +1,46 @@
+package de.jilocasin.nearestneighbour.nnsolver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+
+import de.jilocasin.nearestneighbour.kdtree.KdPoint;
+import de.jilocasin.nearestneighbour.kdtree.KdTree;
+
+/**
+ * Worker thread applying one query to each of the provided input points, using
+ * a single solver instance for all of them.
+ */
+class NNQueryWorker<T extends Number & Comparable<T>, R> {
+	private final Thread thread;
+
+	private List<R> results;
+
+	NNQueryWorker(final KdTree<T> tree, final List<KdPoint<T>> inputPoints,
+	        final BiFunction<NNSolver<T>, KdPoint<T>, R> query) {
+		this.thread = new Thread(() -> {
+			results = new ArrayList<>(inputPoints.size());
+
+			final NNSolver<T> solver = new NNSolver<>(tree);
+
+			for (final KdPoint<T> point : inputPoints) {
+				results.add(query.apply(solver, point));
+			}
+		});
+	}
+
+	void start() {
+		this.thread.start();
+	}
+
+	/**
+	 * Waits for this worker thread to finish, then returns the list of results to
+	 * the caller. The index of each result corresponds to the index of the input
+	 * points when constructing this worker.
+	 */
+	List<R> getResults() throws InterruptedException {
+		this.thread.join();
+
+		return results;
+	}
+}
@@ -0,0 +1,54 @@
+package de.jilocasin.nearestneighbour.nnsolver;
+
+import java.util.function.Consumer;
+
+import de.jilocasin.nearestneighbour.kdtree.KdPoint;
+
+/**
+ * Passes every offered point within a fixed radius to a consumer, or only
+ * counts them if no consumer is set.
+ */
+class NNRadiusCollector<T extends Number & Comparable<T>> extends NNCandidateCollector<T> {
+	private double maxDistance;
+	private Consumer<? super KdPoint<T>> consumer;
+
+	private int count;
+
+	/**
+	 * Prepares this collector for a new search.
+	 * 
+	 * @param radius
+	 *            the maximum comparable distance of collected points, inclusive.
+	 * @param consumer
+	 *            the consumer to pass collected points to, or null to only count
+	 *            them.
+	 */
+	void reset(final double radius, final Consumer<? super KdPoint<T>> consumer) {
+		// Points exactly on the radius are included, so use the next larger value as
+		// the exclusive limit.
+
+		this.maxDistance = Math.nextUp(radius);
+		this.consumer = consumer;
+		this.count = 0;
+	}
+
+	int getCount() {
+		return count;
+	}
+
+	@Override
+	void offer(final KdPoint<T> point, final double distance) {
+		if (distance < maxDistance) {
+			count++;
+
+			if (consumer != null) {
+				consumer.accept(point);
+			}
+		}
+	}
+
+	@Override
+	double getMaxDistance() {
+		return maxDistance;
+	}
+}
@@ -0,0 +1,361 @@
+package de.jilocasin.nearestneighbour.nnsolver;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import de.jilocasin.nearestneighbour.kdtree.KdPoint;
+import de.jilocasin.nearestneighbour.kdtree.KdTree;
+
+/**
+ * <p>
+ * Caches the results of {@link NNSolver#findNearestPoint(KdPoint)} by the axis
+ * values of the search points, so repeated searches for the same location don't
+ * have to search the tree again. A cache can be shared by any number of solvers
+ * and threads, e.g. by setting it on a {@link NNSolverOrchestrator}, as long as
+ * all of them use the same distance calculator.
+ * </p>
+ *
+ * <p>
+ * The cache holds at most the given number of results. Once it is full, the
+ * least recently used results are evicted. To keep threads from waiting for each
+ * other, the entries of larger caches are split into stripes by their hash,
+ * each with its own lock and its own share of the capacity. Each stripe evicts
+ * its least recently used result once its share is used up, so a striped cache
+ * may evict results before it holds its maximum number of results.
+ * </p>
+ *
+ * <p>
+ * Each result is stored with the tree it was found in and the
+ * {@link KdTree#getModificationCount() modification count} of that tree. A
+ * result is only used for a search of the same tree in the same state, so
+ * inserting or removing points, or searching a new snapshot of a
+ * {@link de.jilocasin.nearestneighbour.kdtree.VersionedKdTree VersionedKdTree},
+ * never returns outdated results. The trees are only referenced weakly, so the
+ * cache does not keep outdated snapshots alive, and outdated results are
+ * removed as soon as they are looked up.
+ * </p>
+ *
+ * <p>
+ * With a quantum of 0, only search points with exactly the same axis values
+ * share a result. With a positive quantum, the axis values are rounded down to
+ * multiples of it first, so all search points in the same grid cell share the
+ * result of whichever of them was searched first. The returned point may then
+ * be farther away than the exact nearest point by up to the size of a grid
+ * cell.
+ * </p>
+ */
+public class NNResultCache<T extends Number & Comparable<T>> {
+	/**
+	 * The number of stripes the entries are split into. Must be a power of two.
+	 */
+	private static final int STRIPE_COUNT = 16;
+
+	/**
+	 * The minimum capacity of each stripe. Smaller caches use fewer stripes, down
+	 * to a single one.
+	 */
+	private static final int MIN_STRIPE_SIZE = 64;
+
+	private final int maxSize;
+	private final double quantum;
+
+	private final Stripe<T>[] stripes;
+
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+
+	/**
+	 * The tree version of the latest stored result, shared by all results stored
+	 * for it.
+	 */
+	private volatile TreeVersion<T> latestTreeVersion;
+
+	/**
+	 * Creates a cache holding at most the provided number of results, which only
+	 * shares results between search points with exactly the same axis values.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the maximum size is less than 1.
+	 */
+	public NNResultCache(final int maxSize) {
+		this(maxSize, 0);
+	}
+
+	/**
+	 * Creates a cache holding at most the provided number of results, which
+	 * shares results between search points in the same grid cell of the given
+	 * size.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the maximum size is less than 1 or the quantum is negative
+	 *             or not finite.
+	 */
+	public NNResultCache(final int maxSize, final double quantum) {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("maxSize must be at least 1, but was " + maxSize);
+		}
+
+		if (!(quantum >= 0) || Double.isInfinite(quantum)) {
+			throw new IllegalArgumentException("quantum must be finite and not negative, but was " + quantum);
+		}
+
+		this.maxSize = maxSize;
+		this.quantum = quantum;
+
+		// Each stripe evicts on its own once its share is used up, so the stripes need
+		// enough capacity to even out how the entries are spread between them.
+
+		final int stripeCount = Math.min(STRIPE_COUNT,
+		        Integer.highestOneBit(Math.max(1, maxSize / MIN_STRIPE_SIZE)));
+
+		@SuppressWarnings("unchecked")
+		final Stripe<T>[] stripes = (Stripe<T>[]) new Stripe<?>[stripeCount];
+
+		this.stripes = stripes;
+
+		for (int i = 0; i < stripeCount; i++) {
+			final int stripeSize = maxSize / stripeCount + (i < maxSize % stripeCount ? 1 : 0);
+
+			stripes[i] = new Stripe<>(stripeSize);
+		}
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public double getQuantum() {
+		return quantum;
+	}
+
+	/**
+	 * Returns the number of searches answered from this cache.
+	 */
+	public long getHitCount() {
+		return hitCount.sum();
+	}
+
+	/**
+	 * Returns the number of searches which had to search the tree.
+	 */
+	public long getMissCount() {
+		return missCount.sum();
+	}
+
+	/**
+	 * Returns the number of results currently held by this cache, including
+	 * outdated results which were not evicted yet.
+	 */
+	public int size() {
+		int size = 0;
+
+		for (final Stripe<T> stripe : stripes) {
+			synchronized (stripe) {
+				size += stripe.size();
+			}
+		}
+
+		return size;
+	}
+
+	/**
+	 * Removes all results from this cache. The hit and miss counts are kept.
+	 */
+	public void invalidateAll() {
+		for (final Stripe<T> stripe : stripes) {
+			synchronized (stripe) {
+				stripe.clear();
+			}
+		}
+	}
+
+	/**
+	 * Returns the key of the provided search point.
+	 */
+	Key createKey(final KdPoint<T> searchTargetPoint) {
+		final long[] values = new long[searchTargetPoint.getDimensions()];
+
+		for (int axisIndex = 0; axisIndex < values.length; axisIndex++) {
+			final double value = searchTargetPoint.getAxisValue(axisIndex).doubleValue();
+
+			// Map -0.0 to 0.0, so both share a key just like they share a position.
+
+			values[axisIndex] = quantum > 0 ? (long) Math.floor(value / quantum)
+			        : Double.doubleToLongBits(value + 0.0);
+		}
+
+		return new Key(values);
+	}
+
+	/**
+	 * Returns the cached result for the provided key which was found in the
+	 * provided tree in its current state, or null if there is none. Counts the
+	 * call as a hit or a miss.
+	 *
+	 * @param searchTargetPoint
+	 *            the point searched for. A result that is this point instance
+	 *            itself is not returned, since a point must not be its own
+	 *            neighbour.
+	 */
+	KdPoint<T> get(final Key key, final KdTree<T> tree, final KdPoint<T> searchTargetPoint) {
+		final Stripe<T> stripe = getStripe(key);
+
+		final CachedResult<T> result;
+
+		synchronized (stripe) {
+			result = stripe.get(key);
+		}
+
+		if (result == null) {
+			missCount.increment();
+
+			return null;
+		}
+
+		if (!result.treeVersion.matches(tree)) {
+			// The result can't ever be used again if its tree was changed or is gone. A
+			// result for another tree is kept, since both trees may still be searched.
+
+			if (result.treeVersion.isOutdated()) {
+				synchronized (stripe) {
+					stripe.remove(key, result);
+				}
+			}
+
+			missCount.increment();
+
+			return null;
+		}
+
+		if (result.point == searchTargetPoint) {
+			missCount.increment();
+
+			return null;
+		}
+
+		hitCount.increment();
+
+		return result.point;
+	}
+
+	/**
+	 * Stores the result for the provided key, found in the provided tree in its
+	 * current state.
+	 */
+	void put(final Key key, final KdTree<T> tree, final KdPoint<T> point) {
+		final CachedResult<T> result = new CachedResult<>(getTreeVersion(tree), point);
+		final Stripe<T> stripe = getStripe(key);
+
+		synchronized (stripe) {
+			stripe.put(key, result);
+		}
+	}
+
+	private TreeVersion<T> getTreeVersion(final KdTree<T> tree) {
+		final TreeVersion<T> treeVersion = latestTreeVersion;
+
+		if (treeVersion != null && treeVersion.matches(tree)) {
+			return treeVersion;
+		}
+
+		// Racing threads may each create a version for the same tree state. Their
+		// results are equally valid, so it does not matter which one is kept.
+
+		final TreeVersion<T> newTreeVersion = new TreeVersion<>(tree);
+
+		latestTreeVersion = newTreeVersion;
+
+		return newTreeVersion;
+	}
+
+	private Stripe<T> getStripe(final Key key) {
+		// Spread the higher bits, since the stripe only depends on the lowest ones.
+
+		final int hash = key.hashCode;
+
+		return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+	}
+
+	/**
+	 * The quantised axis values of a search point.
+	 */
+	static final class Key {
+		private final long[] values;
+		private final int hashCode;
+
+		private Key(final long[] values) {
+			this.values = values;
+			this.hashCode = Arrays.hashCode(values);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(final Object other) {
+			return other instanceof Key && Arrays.equals(values, ((Key) other).values);
+		}
+	}
+
+	/**
+	 * A tree in the state it had when results were stored for it.
+	 */
+	private static final class TreeVersion<T extends Number & Comparable<T>> {
+		private final WeakReference<KdTree<T>> tree;
+		private final int modificationCount;
+
+		private TreeVersion(final KdTree<T> tree) {
+			this.tree = new WeakReference<>(tree);
+			this.modificationCount = tree.getModificationCount();
+		}
+
+		private boolean matches(final KdTree<T> tree) {
+			return this.tree.get() == tree && modificationCount == tree.getModificationCount();
+		}
+
+		/**
+		 * Returns whether the tree was garbage collected or changed since.
+		 */
+		private boolean isOutdated() {
+			final KdTree<T> tree = this.tree.get();
+
+			return tree == null || modificationCount != tree.getModificationCount();
+		}
+	}
+
+	private static final class CachedResult<T extends Number & Comparable<T>> {
+		private final TreeVersion<T> treeVersion;
+		private final KdPoint<T> point;
+
+		private CachedResult(final TreeVersion<T> treeVersion, final KdPoint<T> point) {
+			this.treeVersion = treeVersion;
+			this.point = point;
+		}
+	}
+
+	/**
+	 * A part of the cache, kept in access order so the eldest entry is the least
+	 * recently used one.
+	 */
+	private static final class Stripe<T extends Number & Comparable<T>> extends LinkedHashMap<Key, CachedResult<T>> {
+		private static final long serialVersionUID = 1L;
+
+		private final int maxSize;
+
+		private Stripe(final int maxSize) {
+			super(16, 0.75f, true);
+
+			this.maxSize = maxSize;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<Key, CachedResult<T>> eldest) {
+			return size() > maxSize;
+		}
+	}
+}
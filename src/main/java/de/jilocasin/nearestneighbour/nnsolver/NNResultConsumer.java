@@ -0,0 +1,15 @@
+package de.jilocasin.nearestneighbour.nnsolver;
+
+import de.jilocasin.nearestneighbour.kdtree.KdPoint;
+
+/**
+ * Receives the results of a streamed search of a {@link NNSolverOrchestrator},
+ * one search point at a time.
+ */
+@FunctionalInterface
+public interface NNResultConsumer<T extends Number & Comparable<T>, R> {
+	/**
+	 * Accepts the result for the search point at the given index of the input.
+	 */
+	void accept(long index, KdPoint<T> searchPoint, R result);
+}
@@ -0,0 +1,61 @@
+package de.jilocasin.nearestneighbour.nnsolver;
+
+/**
+ * <p>
+ * Receives the steps of each search run by a {@link NNSolver}, see
+ * {@link NNSolver#setSearchRecorder(NNSearchRecorder)}. All methods do nothing
+ * by default. {@link NNSearchStatistics} counts them per search and in total.
+ * </p>
+ *
+ * <p>
+ * The methods are called from the innermost loops of the search, so they
+ * should return quickly. A solver without a recorder does not call any of
+ * them.
+ * </p>
+ */
+public interface NNSearchRecorder {
+	/**
+	 * Called before each search.
+	 */
+	default void searchStarted() {
+	}
+
+	/**
+	 * Called for each node whose point is checked by the search, both on the way
+	 * down to a leaf and while moving back up.
+	 *
+	 * @param depth
+	 *            the depth of the node in its tree, starting with 0 for the root
+	 *            node.
+	 */
+	default void nodeVisited(final int depth) {
+	}
+
+	/**
+	 * Called for each distance between a tree point and the search point that
+	 * is computed.
+	 */
+	default void distanceComputed() {
+	}
+
+	/**
+	 * Called for each branch on the far side of a node which the search moves
+	 * down into after reaching a leaf, because it may contain nearer points.
+	 */
+	default void backtracked() {
+	}
+
+	/**
+	 * Called for each branch on the far side of a node which is skipped, because
+	 * it can't contain nearer points.
+	 */
+	default void branchPruned() {
+	}
+
+	/**
+	 * Called after each search, including searches which were cancelled or
+	 * failed.
+	 */
+	default void searchFinished() {
+	}
+}
@@ -0,0 +1,54 @@
+package de.jilocasin.nearestneighbour.nnsolver;
+
+import de.jilocasin.nearestneighbour.kdtree.KdPoint;
+
+/**
+ * The result of an approximate nearest neighbour search, see
+ * {@link NNSolver#findNearestPoint(KdPoint, double, int)}.
+ */
+public class NNSearchResult<T extends Number & Comparable<T>> {
+	private final KdPoint<T> point;
+	private final double distance;
+	private final boolean exact;
+	private final int leafVisitCount;
+
+	NNSearchResult(final KdPoint<T> point, final double distance, final boolean exact, final int leafVisitCount) {
+		this.point = point;
+		this.distance = distance;
+		this.exact = exact;
+		this.leafVisitCount = leafVisitCount;
+	}
+
+	/**
+	 * Returns the nearest point found, or null if the tree does not contain any
+	 * other point than the search point.
+	 */
+	public KdPoint<T> getPoint() {
+		return point;
+	}
+
+	/**
+	 * Returns the distance of the found point to the search point, measured by the
+	 * distance calculator of the solver. Returns {@link Double#POSITIVE_INFINITY}
+	 * if no point was found.
+	 */
+	public double getDistance() {
+		return distance;
+	}
+
+	/**
+	 * Returns true if the search did not skip any part of the tree that could
+	 * have contained a nearer point, so the found point is the exact nearest
+	 * neighbour.
+	 */
+	public boolean isExact() {
+		return exact;
+	}
+
+	/**
+	 * Returns the number of leaves the search moved down to.
+	 */
+	public int getLeafVisitCount() {
+		return leafVisitCount;
+	}
+}
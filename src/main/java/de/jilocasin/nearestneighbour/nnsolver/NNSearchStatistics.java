@@ -0,0 +1,192 @@
+package de.jilocasin.nearestneighbour.nnsolver;
+
+/**
+ * <p>
+ * Counts the steps of the searches of a {@link NNSolver}, both for the latest
+ * search and in total over all searches since the statistics were created or
+ * reset.
+ * </p>
+ *
+ * <p>
+ * Like the solver, an instance must not be used by several threads at the
+ * same time. Use one instance per solver and sum up the totals afterwards.
+ * </p>
+ */
+public class NNSearchStatistics implements NNSearchRecorder {
+	private long searchCount;
+
+	private int nodeVisitCount;
+	private int distanceComputationCount;
+	private int backtrackCount;
+	private int prunedBranchCount;
+	private int maxDepth;
+
+	private long totalNodeVisitCount;
+	private long totalDistanceComputationCount;
+	private long totalBacktrackCount;
+	private long totalPrunedBranchCount;
+	private int totalMaxDepth;
+
+	@Override
+	public void searchStarted() {
+		nodeVisitCount = 0;
+		distanceComputationCount = 0;
+		backtrackCount = 0;
+		prunedBranchCount = 0;
+		maxDepth = 0;
+	}
+
+	@Override
+	public void nodeVisited(final int depth) {
+		nodeVisitCount++;
+
+		if (depth > maxDepth) {
+			maxDepth = depth;
+		}
+	}
+
+	@Override
+	public void distanceComputed() {
+		distanceComputationCount++;
+	}
+
+	@Override
+	public void backtracked() {
+		backtrackCount++;
+	}
+
+	@Override
+	public void branchPruned() {
+		prunedBranchCount++;
+	}
+
+	@Override
+	public void searchFinished() {
+		searchCount++;
+
+		totalNodeVisitCount += nodeVisitCount;
+		totalDistanceComputationCount += distanceComputationCount;
+		totalBacktrackCount += backtrackCount;
+		totalPrunedBranchCount += prunedBranchCount;
+		totalMaxDepth = Math.max(totalMaxDepth, maxDepth);
+	}
+
+	/**
+	 * Resets all counts to 0.
+	 */
+	public void reset() {
+		searchStarted();
+
+		searchCount = 0;
+
+		totalNodeVisitCount = 0;
+		totalDistanceComputationCount = 0;
+		totalBacktrackCount = 0;
+		totalPrunedBranchCount = 0;
+		totalMaxDepth = 0;
+	}
+
+	/**
+	 * Returns the number of finished searches.
+	 */
+	public long getSearchCount() {
+		return searchCount;
+	}
+
+	/**
+	 * Returns the number of nodes visited by the latest search.
+	 */
+	public int getNodeVisitCount() {
+		return nodeVisitCount;
+	}
+
+	/**
+	 * Returns the number of distances computed by the latest search.
+	 */
+	public int getDistanceComputationCount() {
+		return distanceComputationCount;
+	}
+
+	/**
+	 * Returns the number of branches the latest search backtracked into.
+	 */
+	public int getBacktrackCount() {
+		return backtrackCount;
+	}
+
+	/**
+	 * Returns the number of branches skipped by the latest search.
+	 */
+	public int getPrunedBranchCount() {
+		return prunedBranchCount;
+	}
+
+	/**
+	 * Returns the depth of the deepest node visited by the latest search.
+	 */
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * Returns the share of the far side branches the latest search skipped,
+	 * between 0 and 1. Returns 1 if there were no such branches.
+	 */
+	public double getPruneRatio() {
+		return getPruneRatio(prunedBranchCount, backtrackCount);
+	}
+
+	public long getTotalNodeVisitCount() {
+		return totalNodeVisitCount;
+	}
+
+	public long getTotalDistanceComputationCount() {
+		return totalDistanceComputationCount;
+	}
+
+	public long getTotalBacktrackCount() {
+		return totalBacktrackCount;
+	}
+
+	public long getTotalPrunedBranchCount() {
+		return totalPrunedBranchCount;
+	}
+
+	/**
+	 * Returns the depth of the deepest node visited by any search.
+	 */
+	public int getTotalMaxDepth() {
+		return totalMaxDepth;
+	}
+
+	/**
+	 * Returns the share of the far side branches all searches skipped, between 0
+	 * and 1. Returns 1 if there were no such branches.
+	 */
+	public double getTotalPruneRatio() {
+		return getPruneRatio(totalPrunedBranchCount, totalBacktrackCount);
+	}
+
+	/**
+	 * Returns the average number of nodes visited per search, or 0 if there were
+	 * no searches.
+	 */
+	public double getAverageNodeVisitCount() {
+		return searchCount == 0 ? 0 : (double) totalNodeVisitCount / searchCount;
+	}
+
+	@Override
+	public String toString() {
+		return String.format(
+		        "searches: %d, nodes visited: %d, distances computed: %d, backtracks: %d, pruned branches: %d, "
+		                + "prune ratio: %.3f, max depth: %d",
+		        searchCount, totalNodeVisitCount, totalDistanceComputationCount, totalBacktrackCount,
+		        totalPrunedBranchCount, getTotalPruneRatio(), totalMaxDepth);
+	}
+
+	private static double getPruneRatio(final long prunedBranchCount, final long backtrackCount) {
+		final long branchCount = prunedBranchCount + backtrackCount;
+
+		return branchCount == 0 ? 1 : (double) prunedBranchCount / branchCount;
+	}
+}
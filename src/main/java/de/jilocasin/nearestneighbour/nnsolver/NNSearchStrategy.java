@@ -0,0 +1,30 @@
+package de.jilocasin.nearestneighbour.nnsolver;
+
+/**
+ * Defines how a {@link NNSolver} traverses the tree. All strategies return the
+ * same results, they only differ in performance.
+ */
+public enum NNSearchStrategy {
+	/**
+	 * Moves down to a leaf, then unwinds along the parent nodes and recursively
+	 * restarts the search for each branch on the other side that may contain
+	 * better points.
+	 */
+	RECURSIVE,
+
+	/**
+	 * Visits the child on the side of the search point first and remembers the
+	 * other child on a stack that is reused across searches, so no recursion and
+	 * no allocation is needed per search.
+	 */
+	ITERATIVE,
+
+	/**
+	 * Keeps all unexplored branches in a priority queue ordered by their distance
+	 * to the search point and always continues with the nearest one, until no
+	 * branch can contain better points. Visits fewer nodes than the depth-first
+	 * strategies on data with many dimensions, at the cost of maintaining the
+	 * queue.
+	 */
+	BEST_BIN_FIRST
+}
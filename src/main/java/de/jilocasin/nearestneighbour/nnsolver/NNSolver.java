@@ -1,23 +1,245 @@
 package de.jilocasin.nearestneighbour.nnsolver;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import de.jilocasin.nearestneighbour.kdtree.KdForest;
 import de.jilocasin.nearestneighbour.kdtree.KdNode;
 import de.jilocasin.nearestneighbour.kdtree.KdPoint;
 import de.jilocasin.nearestneighbour.kdtree.KdTree;
+import de.jilocasin.nearestneighbour.kdtree.distance.ChebyshevDistanceCalculator;
+import de.jilocasin.nearestneighbour.kdtree.distance.EuclideanDistanceCalculator;
+import de.jilocasin.nearestneighbour.kdtree.distance.HaversineDistanceCalculator;
+import de.jilocasin.nearestneighbour.kdtree.distance.KdDistanceCalculator;
+import de.jilocasin.nearestneighbour.kdtree.distance.ManhattanDistanceCalculator;
+import de.jilocasin.nearestneighbour.kdtree.distance.WeightedEuclideanDistanceCalculator;
 
 /**
+ * <p>
  * Solver class to find nearest neighbour elements in a given k-d tree. The tree
  * consists of nodes with points of the given generic type.
+ * </p>
+ * 
+ * <p>
+ * Distances are euclidean by default. Any other {@link KdDistanceCalculator}
+ * can be provided instead. The built-in calculators are called directly
+ * instead of through the interface, so the JIT can inline them.
+ * </p>
+ * 
+ * <p>
+ * A solver for a {@link KdForest} searches all of its trees for the nearest
+ * points, sharing the found candidates and the leaf visit budget between them.
+ * </p>
  */
 public class NNSolver<T extends Number & Comparable<T>> {
+	/**
+	 * Leaf visit budget of a search that may visit the whole tree.
+	 */
+	public static final int UNLIMITED_LEAF_VISITS = Integer.MAX_VALUE;
+
+	/**
+	 * Initial capacity of the node stack used by the iterative strategy. It only
+	 * grows beyond this for trees deeper than this.
+	 */
+	private static final int INITIAL_STACK_CAPACITY = 64;
+
+	/**
+	 * A cancellation check is run every time this number of leaves was visited.
+	 * Must be a power of two.
+	 */
+	private static final int CANCELLATION_CHECK_INTERVAL = 64;
+
 	private final KdTree<T> tree;
+	private final NNSearchStrategy strategy;
+
+	/**
+	 * The trees to search for the nearest points. Radius searches only search the
+	 * first tree, since they have to visit all points in range anyway.
+	 */
+	private final List<KdTree<T>> searchTrees;
+	private final List<KdTree<T>> radiusSearchTrees;
+
+	private final KdDistanceCalculator distanceCalculator;
+	private final DistanceType distanceType;
+
+	private final NNNearestPointCollector<T> nearestPointCollector = new NNNearestPointCollector<>();
+	private final NNCandidateHeap<T> candidateHeap;
+	private final NNRadiusCollector<T> radiusCollector = new NNRadiusCollector<>();
 
 	private KdPoint<T> searchTargetPoint;
 
-	private KdPoint<T> currentBestPoint;
-	private double currentBestDistanceSquared;
+	private NNCandidateCollector<T> collector;
+
+	/**
+	 * The actual distance to the current best point is divided by this factor
+	 * before deciding whether a branch may contain nearer points. 1 for exact
+	 * searches.
+	 */
+	private double epsilonFactor = 1;
 
+	private int maxLeafVisits = UNLIMITED_LEAF_VISITS;
+	private int leafVisitCount;
+
+	/**
+	 * Whether the current search did not skip any branch that may contain nearer
+	 * points.
+	 */
+	private boolean exact;
+
+	/**
+	 * Nodes still to visit by the iterative strategy, with the comparable distance
+	 * of the search point to their subtree.
+	 */
+	private KdNode<T>[] nodeStack;
+	private double[] nodeStackDistances;
+
+	/**
+	 * Branches still to visit by the best-bin-first strategy.
+	 */
+	private NNBranchQueue<T> branchQueue;
+
+	/**
+	 * Returns true once the current search should be stopped, or null if searches
+	 * can't be cancelled.
+	 */
+	private BooleanSupplier cancellationCheck;
+
+	/**
+	 * Caches the results of exact nearest point searches, or null.
+	 */
+	private NNResultCache<T> resultCache;
+
+	/**
+	 * Whether the current search found the search point itself in the tree and
+	 * skipped it.
+	 */
+	private boolean searchTargetSkipped;
+
+	/**
+	 * Receives the steps of each search, or null.
+	 */
+	private NNSearchRecorder searchRecorder;
+
+	/**
+	 * Creates a solver using the {@link NNSearchStrategy#ITERATIVE} strategy and
+	 * euclidean distances.
+	 */
 	public NNSolver(final KdTree<T> tree) {
-		this.tree = tree;
+		this(tree, NNSearchStrategy.ITERATIVE);
+	}
+
+	/**
+	 * Creates a solver using euclidean distances.
+	 */
+	public NNSolver(final KdTree<T> tree, final NNSearchStrategy strategy) {
+		this(tree, strategy, new EuclideanDistanceCalculator());
+	}
+
+	/**
+	 * Creates a solver using the {@link NNSearchStrategy#ITERATIVE} strategy and
+	 * the provided distance calculator.
+	 */
+	public NNSolver(final KdTree<T> tree, final KdDistanceCalculator distanceCalculator) {
+		this(tree, NNSearchStrategy.ITERATIVE, distanceCalculator);
+	}
+
+	public NNSolver(final KdTree<T> tree, final NNSearchStrategy strategy,
+	        final KdDistanceCalculator distanceCalculator) {
+		this(Collections.singletonList(tree), strategy, distanceCalculator);
+	}
+
+	/**
+	 * Creates a solver for all trees of the provided forest, using the
+	 * {@link NNSearchStrategy#BEST_BIN_FIRST} strategy and euclidean distances.
+	 */
+	public NNSolver(final KdForest<T> forest) {
+		this(forest, NNSearchStrategy.BEST_BIN_FIRST, new EuclideanDistanceCalculator());
+	}
+
+	/**
+	 * Creates a solver for all trees of the provided forest. The best-bin-first
+	 * strategy keeps the branches of all trees in a single queue, so the search
+	 * always continues in the tree with the most promising branch. The other
+	 * strategies search the trees one after another.
+	 */
+	public NNSolver(final KdForest<T> forest, final NNSearchStrategy strategy,
+	        final KdDistanceCalculator distanceCalculator) {
+		this(forest.getTrees(), strategy, distanceCalculator);
+	}
+
+	private NNSolver(final List<KdTree<T>> trees, final NNSearchStrategy strategy,
+	        final KdDistanceCalculator distanceCalculator) {
+		this.tree = trees.get(0);
+		this.strategy = strategy;
+
+		this.searchTrees = trees;
+		this.radiusSearchTrees = Collections.singletonList(tree);
+
+		// The trees of a forest share their points, so each point may be found more
+		// than once.
+
+		this.candidateHeap = new NNCandidateHeap<>(trees.size() > 1);
+
+		this.distanceCalculator = distanceCalculator;
+		this.distanceType = DistanceType.of(distanceCalculator);
+
+		if (strategy == NNSearchStrategy.ITERATIVE) {
+			this.nodeStack = newNodeArray(INITIAL_STACK_CAPACITY);
+			this.nodeStackDistances = new double[INITIAL_STACK_CAPACITY];
+		} else if (strategy == NNSearchStrategy.BEST_BIN_FIRST) {
+			this.branchQueue = new NNBranchQueue<>();
+		}
+	}
+
+	/**
+	 * Returns the tree of this solver, or the first tree of its forest.
+	 */
+	public KdTree<T> getTree() {
+		return tree;
+	}
+
+	public KdDistanceCalculator getDistanceCalculator() {
+		return distanceCalculator;
+	}
+
+	/**
+	 * Sets a check that is run regularly during each search. Once it returns
+	 * true, the search is stopped by throwing a {@link CancellationException}.
+	 * Pass null to remove the check.
+	 */
+	void setCancellationCheck(final BooleanSupplier cancellationCheck) {
+		this.cancellationCheck = cancellationCheck;
+	}
+
+	public NNSearchRecorder getSearchRecorder() {
+		return searchRecorder;
+	}
+
+	/**
+	 * Sets a recorder for the steps of each search of this solver, e.g. a
+	 * {@link NNSearchStatistics} to find out why some searches are slower than
+	 * others. Pass null to stop recording. Without a recorder, the search only
+	 * checks for it at each step, which costs next to nothing.
+	 */
+	public void setSearchRecorder(final NNSearchRecorder searchRecorder) {
+		this.searchRecorder = searchRecorder;
+	}
+
+	public NNResultCache<T> getResultCache() {
+		return resultCache;
+	}
+
+	/**
+	 * Sets a cache for the results of {@link #findNearestPoint(KdPoint)}, which may
+	 * be shared with other solvers using the same distance calculator. Pass null
+	 * to search the tree every time.
+	 */
+	public void setResultCache(final NNResultCache<T> resultCache) {
+		this.resultCache = resultCache;
 	}
 
 	/**
@@ -29,12 +251,248 @@ public class NNSolver<T extends Number & Comparable<T>> {
 	 * @return
 	 */
 	public KdPoint<T> findNearestPoint(final KdPoint<T> searchTargetPoint) {
+		if (resultCache != null) {
+			return findNearestPointCached(searchTargetPoint);
+		}
+
+		nearestPointCollector.reset();
+
+		solve(searchTargetPoint, nearestPointCollector, searchTrees);
+
+		return nearestPointCollector.getPoint();
+	}
+
+	private KdPoint<T> findNearestPointCached(final KdPoint<T> searchTargetPoint) {
+		final NNResultCache<T> resultCache = this.resultCache;
+		final NNResultCache.Key key = resultCache.createKey(searchTargetPoint);
+
+		final KdPoint<T> cachedPoint = resultCache.get(key, tree, searchTargetPoint);
+
+		if (cachedPoint != null) {
+			return cachedPoint;
+		}
+
+		nearestPointCollector.reset();
+
+		solve(searchTargetPoint, nearestPointCollector, searchTrees);
+
+		final KdPoint<T> point = nearestPointCollector.getPoint();
+
+		// A search point included in the tree is not its own neighbour, so the result
+		// is only valid for this point instance.
+
+		if (point != null && !searchTargetSkipped) {
+			resultCache.put(key, tree, point);
+		}
+
+		return point;
+	}
+
+	/**
+	 * Returns a (1 + epsilon)-approximate nearest neighbour of the provided target
+	 * point. See {@link #findNearestPoint(KdPoint, double, int)}.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if epsilon is negative.
+	 */
+	public NNSearchResult<T> findNearestPoint(final KdPoint<T> searchTargetPoint, final double epsilon) {
+		return findNearestPoint(searchTargetPoint, epsilon, UNLIMITED_LEAF_VISITS);
+	}
+
+	/**
+	 * <p>
+	 * Returns an approximate nearest neighbour of the provided target point,
+	 * trading exactness for fewer visited nodes.
+	 * </p>
+	 * 
+	 * <p>
+	 * Branches of the tree are skipped unless they may contain a point that is
+	 * nearer than the current best distance divided by <code>1 + epsilon</code>.
+	 * The distance of the returned point is therefore at most
+	 * <code>1 + epsilon</code> times the distance of the exact nearest neighbour.
+	 * An epsilon of 0 returns the exact nearest neighbour.
+	 * </p>
+	 * 
+	 * <p>
+	 * Independent of epsilon, the search stops after moving down to the given
+	 * number of leaves and returns the best point found so far. The result
+	 * reports whether either limit made the search skip any part of the tree
+	 * that may have contained a nearer point.
+	 * </p>
+	 * 
+	 * @param epsilon
+	 *            the allowed relative error of the distance.
+	 * @param maxLeafVisits
+	 *            the maximum number of leaves to move down to, or
+	 *            {@link #UNLIMITED_LEAF_VISITS}.
+	 * @throws IllegalArgumentException
+	 *             if epsilon is negative or the leaf visit budget is less than 1.
+	 */
+	public NNSearchResult<T> findNearestPoint(final KdPoint<T> searchTargetPoint, final double epsilon,
+	        final int maxLeafVisits) {
+		if (!(epsilon >= 0)) {
+			throw new IllegalArgumentException("epsilon must not be negative, but was " + epsilon);
+		}
+
+		if (maxLeafVisits < 1) {
+			throw new IllegalArgumentException("maxLeafVisits must be at least 1, but was " + maxLeafVisits);
+		}
+
+		this.epsilonFactor = 1 + epsilon;
+		this.maxLeafVisits = maxLeafVisits;
+
+		nearestPointCollector.reset();
+
+		solve(searchTargetPoint, nearestPointCollector, searchTrees);
+
+		final KdPoint<T> point = nearestPointCollector.getPoint();
+		final double distance = point == null ? Double.POSITIVE_INFINITY
+		        : distanceCalculator.fromComparableDistance(nearestPointCollector.getMaxDistance());
+
+		return new NNSearchResult<>(point, distance, exact, leafVisitCount);
+	}
+
+	/**
+	 * <p>
+	 * Returns the k nearest tree points to the provided target point, ordered by
+	 * their distance to it, nearest first. If the tree contains less than k
+	 * points, all of them are returned.
+	 * </p>
+	 * 
+	 * <p>
+	 * Just like {@link #findNearestPoint(KdPoint)}, a point instance included in
+	 * the tree data will not be returned as its own neighbour.
+	 * </p>
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if k is less than 1.
+	 */
+	public List<KdPoint<T>> findKNearestPoints(final KdPoint<T> searchTargetPoint, final int k) {
+		if (k < 1) {
+			throw new IllegalArgumentException("k must be at least 1, but was " + k);
+		}
+
+		candidateHeap.reset(k);
+
+		solve(searchTargetPoint, candidateHeap, searchTrees);
+
+		return candidateHeap.pollAllSorted();
+	}
+
+	/**
+	 * <p>
+	 * Passes every tree point within the provided radius around the target point
+	 * to the consumer, without collecting them. Points exactly on the radius are
+	 * included. The order of the points is unspecified. The radius is measured by
+	 * the distance calculator of this solver.
+	 * </p>
+	 * 
+	 * <p>
+	 * Just like {@link #findNearestPoint(KdPoint)}, a point instance included in
+	 * the tree data will not be passed as its own neighbour.
+	 * </p>
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the radius is negative.
+	 */
+	public void findPointsWithinRadius(final KdPoint<T> searchTargetPoint, final double radius,
+	        final Consumer<? super KdPoint<T>> consumer) {
+		solveWithinRadius(searchTargetPoint, radius, consumer);
+	}
+
+	/**
+	 * Returns the number of tree points {@link #findPointsWithinRadius} would pass
+	 * to its consumer.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the radius is negative.
+	 */
+	public int countPointsWithinRadius(final KdPoint<T> searchTargetPoint, final double radius) {
+		return solveWithinRadius(searchTargetPoint, radius, null);
+	}
+
+	/**
+	 * Passes every tree point inside the axis aligned box between the provided
+	 * corner points to the consumer, without collecting them. The box includes its
+	 * borders, so a point is inside if each of its axis values is greater than or
+	 * equal to the value of the minimum point and less than or equal to the value
+	 * of the maximum point. The order of the points is unspecified.
+	 */
+	public void findPointsInRange(final KdPoint<T> minPoint, final KdPoint<T> maxPoint,
+	        final Consumer<? super KdPoint<T>> consumer) {
+		solveInRange(tree.getRootNode(), minPoint, maxPoint, consumer);
+	}
+
+	/**
+	 * Returns the number of tree points {@link #findPointsInRange} would pass to
+	 * its consumer.
+	 */
+	public int countPointsInRange(final KdPoint<T> minPoint, final KdPoint<T> maxPoint) {
+		return solveInRange(tree.getRootNode(), minPoint, maxPoint, null);
+	}
+
+	private int solveWithinRadius(final KdPoint<T> searchTargetPoint, final double radius,
+	        final Consumer<? super KdPoint<T>> consumer) {
+		if (radius < 0) {
+			throw new IllegalArgumentException("radius must not be negative, but was " + radius);
+		}
+
+		radiusCollector.reset(distanceCalculator.toComparableDistance(radius), consumer);
+
+		solve(searchTargetPoint, radiusCollector, radiusSearchTrees);
+
+		return radiusCollector.getCount();
+	}
+
+	private void solve(final KdPoint<T> searchTargetPoint, final NNCandidateCollector<T> collector,
+	        final List<KdTree<T>> trees) {
+		this.leafVisitCount = 0;
+		this.exact = true;
+		this.searchTargetSkipped = false;
+
 		this.searchTargetPoint = searchTargetPoint;
-		this.currentBestPoint = null;
+		this.collector = collector;
+
+		if (searchRecorder != null) {
+			searchRecorder.searchStarted();
+		}
+
+		try {
+			if (strategy == NNSearchStrategy.ITERATIVE) {
+				solveIteratively(trees);
+			} else if (strategy == NNSearchStrategy.BEST_BIN_FIRST) {
+				solveBestBinFirst(trees);
+			} else {
+				solveRecursively(trees);
+			}
+		} finally {
+			// Don't keep the caller's point reachable after the search, and drop any
+			// branches left by a cancelled search. The next search is exact unless it
+			// sets its own limits, even if this one failed.
 
-		solveForNode(tree.rootNode);
+			this.searchTargetPoint = null;
 
-		return currentBestPoint;
+			this.epsilonFactor = 1;
+			this.maxLeafVisits = UNLIMITED_LEAF_VISITS;
+
+			if (branchQueue != null) {
+				branchQueue.clear();
+			}
+
+			if (searchRecorder != null) {
+				searchRecorder.searchFinished();
+			}
+		}
+	}
+
+	private void solveRecursively(final List<KdTree<T>> trees) {
+		for (int treeIndex = 0; treeIndex < trees.size(); treeIndex++) {
+			final KdNode<T> rootNode = trees.get(treeIndex).getRootNode();
+
+			if (rootNode != null && takeLeafVisit()) {
+				solveForNode(rootNode);
+			}
+		}
 	}
 
 	private void solveForNode(final KdNode<T> node) {
@@ -43,7 +501,7 @@ public class NNSolver<T extends Number & Comparable<T>> {
 
 		final KdNode<T> leaf = findLeaf(node);
 
-		updateCurrentBestIfNeeded(leaf.point);
+		updateCurrentBestIfNeeded(leaf);
 
 		// Then unwind from this leaf, possibly calling this node solver recursively for
 		// different branches.
@@ -51,7 +509,193 @@ public class NNSolver<T extends Number & Comparable<T>> {
 		unwindFrom(leaf, node);
 	}
 
+	private void solveIteratively(final List<KdTree<T>> trees) {
+		int stackSize = 0;
+
+		// Push the roots in reverse order, so the first tree is searched first.
+
+		for (int treeIndex = trees.size() - 1; treeIndex >= 0; treeIndex--) {
+			final KdNode<T> rootNode = trees.get(treeIndex).getRootNode();
+
+			if (rootNode == null) {
+				continue;
+			}
+
+			if (stackSize == nodeStack.length) {
+				growNodeStack();
+			}
+
+			nodeStack[stackSize] = rootNode;
+			nodeStackDistances[stackSize] = 0;
+			stackSize++;
+		}
+
+		while (stackSize > 0) {
+			stackSize--;
+
+			KdNode<T> node = nodeStack[stackSize];
+			nodeStack[stackSize] = null;
+
+			// The collector may have found better points since this node was pushed.
+
+			if (!isWorthVisiting(nodeStackDistances[stackSize])) {
+				recordBranchPruned();
+
+				continue;
+			}
+
+			if (!takeLeafVisit()) {
+				continue;
+			}
+
+			if (searchRecorder != null && node.hasParentNode()) {
+				searchRecorder.backtracked();
+			}
+
+			// Move down to a leaf, always following the side of the search point and
+			// remembering the other side if the hyperplane is close enough.
+
+			while (node != null) {
+				if (searchRecorder != null) {
+					searchRecorder.nodeVisited(node.depth);
+				}
+
+				updateCurrentBestIfNeeded(node);
+
+				final double nodePointValue = node.point.getAxisValue(node.axisIndex).doubleValue();
+				final double searchPointValue = searchTargetPoint.getAxisValue(node.axisIndex).doubleValue();
+
+				final double axisDistance = searchPointValue - nodePointValue;
+				final double comparableAxisDistance = getComparableAxisDistance(node, axisDistance);
+
+				final KdNode<T> nearNode;
+				final KdNode<T> farNode;
+
+				if (axisDistance > 0) {
+					nearNode = node.getRightNode();
+					farNode = node.getLeftNode();
+				} else {
+					nearNode = node.getLeftNode();
+					farNode = node.getRightNode();
+				}
+
+				if (farNode != null) {
+					if (isWorthVisiting(comparableAxisDistance)) {
+						if (stackSize == nodeStack.length) {
+							growNodeStack();
+						}
+
+						nodeStack[stackSize] = farNode;
+						nodeStackDistances[stackSize] = comparableAxisDistance;
+						stackSize++;
+					} else {
+						recordBranchPruned();
+					}
+				}
+
+				node = nearNode;
+			}
+		}
+	}
+
+	private void solveBestBinFirst(final List<KdTree<T>> trees) {
+		for (int treeIndex = 0; treeIndex < trees.size(); treeIndex++) {
+			final KdNode<T> rootNode = trees.get(treeIndex).getRootNode();
+
+			if (rootNode != null) {
+				branchQueue.add(rootNode, 0);
+			}
+		}
+
+		while (!branchQueue.isEmpty()) {
+			// All other branches are at least as far away as the nearest one, so the search
+			// is done as soon as it can't contain better points.
+
+			final double branchDistance = branchQueue.peekDistance();
+
+			if (!isWorthVisiting(branchDistance)) {
+				if (searchRecorder != null) {
+					for (int i = 0; i < branchQueue.size(); i++) {
+						searchRecorder.branchPruned();
+					}
+				}
+
+				break;
+			}
+
+			if (!takeLeafVisit()) {
+				break;
+			}
+
+			KdNode<T> node = branchQueue.poll();
+
+			if (searchRecorder != null && node.hasParentNode()) {
+				searchRecorder.backtracked();
+			}
+
+			// Move down to a leaf, always following the side of the search point and
+			// queueing the other side if the hyperplane is close enough.
+
+			while (node != null) {
+				if (searchRecorder != null) {
+					searchRecorder.nodeVisited(node.depth);
+				}
+
+				updateCurrentBestIfNeeded(node);
+
+				final double nodePointValue = node.point.getAxisValue(node.axisIndex).doubleValue();
+				final double searchPointValue = searchTargetPoint.getAxisValue(node.axisIndex).doubleValue();
+
+				final double axisDistance = searchPointValue - nodePointValue;
+				final double comparableAxisDistance = getComparableAxisDistance(node, axisDistance);
+
+				final KdNode<T> nearNode;
+				final KdNode<T> farNode;
+
+				if (axisDistance > 0) {
+					nearNode = node.getRightNode();
+					farNode = node.getLeftNode();
+				} else {
+					nearNode = node.getLeftNode();
+					farNode = node.getRightNode();
+				}
+
+				// The other side is at least as far away as this branch and the hyperplane.
+
+				final double farDistance = Math.max(branchDistance, comparableAxisDistance);
+
+				if (farNode != null) {
+					if (isWorthVisiting(farDistance)) {
+						branchQueue.add(farNode, farDistance);
+					} else {
+						recordBranchPruned();
+					}
+				}
+
+				node = nearNode;
+			}
+		}
+	}
+
+	private void growNodeStack() {
+		final KdNode<T>[] grownStack = newNodeArray(nodeStack.length * 2);
+
+		System.arraycopy(nodeStack, 0, grownStack, 0, nodeStack.length);
+
+		nodeStack = grownStack;
+		nodeStackDistances = Arrays.copyOf(nodeStackDistances, grownStack.length);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T extends Number & Comparable<T>> KdNode<T>[] newNodeArray(final int length) {
+		return (KdNode<T>[]) new KdNode<?>[length];
+	}
+
 	private KdNode<T> findLeaf(final KdNode<T> node) {
+		if (searchRecorder != null) {
+			searchRecorder.nodeVisited(node.depth);
+		}
+
 		if (node.hasChildren()) {
 			if (node.numberOfChildren() == 1) {
 				// One children. Use the single sub node to continue.
@@ -85,29 +729,196 @@ public class NNSolver<T extends Number & Comparable<T>> {
 	}
 
 	/**
-	 * Updates the current best, if no current best is set or the provided point is
-	 * better than the current best.
+	 * Offers the point of the provided node to the collector of the current
+	 * search, which keeps it if it is better than its current candidates.
 	 */
-	private void updateCurrentBestIfNeeded(final KdPoint<T> point) {
-		// Don't use the actual search point as the best point.
+	private void updateCurrentBestIfNeeded(final KdNode<T> node) {
+		final KdPoint<T> point = node.point;
+
+		// Don't use the actual search point or removed points as the best point.
 
 		if (point == searchTargetPoint) {
+			searchTargetSkipped = true;
+
 			return;
 		}
 
-		if (currentBestPoint == null) {
-			currentBestPoint = point;
-			currentBestDistanceSquared = point.getDistanceSquared(searchTargetPoint);
-		} else {
-			// Cache the leaf distance, to only do the distance calculation once.
+		if (node.isRemoved()) {
+			return;
+		}
 
-			final double leafDistanceSquared = point.getDistanceSquared(searchTargetPoint);
+		if (searchRecorder != null) {
+			searchRecorder.distanceComputed();
+		}
+
+		collector.offer(point, getComparableDistance(point));
+	}
+
+	private void recordBranchPruned() {
+		if (searchRecorder != null) {
+			searchRecorder.branchPruned();
+		}
+	}
 
-			if (leafDistanceSquared < currentBestDistanceSquared) {
-				currentBestPoint = point;
-				currentBestDistanceSquared = leafDistanceSquared;
+	/**
+	 * Returns the comparable distance of the provided point to the search target.
+	 */
+	private double getComparableDistance(final KdPoint<T> point) {
+		// Call the built-in calculators through their final classes, so each call site
+		// only ever sees a single implementation.
+
+		switch (distanceType) {
+		case EUCLIDEAN:
+			return point.getDistanceSquared(searchTargetPoint);
+		case MANHATTAN:
+			return ((ManhattanDistanceCalculator) distanceCalculator).getComparableDistance(point, searchTargetPoint);
+		case CHEBYSHEV:
+			return ((ChebyshevDistanceCalculator) distanceCalculator).getComparableDistance(point, searchTargetPoint);
+		case WEIGHTED_EUCLIDEAN:
+			return ((WeightedEuclideanDistanceCalculator) distanceCalculator).getComparableDistance(point,
+			        searchTargetPoint);
+		case HAVERSINE:
+			return ((HaversineDistanceCalculator) distanceCalculator).getComparableDistance(point, searchTargetPoint);
+		default:
+			return distanceCalculator.getComparableDistance(point, searchTargetPoint);
+		}
+	}
+
+	/**
+	 * Returns the comparable distance of the search target to any point on the
+	 * other side of the provided node, given the difference between their values
+	 * on the axis of the node.
+	 */
+	private double getComparableAxisDistance(final KdNode<T> node, final double axisDistance) {
+		switch (distanceType) {
+		case EUCLIDEAN:
+			return axisDistance * axisDistance;
+		case MANHATTAN:
+		case CHEBYSHEV:
+			return Math.abs(axisDistance);
+		case WEIGHTED_EUCLIDEAN:
+			return ((WeightedEuclideanDistanceCalculator) distanceCalculator)
+			        .getComparableAxisDistance(searchTargetPoint, node.axisIndex, getSplitValue(node));
+		case HAVERSINE:
+			return ((HaversineDistanceCalculator) distanceCalculator).getComparableAxisDistance(searchTargetPoint,
+			        node.axisIndex, getSplitValue(node));
+		default:
+			return distanceCalculator.getComparableAxisDistance(searchTargetPoint, node.axisIndex,
+			        getSplitValue(node));
+		}
+	}
+
+	/**
+	 * Returns whether a branch with the provided comparable distance to the search
+	 * target has to be visited. Marks the search as not exact if the branch is
+	 * only skipped because of the epsilon of an approximate search.
+	 */
+	private boolean isWorthVisiting(final double comparableBranchDistance) {
+		final double maxDistance = collector.getMaxDistance();
+
+		if (comparableBranchDistance >= maxDistance) {
+			return false;
+		}
+
+		if (epsilonFactor == 1 || maxDistance == Double.POSITIVE_INFINITY
+		        || comparableBranchDistance < getApproximateMaxDistance(maxDistance)) {
+			return true;
+		}
+
+		exact = false;
+
+		return false;
+	}
+
+	/**
+	 * Returns the comparable distance of the actual distance belonging to the
+	 * provided comparable distance, divided by the epsilon factor.
+	 */
+	private double getApproximateMaxDistance(final double maxDistance) {
+		switch (distanceType) {
+		case EUCLIDEAN:
+		case WEIGHTED_EUCLIDEAN:
+			return maxDistance / (epsilonFactor * epsilonFactor);
+		case MANHATTAN:
+		case CHEBYSHEV:
+			return maxDistance / epsilonFactor;
+		default:
+			return distanceCalculator
+			        .toComparableDistance(distanceCalculator.fromComparableDistance(maxDistance) / epsilonFactor);
+		}
+	}
+
+	/**
+	 * Counts a visit of the next leaf, if the leaf visit budget allows it.
+	 * Otherwise marks the search as not exact, since the leaf may contain nearer
+	 * points.
+	 */
+	private boolean takeLeafVisit() {
+		if (leafVisitCount == maxLeafVisits) {
+			exact = false;
+
+			return false;
+		}
+
+		leafVisitCount++;
+
+		if (cancellationCheck != null && (leafVisitCount & (CANCELLATION_CHECK_INTERVAL - 1)) == 0
+		        && cancellationCheck.getAsBoolean()) {
+			throw new CancellationException("The search was cancelled");
+		}
+
+		return true;
+	}
+
+	private double getSplitValue(final KdNode<T> node) {
+		return node.point.getAxisValue(node.axisIndex).doubleValue();
+	}
+
+	private int solveInRange(final KdNode<T> node, final KdPoint<T> minPoint, final KdPoint<T> maxPoint,
+	        final Consumer<? super KdPoint<T>> consumer) {
+		if (node == null) {
+			return 0;
+		}
+
+		int count = 0;
+
+		if (!node.isRemoved() && isInRange(node.point, minPoint, maxPoint)) {
+			count++;
+
+			if (consumer != null) {
+				consumer.accept(node.point);
+			}
+		}
+
+		// Just like the nearest neighbour search, only continue on either side of the
+		// node if the box intersects the hyperplane on that side. All points in the
+		// left subtree are less than or equal to the node value on its axis, all
+		// points in the right subtree are greater.
+
+		final T nodeValue = node.point.getAxisValue(node.axisIndex);
+
+		if (minPoint.getAxisValue(node.axisIndex).compareTo(nodeValue) <= 0) {
+			count += solveInRange(node.getLeftNode(), minPoint, maxPoint, consumer);
+		}
+
+		if (maxPoint.getAxisValue(node.axisIndex).compareTo(nodeValue) > 0) {
+			count += solveInRange(node.getRightNode(), minPoint, maxPoint, consumer);
+		}
+
+		return count;
+	}
+
+	private boolean isInRange(final KdPoint<T> point, final KdPoint<T> minPoint, final KdPoint<T> maxPoint) {
+		for (int axisIndex = 0; axisIndex < tree.dimensionCount; axisIndex++) {
+			final T value = point.getAxisValue(axisIndex);
+
+			if (value.compareTo(minPoint.getAxisValue(axisIndex)) < 0
+			        || value.compareTo(maxPoint.getAxisValue(axisIndex)) > 0) {
+				return false;
 			}
 		}
+
+		return true;
 	}
 
 	private void unwindFrom(final KdNode<T> leafNode, final KdNode<T> topNode) {
@@ -118,7 +929,7 @@ public class NNSolver<T extends Number & Comparable<T>> {
 		while (workingNode.getParentNode() != topNode.getParentNode()) {
 			final KdNode<T> parentNode = workingNode.getParentNode();
 
-			updateCurrentBestIfNeeded(parentNode.point);
+			updateCurrentBestIfNeeded(parentNode);
 
 			// Check whether there could be any points on the other side of this parent
 			// node.
@@ -132,12 +943,18 @@ public class NNSolver<T extends Number & Comparable<T>> {
 
 			final double axisDistance = parentPointValue - searchPointValue;
 
-			// Because we need to compare apples to apples, we need to calculate the squared
-			// distance.
+			// Because we need to compare apples to apples, we need to calculate the
+			// comparable distance.
+
+			final double comparableAxisDistance = getComparableAxisDistance(parentNode, axisDistance);
 
-			final double axisDistanceSquared = axisDistance * axisDistance;
+			if (parentNode.numberOfChildren() == 2 && !isWorthVisiting(comparableAxisDistance)) {
+				recordBranchPruned();
+			} else if (parentNode.numberOfChildren() == 2 && takeLeafVisit()) {
+				if (searchRecorder != null) {
+					searchRecorder.backtracked();
+				}
 
-			if (axisDistanceSquared < currentBestDistanceSquared && parentNode.numberOfChildren() == 2) {
 				// We want to traverse the other path, so we need to check which side we started
 				// unwinding from.
 
@@ -155,4 +972,27 @@ public class NNSolver<T extends Number & Comparable<T>> {
 			workingNode = parentNode;
 		}
 	}
+
+	/**
+	 * The built-in distance calculators with a fast path in this solver.
+	 */
+	private enum DistanceType {
+		EUCLIDEAN, MANHATTAN, CHEBYSHEV, WEIGHTED_EUCLIDEAN, HAVERSINE, OTHER;
+
+		static DistanceType of(final KdDistanceCalculator distanceCalculator) {
+			if (distanceCalculator instanceof EuclideanDistanceCalculator) {
+				return EUCLIDEAN;
+			} else if (distanceCalculator instanceof ManhattanDistanceCalculator) {
+				return MANHATTAN;
+			} else if (distanceCalculator instanceof ChebyshevDistanceCalculator) {
+				return CHEBYSHEV;
+			} else if (distanceCalculator instanceof WeightedEuclideanDistanceCalculator) {
+				return WEIGHTED_EUCLIDEAN;
+			} else if (distanceCalculator instanceof HaversineDistanceCalculator) {
+				return HAVERSINE;
+			}
+
+			return OTHER;
+		}
+	}
 }
@@ -1,72 +1,663 @@
 package de.jilocasin.nearestneighbour.nnsolver;
 
-import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import de.jilocasin.nearestneighbour.kdtree.KdPoint;
 import de.jilocasin.nearestneighbour.kdtree.KdTree;
+import de.jilocasin.nearestneighbour.kdtree.VersionedKdTree;
 
-public class NNSolverOrchestrator<T extends Number & Comparable<T>> {
-	private final KdTree<T> tree;
+/**
+ * <p>
+ * Distributes the search for many points to the threads of an executor.
+ * </p>
+ * 
+ * <p>
+ * The search points of each call are split into small chunks, so idle threads
+ * can pick up the remaining chunks while others are still busy with a slow
+ * region of the tree. Solvers are reused across chunks and calls, so their
+ * buffers are only allocated once per concurrently running chunk.
+ * </p>
+ * 
+ * <p>
+ * By default the searches run in the order of the search points. With
+ * {@link NNQueryOrder#MORTON}, they are sorted along a space-filling curve
+ * first, so each chunk contains points close to each other.
+ * </p>
+ * 
+ * <p>
+ * Inputs too large to be held in memory can be streamed from an
+ * {@link Iterator}. Only a fixed number of chunks is in flight at any time,
+ * and the results are passed to a consumer in the order of the search points.
+ * </p>
+ * 
+ * <p>
+ * When set up with a {@link VersionedKdTree}, each call searches the snapshot
+ * that was the latest one when the call started, so all results of a call are
+ * consistent even if the tree is updated meanwhile.
+ * </p>
+ * 
+ * <p>
+ * Close an orchestrator once it is not needed anymore. This shuts down the
+ * fork/join pool it created, if any, and releases its solvers. Executors
+ * provided by the caller are left running.
+ * </p>
+ */
+public class NNSolverOrchestrator<T extends Number & Comparable<T>> implements AutoCloseable {
+	/**
+	 * The number of chunks per worker thread the search points are split into.
+	 */
+	private static final int CHUNKS_PER_WORKER_THREAD = 16;
+
+	/**
+	 * The minimum number of search points per chunk, so the overhead of a single
+	 * task stays small compared to its work.
+	 */
+	private static final int MIN_CHUNK_SIZE = 64;
+
+	/**
+	 * The default number of search points per chunk of a streamed search.
+	 */
+	public static final int DEFAULT_STREAM_CHUNK_SIZE = 1024;
+
+	/**
+	 * The number of chunks per worker thread a streamed search keeps in flight,
+	 * so each thread can start on its next chunk while the results of the
+	 * previous one are consumed.
+	 */
+	private static final int STREAM_CHUNKS_PER_WORKER_THREAD = 2;
+
+	private final Supplier<KdTree<T>> treeSupplier;
+	private final ExecutorService executor;
 	private final int workerThreadsCount;
 
 	/**
-	 * Creates a solver orchestrator with its worker count initialized to the number
-	 * of available processors on the local system.
+	 * Whether the executor was created by this orchestrator and has to be shut
+	 * down by it.
+	 */
+	private final boolean ownsExecutor;
+
+	/**
+	 * Solvers not used by any chunk right now, most recently used first. Unlike
+	 * thread locals, they don't stay reachable from the worker threads once this
+	 * orchestrator is discarded.
+	 */
+	private final ConcurrentLinkedDeque<NNSolver<T>> idleSolvers = new ConcurrentLinkedDeque<>();
+
+	private volatile NNResultCache<T> resultCache;
+
+	/**
+	 * Creates a solver orchestrator running on the common fork/join pool, with its
+	 * worker count initialized to the number of available processors on the local
+	 * system.
 	 */
 	public NNSolverOrchestrator(final KdTree<T> tree) {
-		this.tree = tree;
-		this.workerThreadsCount = Runtime.getRuntime().availableProcessors();
-		;
+		this(tree, ForkJoinPool.commonPool(), Runtime.getRuntime().availableProcessors());
 	}
 
+	/**
+	 * Creates a solver orchestrator running on its own fork/join pool with the
+	 * given number of worker threads. Idle worker threads are terminated
+	 * automatically, the pool itself is shut down by {@link #close()}.
+	 */
 	public NNSolverOrchestrator(final KdTree<T> tree, final int workerThreadsCount) {
-		this.tree = tree;
-		this.workerThreadsCount = workerThreadsCount;
+		this(() -> tree, new ForkJoinPool(checkWorkerThreadsCount(workerThreadsCount)), workerThreadsCount, true);
+	}
+
+	/**
+	 * Creates a solver orchestrator running on the provided executor, which may be
+	 * shared with other orchestrators or tasks. The caller is responsible for
+	 * shutting down the executor.
+	 * 
+	 * @param workerThreadsCount
+	 *            the number of threads of the executor, used to choose the number
+	 *            of chunks per call.
+	 */
+	public NNSolverOrchestrator(final KdTree<T> tree, final ExecutorService executor,
+	        final int workerThreadsCount) {
+		this(() -> tree, executor, workerThreadsCount, false);
+	}
+
+	/**
+	 * Creates a solver orchestrator for the latest snapshots of the provided tree,
+	 * running on the common fork/join pool with its worker count initialized to
+	 * the number of available processors on the local system.
+	 */
+	public NNSolverOrchestrator(final VersionedKdTree<T> tree) {
+		this(tree, ForkJoinPool.commonPool(), Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a solver orchestrator for the latest snapshots of the provided tree,
+	 * running on the provided executor. The caller is responsible for shutting
+	 * down the executor.
+	 * 
+	 * @param workerThreadsCount
+	 *            the number of threads of the executor, used to choose the number
+	 *            of chunks per call.
+	 */
+	public NNSolverOrchestrator(final VersionedKdTree<T> tree, final ExecutorService executor,
+	        final int workerThreadsCount) {
+		this(tree::getSnapshot, executor, workerThreadsCount, false);
+	}
+
+	private NNSolverOrchestrator(final Supplier<KdTree<T>> treeSupplier, final ExecutorService executor,
+	        final int workerThreadsCount, final boolean ownsExecutor) {
+		this.treeSupplier = treeSupplier;
+		this.executor = executor;
+		this.workerThreadsCount = checkWorkerThreadsCount(workerThreadsCount);
+		this.ownsExecutor = ownsExecutor;
+	}
+
+	private static int checkWorkerThreadsCount(final int workerThreadsCount) {
+		if (workerThreadsCount < 1) {
+			throw new IllegalArgumentException(
+			        "workerThreadsCount must be at least 1, but was " + workerThreadsCount);
+		}
+
+		return workerThreadsCount;
+	}
+
+	/**
+	 * Shuts down the fork/join pool created by this orchestrator, if any, and
+	 * releases the solvers kept for reuse. Searches still running are completed,
+	 * but no new searches must be started afterwards.
+	 */
+	@Override
+	public void close() {
+		if (ownsExecutor) {
+			executor.shutdown();
+		}
+
+		idleSolvers.clear();
+	}
+
+	public NNResultCache<T> getResultCache() {
+		return resultCache;
+	}
+
+	/**
+	 * Sets a cache for the results of nearest point searches, shared by all worker
+	 * threads. Pass null to search the tree every time. Searches for the k nearest
+	 * points are never cached.
+	 */
+	public void setResultCache(final NNResultCache<T> resultCache) {
+		this.resultCache = resultCache;
 	}
 
 	/**
+	 * Returns the nearest tree point for each of the provided input points, as
+	 * returned by {@link NNSolver#findNearestPoint(KdPoint)}. The index of each
+	 * result point corresponds to the index of the requested search point.
 	 * 
-	 * @param inputPoints
-	 * @return
 	 * @throws NNSolverInterruptedException
 	 *             if the calling thread was interrupted during the async operation.
 	 */
 	public List<KdPoint<T>> findNearestPoints(final List<KdPoint<T>> inputPoints) throws NNSolverInterruptedException {
-		final List<NNSolverWorker<T>> workers = new ArrayList<>(workerThreadsCount);
+		return findNearestPoints(inputPoints, NNQueryOrder.INPUT);
+	}
 
-		final int batchSize = inputPoints.size() / workerThreadsCount;
+	/**
+	 * Returns the nearest tree point for each of the provided input points like
+	 * {@link #findNearestPoints(List)}, running the searches in the given order.
+	 * The results are returned in the order of the search points either way.
+	 * 
+	 * @throws NNSolverInterruptedException
+	 *             if the calling thread was interrupted during the async operation.
+	 */
+	public List<KdPoint<T>> findNearestPoints(final List<KdPoint<T>> inputPoints, final NNQueryOrder queryOrder)
+	        throws NNSolverInterruptedException {
+		return solve(inputPoints, NNSolver::findNearestPoint, queryOrder);
+	}
 
-		int startIndex = 0;
+	/**
+	 * Returns the k nearest tree points for each of the provided input points, as
+	 * returned by {@link NNSolver#findKNearestPoints(KdPoint, int)}. The index of
+	 * each result list corresponds to the index of the requested search point.
+	 * 
+	 * @throws NNSolverInterruptedException
+	 *             if the calling thread was interrupted during the async operation.
+	 */
+	public List<List<KdPoint<T>>> findKNearestPoints(final List<KdPoint<T>> inputPoints, final int k)
+	        throws NNSolverInterruptedException {
+		return findKNearestPoints(inputPoints, k, NNQueryOrder.INPUT);
+	}
 
-		for (int i = 0; i < workerThreadsCount; i++) {
-			final int endIndex = Math.min(startIndex + batchSize, inputPoints.size());
+	/**
+	 * Returns the k nearest tree points for each of the provided input points like
+	 * {@link #findKNearestPoints(List, int)}, running the searches in the given
+	 * order. The results are returned in the order of the search points either
+	 * way.
+	 * 
+	 * @throws NNSolverInterruptedException
+	 *             if the calling thread was interrupted during the async operation.
+	 */
+	public List<List<KdPoint<T>>> findKNearestPoints(final List<KdPoint<T>> inputPoints, final int k,
+	        final NNQueryOrder queryOrder) throws NNSolverInterruptedException {
+		if (k < 1) {
+			throw new IllegalArgumentException("k must be at least 1, but was " + k);
+		}
 
-			final List<KdPoint<T>> subset = inputPoints.subList(startIndex, endIndex);
+		return solve(inputPoints, (solver, point) -> solver.findKNearestPoints(point, k), queryOrder);
+	}
 
-			startIndex += batchSize;
+	/**
+	 * <p>
+	 * Searches the nearest tree point to the provided point on the executor of
+	 * this orchestrator, without blocking the calling thread.
+	 * </p>
+	 * 
+	 * <p>
+	 * Cancelling the returned future stops the search, even if it is already
+	 * running.
+	 * </p>
+	 */
+	public CompletableFuture<KdPoint<T>> findNearestPointAsync(final KdPoint<T> searchPoint) {
+		return solveAsync(Collections.singletonList(searchPoint), NNSolver::findNearestPoint, NNQueryOrder.INPUT,
+		        results -> results.get(0));
+	}
 
-			final NNSolverWorker<T> worker = new NNSolverWorker<>(tree, subset);
+	/**
+	 * Returns a future of the results {@link #findNearestPoints(List)} would
+	 * return, without blocking the calling thread.
+	 */
+	public CompletableFuture<List<KdPoint<T>>> findNearestPointsAsync(final List<KdPoint<T>> inputPoints) {
+		return findNearestPointsAsync(inputPoints, NNQueryOrder.INPUT);
+	}
 
-			workers.add(worker);
+	/**
+	 * <p>
+	 * Returns a future of the results
+	 * {@link #findNearestPoints(List, NNQueryOrder)} would return, without
+	 * blocking the calling thread.
+	 * </p>
+	 * 
+	 * <p>
+	 * Cancelling the returned future stops all searches, including the ones
+	 * already running. The future is completed exceptionally if any search fails
+	 * or the executor rejects a chunk.
+	 * </p>
+	 */
+	public CompletableFuture<List<KdPoint<T>>> findNearestPointsAsync(final List<KdPoint<T>> inputPoints,
+	        final NNQueryOrder queryOrder) {
+		return solveAsync(inputPoints, NNSolver::findNearestPoint, queryOrder, Function.identity());
+	}
 
-			worker.start();
+	/**
+	 * Returns a future of the results {@link #findKNearestPoints(List, int)} would
+	 * return, without blocking the calling thread. See
+	 * {@link #findNearestPointsAsync(List, NNQueryOrder)}.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if k is less than 1.
+	 */
+	public CompletableFuture<List<List<KdPoint<T>>>> findKNearestPointsAsync(final List<KdPoint<T>> inputPoints,
+	        final int k) {
+		if (k < 1) {
+			throw new IllegalArgumentException("k must be at least 1, but was " + k);
 		}
 
-		// Join the individual workers and append their data.
+		return solveAsync(inputPoints, (solver, point) -> solver.findKNearestPoints(point, k), NNQueryOrder.INPUT,
+		        Function.identity());
+	}
+
+	/**
+	 * <p>
+	 * Searches the nearest tree point for each search point of the provided
+	 * iterator, which may be unbounded, and passes the results to the consumer in
+	 * the order of the search points. See
+	 * {@link #findNearestPoints(Iterator, int, NNResultConsumer)}.
+	 * </p>
+	 * 
+	 * <p>
+	 * Uses chunks of {@link #DEFAULT_STREAM_CHUNK_SIZE} search points.
+	 * </p>
+	 */
+	public void findNearestPoints(final Iterator<KdPoint<T>> inputPoints,
+	        final NNResultConsumer<T, KdPoint<T>> consumer) throws NNSolverInterruptedException {
+		findNearestPoints(inputPoints, DEFAULT_STREAM_CHUNK_SIZE, consumer);
+	}
 
-		final List<KdPoint<T>> resultPoints = new ArrayList<>(inputPoints.size());
+	/**
+	 * <p>
+	 * Searches the nearest tree point for each search point of the provided
+	 * iterator, which may be unbounded, and passes the results to the consumer in
+	 * the order of the search points.
+	 * </p>
+	 * 
+	 * <p>
+	 * The search points are read and searched in chunks of the given size. Only
+	 * two chunks per worker thread are in flight at any time, so the memory used
+	 * does not depend on the number of search points. The iterator and the
+	 * consumer are only called by the calling thread. A slow consumer therefore
+	 * slows down reading the search points, and the worker threads wait for it.
+	 * </p>
+	 * 
+	 * <p>
+	 * When set up with a {@link VersionedKdTree}, all search points are searched
+	 * in the snapshot that was the latest one when this call started.
+	 * </p>
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the chunk size is less than 1.
+	 * @throws NNSolverInterruptedException
+	 *             if the calling thread was interrupted while waiting for a chunk.
+	 *             Results for the search points before that chunk have already
+	 *             been passed to the consumer.
+	 */
+	public void findNearestPoints(final Iterator<KdPoint<T>> inputPoints, final int chunkSize,
+	        final NNResultConsumer<T, KdPoint<T>> consumer) throws NNSolverInterruptedException {
+		solveStream(inputPoints, chunkSize, NNSolver::findNearestPoint, consumer);
+	}
+
+	/**
+	 * Searches the k nearest tree points for each search point of the provided
+	 * iterator, which may be unbounded, and passes the results to the consumer in
+	 * the order of the search points. See
+	 * {@link #findNearestPoints(Iterator, int, NNResultConsumer)}.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if k or the chunk size is less than 1.
+	 * @throws NNSolverInterruptedException
+	 *             if the calling thread was interrupted while waiting for a chunk.
+	 */
+	public void findKNearestPoints(final Iterator<KdPoint<T>> inputPoints, final int k, final int chunkSize,
+	        final NNResultConsumer<T, List<KdPoint<T>>> consumer) throws NNSolverInterruptedException {
+		if (k < 1) {
+			throw new IllegalArgumentException("k must be at least 1, but was " + k);
+		}
+
+		solveStream(inputPoints, chunkSize, (solver, point) -> solver.findKNearestPoints(point, k), consumer);
+	}
+
+	private <R> void solveStream(final Iterator<KdPoint<T>> inputPoints, final int chunkSize,
+	        final BiFunction<NNSolver<T>, KdPoint<T>, R> query, final NNResultConsumer<T, R> consumer)
+	        throws NNSolverInterruptedException {
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException("chunkSize must be at least 1, but was " + chunkSize);
+		}
+
+		// Search the same tree for all chunks of this call.
+
+		final KdTree<T> tree = treeSupplier.get();
+
+		final int maxChunksInFlight = workerThreadsCount * STREAM_CHUNKS_PER_WORKER_THREAD;
+		final ArrayDeque<StreamChunk<R>> chunksInFlight = new ArrayDeque<>(maxChunksInFlight);
+
+		// Set to stop the chunks still in flight if this call fails.
+
+		final AtomicBoolean cancelled = new AtomicBoolean();
+
+		long startIndex = 0;
+
+		try {
+			while (inputPoints.hasNext()) {
+				// Wait for the oldest chunk before reading the next one, so no more than the
+				// maximum number of chunks is ever held in memory.
+
+				if (chunksInFlight.size() == maxChunksInFlight) {
+					chunksInFlight.poll().emit(consumer);
+				}
+
+				final StreamChunk<R> chunk = new StreamChunk<>(startIndex, chunkSize);
+
+				chunk.read(inputPoints);
+				chunk.future = executor.submit(() -> chunk.solve(tree, query, cancelled));
+
+				chunksInFlight.add(chunk);
+
+				startIndex += chunk.size;
+			}
+
+			while (!chunksInFlight.isEmpty()) {
+				chunksInFlight.poll().emit(consumer);
+			}
+		} catch (final InterruptedException e) {
+			// Somebody decided to interrupt this orchestrator call.
+
+			cancelAll(chunksInFlight, cancelled);
+
+			throw new NNSolverInterruptedException(e);
+		} catch (final ExecutionException e) {
+			cancelAll(chunksInFlight, cancelled);
+
+			throw rethrow(e.getCause());
+		} catch (final RuntimeException | Error e) {
+			// The iterator or the consumer failed.
+
+			cancelAll(chunksInFlight, cancelled);
+
+			throw e;
+		}
+	}
+
+	private <R> List<R> solve(final List<KdPoint<T>> inputPoints, final BiFunction<NNSolver<T>, KdPoint<T>, R> query,
+	        final NNQueryOrder queryOrder) throws NNSolverInterruptedException {
+		final CompletableFuture<List<R>> future = solveAsync(inputPoints, query, queryOrder, Function.identity());
+
+		try {
+			return future.get();
+		} catch (final InterruptedException e) {
+			// Somebody decided to interrupt this orchestrator call. Cancelling the future
+			// stops all chunks, including the ones already running.
+
+			future.cancel(false);
+
+			throw new NNSolverInterruptedException(e);
+		} catch (final ExecutionException e) {
+			throw rethrow(e.getCause());
+		}
+	}
+
+	/**
+	 * Splits the search points into chunks and runs them on the executor. The
+	 * returned future is completed by the last chunk to finish, or by the first
+	 * one to fail. Until then, every chunk checks between and during its searches
+	 * whether the future was completed otherwise, e.g. cancelled, and stops if
+	 * so.
+	 */
+	private <R, F> CompletableFuture<F> solveAsync(final List<KdPoint<T>> inputPoints,
+	        final BiFunction<NNSolver<T>, KdPoint<T>, R> query, final NNQueryOrder queryOrder,
+	        final Function<List<R>, F> finisher) {
+		final int size = inputPoints.size();
+
+		// The index of the search point to run at each position. The results are
+		// scattered back to the index of their search point.
+
+		final KdPoint<T>[] points = toArray(inputPoints);
+		final int[] order = queryOrder == NNQueryOrder.MORTON ? NNMortonOrder.sort(points) : null;
+
+		// Search the same tree for all chunks of this call.
+
+		final KdTree<T> tree = treeSupplier.get();
+
+		final Object[] results = new Object[size];
+
+		@SuppressWarnings("unchecked")
+		final List<R> resultList = (List<R>) Arrays.asList(results);
+
+		final CompletableFuture<F> future = new CompletableFuture<>();
+
+		if (size == 0) {
+			future.complete(finisher.apply(resultList));
+
+			return future;
+		}
+
+		final int chunkCount = workerThreadsCount * CHUNKS_PER_WORKER_THREAD;
+		final int chunkSize = Math.max(MIN_CHUNK_SIZE, (size + chunkCount - 1) / chunkCount);
+
+		final AtomicInteger remainingChunkCount = new AtomicInteger((size + chunkSize - 1) / chunkSize);
+
+		for (int startIndex = 0; startIndex < size; startIndex += chunkSize) {
+			final int chunkStartIndex = startIndex;
+			final int chunkEndIndex = Math.min(startIndex + chunkSize, size);
+
+			final Runnable chunk = () -> {
+				final NNSolver<T> solver = takeSolver(tree);
+
+				solver.setCancellationCheck(future::isDone);
+
+				try {
+					for (int position = chunkStartIndex; position < chunkEndIndex && !future.isDone(); position++) {
+						final int index = order == null ? position : order[position];
+
+						results[index] = query.apply(solver, points[index]);
+					}
+				} catch (final CancellationException e) {
+					// The future was completed otherwise, the results are not needed anymore.
+
+					return;
+				} catch (final RuntimeException | Error e) {
+					future.completeExceptionally(e);
+
+					return;
+				} finally {
+					solver.setCancellationCheck(null);
+
+					releaseSolver(solver);
+				}
+
+				// Each result was written to the index of its search point. The atomic
+				// decrement makes these writes visible to the thread completing the future.
+
+				if (remainingChunkCount.decrementAndGet() == 0) {
+					future.complete(finisher.apply(resultList));
+				}
+			};
+
+			try {
+				executor.execute(chunk);
+			} catch (final RejectedExecutionException e) {
+				future.completeExceptionally(e);
+
+				break;
+			}
+		}
+
+		return future;
+	}
+
+	/**
+	 * Returns an idle solver for the provided tree, or a new one if there is none.
+	 * Pass it to {@link #releaseSolver(NNSolver)} once done.
+	 */
+	private NNSolver<T> takeSolver(final KdTree<T> tree) {
+		NNSolver<T> solver = idleSolvers.pollFirst();
+
+		// Solvers of outdated snapshots are dropped here, together with their tree.
+
+		if (solver == null || solver.getTree() != tree) {
+			solver = new NNSolver<>(tree);
+		}
+
+		solver.setResultCache(resultCache);
+
+		return solver;
+	}
+
+	private void releaseSolver(final NNSolver<T> solver) {
+		// Don't keep outdated snapshots reachable until the next call.
+
+		if (solver.getTree() == treeSupplier.get()) {
+			idleSolvers.offerFirst(solver);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T extends Number & Comparable<T>> KdPoint<T>[] toArray(final List<KdPoint<T>> points) {
+		return (KdPoint<T>[]) points.toArray(new KdPoint<?>[points.size()]);
+	}
+
+	private void cancelAll(final ArrayDeque<? extends StreamChunk<?>> chunks, final AtomicBoolean cancelled) {
+		cancelled.set(true);
+
+		for (final StreamChunk<?> chunk : chunks) {
+			chunk.future.cancel(false);
+		}
+	}
+
+	private RuntimeException rethrow(final Throwable cause) {
+		if (cause instanceof RuntimeException) {
+			throw (RuntimeException) cause;
+		} else if (cause instanceof Error) {
+			throw (Error) cause;
+		}
+
+		throw new IllegalStateException(cause);
+	}
+
+	/**
+	 * A chunk of search points of a streamed search, with space for their
+	 * results.
+	 */
+	private final class StreamChunk<R> {
+		private final long startIndex;
+
+		private final KdPoint<T>[] points;
+		private final Object[] results;
+
+		private int size;
+
+		private Future<?> future;
+
+		@SuppressWarnings("unchecked")
+		private StreamChunk(final long startIndex, final int capacity) {
+			this.startIndex = startIndex;
+			this.points = (KdPoint<T>[]) new KdPoint<?>[capacity];
+			this.results = new Object[capacity];
+		}
+
+		private void read(final Iterator<KdPoint<T>> inputPoints) {
+			while (size < points.length && inputPoints.hasNext()) {
+				points[size++] = inputPoints.next();
+			}
+		}
+
+		private void solve(final KdTree<T> tree, final BiFunction<NNSolver<T>, KdPoint<T>, R> query,
+		        final AtomicBoolean cancelled) {
+			final NNSolver<T> solver = takeSolver(tree);
+
+			solver.setCancellationCheck(cancelled::get);
 
-		for (final NNSolverWorker<T> worker : workers) {
 			try {
-				resultPoints.addAll(worker.getResultPoints());
-			} catch (final InterruptedException e) {
-				// Somebody decided to interrupt this orchestrator call.
+				for (int i = 0; i < size && !cancelled.get(); i++) {
+					results[i] = query.apply(solver, points[i]);
+				}
+			} finally {
+				solver.setCancellationCheck(null);
 
-				throw new NNSolverInterruptedException(e);
+				releaseSolver(solver);
 			}
 		}
 
-		return resultPoints;
+		/**
+		 * Waits for the results of this chunk and passes them to the consumer.
+		 * Completing the future makes the results visible to the calling thread.
+		 */
+		@SuppressWarnings("unchecked")
+		private void emit(final NNResultConsumer<T, R> consumer) throws InterruptedException, ExecutionException {
+			future.get();
+
+			for (int i = 0; i < size; i++) {
+				consumer.accept(startIndex + i, points[i], (R) results[i]);
+			}
+		}
 	}
 }
@@ -1,30 +1,19 @@
 package de.jilocasin.nearestneighbour.nnsolver;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import de.jilocasin.nearestneighbour.kdtree.KdPoint;
 import de.jilocasin.nearestneighbour.kdtree.KdTree;
 
 public class NNSolverWorker<T extends Number & Comparable<T>> {
-	private final Thread thread;
-
-	private List<KdPoint<T>> resultPoints;
+	private final NNQueryWorker<T, KdPoint<T>> worker;
 
 	public NNSolverWorker(final KdTree<T> tree, final List<KdPoint<T>> inputPoints) {
-		this.thread = new Thread(() -> {
-			resultPoints = new ArrayList<>(inputPoints.size());
-
-			final NNSolver<T> solver = new NNSolver<>(tree);
-
-			for (final KdPoint<T> point : inputPoints) {
-				resultPoints.add(solver.findNearestPoint(point));
-			}
-		});
+		this.worker = new NNQueryWorker<>(tree, inputPoints, NNSolver::findNearestPoint);
 	}
 
 	public void start() {
-		this.thread.start();
+		this.worker.start();
 	}
 
 	/**
@@ -33,8 +22,6 @@ public class NNSolverWorker<T extends Number & Comparable<T>> {
 	 * of the input points when constructing this worker.
 	 */
 	public List<KdPoint<T>> getResultPoints() throws InterruptedException {
-		this.thread.join();
-
-		return resultPoints;
+		return worker.getResults();
 	}
 }
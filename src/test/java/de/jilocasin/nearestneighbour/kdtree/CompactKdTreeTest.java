@@ -0,0 +1,164 @@
+package de.jilocasin.nearestneighbour.kdtree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import de.jilocasin.nearestneighbour.kdtree.exception.InvalidKdDimensionCountException;
+import de.jilocasin.nearestneighbour.kdtree.exception.InvalidKdPointCountException;
+import de.jilocasin.nearestneighbour.kdtree.generator.RandomDoubleKdTreeGenerator;
+
+public class CompactKdTreeTest {
+	private static final int POINT_COUNT = 10_000;
+
+	@Test
+	public void testCompactKdTree() {
+		for (final int pointCount : new int[] { 1, 2, 3, 4, 5, 7, 8, 100, POINT_COUNT }) {
+			for (int dimensionCount = 1; dimensionCount <= 4; dimensionCount++) {
+				final List<KdPoint<Double>> points = new RandomDoubleKdTreeGenerator().generatePoints(dimensionCount,
+				        pointCount);
+
+				final CompactKdTree<Double> tree = new CompactKdTree<>(points);
+
+				assertEquals(dimensionCount, tree.dimensionCount);
+				assertEquals(pointCount, tree.size());
+
+				checkPoints(points, tree);
+				checkNode(tree, 0, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, -1);
+			}
+		}
+	}
+
+	@Test
+	public void testCompactKdTreeFromKdTree() {
+		final List<KdPoint<Double>> points = new RandomDoubleKdTreeGenerator().generatePoints(3, POINT_COUNT);
+		final KdTree<Double> sourceTree = new KdTree<>(points);
+
+		// Removed points must not be part of the compact tree.
+
+		for (int i = 0; i < 100; i++) {
+			sourceTree.remove(points.remove(points.size() - 1));
+		}
+
+		final CompactKdTree<Double> tree = new CompactKdTree<>(sourceTree);
+
+		assertEquals(points.size(), tree.size());
+
+		checkPoints(points, tree);
+	}
+
+	@Test
+	public void testGetLeftSubtreeSize() {
+		// Build all left-balanced trees up to a given size level by level, and compare
+		// their left subtree sizes.
+
+		for (int size = 1; size <= 1000; size++) {
+			int leftSize = 0;
+
+			for (int nodeIndex = 1; nodeIndex < size; nodeIndex++) {
+				if (isInLeftSubtree(nodeIndex)) {
+					leftSize++;
+				}
+			}
+
+			assertEquals(leftSize, CompactKdTree.getLeftSubtreeSize(size));
+		}
+	}
+
+	@Test
+	public void testGetDepth() {
+		assertEquals(0, CompactKdTree.getDepth(0));
+		assertEquals(1, CompactKdTree.getDepth(1));
+		assertEquals(1, CompactKdTree.getDepth(2));
+		assertEquals(2, CompactKdTree.getDepth(3));
+		assertEquals(2, CompactKdTree.getDepth(6));
+		assertEquals(3, CompactKdTree.getDepth(7));
+	}
+
+	@Test(expected = InvalidKdPointCountException.class)
+	public void testCompactKdTreeWithNoPoints() {
+		// Expected to throw.
+
+		new CompactKdTree<Double>(Collections.emptyList());
+	}
+
+	@Test(expected = InvalidKdDimensionCountException.class)
+	public void testCompactKdTreeWithMixedDimensions() {
+		// Expected to throw.
+
+		new CompactKdTree<>(Arrays.asList(new KdPoint<>(1.0, 2.0), new KdPoint<>(3.0)));
+	}
+
+	private boolean isInLeftSubtree(int nodeIndex) {
+		while (nodeIndex > 2) {
+			nodeIndex = (nodeIndex - 1) / 2;
+		}
+
+		return nodeIndex == 1;
+	}
+
+	private void checkPoints(final List<KdPoint<Double>> points, final CompactKdTree<Double> tree) {
+		// Each point instance must be included exactly once, with its axis values.
+
+		final Map<KdPoint<Double>, Boolean> seen = new IdentityHashMap<>();
+
+		for (int nodeIndex = 0; nodeIndex < tree.size(); nodeIndex++) {
+			final KdPoint<Double> point = tree.getPoint(nodeIndex);
+
+			assertTrue(seen.put(point, true) == null);
+
+			for (int axisIndex = 0; axisIndex < tree.dimensionCount; axisIndex++) {
+				assertEquals(point.getAxisValue(axisIndex), tree.getAxisValue(nodeIndex, axisIndex), 0);
+			}
+		}
+
+		for (final KdPoint<Double> point : points) {
+			assertSame(true, seen.get(point));
+		}
+	}
+
+	/**
+	 * Asserts that all values of the subtree on the axis of its parent are within
+	 * the provided bounds, and that its own subtrees are split by its value.
+	 */
+	private void checkNode(final CompactKdTree<Double> tree, final int nodeIndex, final double min,
+	        final double max, final int parentAxisIndex) {
+		if (nodeIndex >= tree.size()) {
+			return;
+		}
+
+		if (parentAxisIndex >= 0) {
+			checkSubtree(tree, nodeIndex, min, max, parentAxisIndex);
+		}
+
+		final int axisIndex = tree.getSplitAxis(nodeIndex);
+		final double splitValue = tree.getAxisValue(nodeIndex, axisIndex);
+
+		assertEquals(CompactKdTree.getDepth(nodeIndex) % tree.dimensionCount, axisIndex);
+
+		checkNode(tree, 2 * nodeIndex + 1, Double.NEGATIVE_INFINITY, splitValue, axisIndex);
+		checkNode(tree, 2 * nodeIndex + 2, splitValue, Double.POSITIVE_INFINITY, axisIndex);
+	}
+
+	private void checkSubtree(final CompactKdTree<Double> tree, final int nodeIndex, final double min,
+	        final double max, final int axisIndex) {
+		if (nodeIndex >= tree.size()) {
+			return;
+		}
+
+		final double value = tree.getAxisValue(nodeIndex, axisIndex);
+
+		assertTrue(value >= min && value <= max);
+
+		checkSubtree(tree, 2 * nodeIndex + 1, min, max, axisIndex);
+		checkSubtree(tree, 2 * nodeIndex + 2, min, max, axisIndex);
+	}
+}
@@ -0,0 +1,76 @@
+package de.jilocasin.nearestneighbour.kdtree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class DoubleDistanceKernelTest {
+	private static final int POINT_COUNT = 100;
+
+	private static final int MAX_DIMENSIONS = 130;
+
+	/**
+	 * Allowed relative difference between the kernels, which may sum up the values
+	 * in a different order.
+	 */
+	private static final double RELATIVE_EPSILON = 1e-12;
+
+	@Test
+	public void testScalarKernel() {
+		final double[] coordinates = { 9, 9, 1, 2, 4, 6, -1, 2 };
+		final double[] distancesSquared = new double[2];
+
+		new ScalarDoubleDistanceKernel().computeDistancesSquared(coordinates, 2, 2, 2, new double[] { 1, 1 },
+		        distancesSquared);
+
+		assertEquals(1, distancesSquared[0], 0);
+		assertEquals(9 + 25, distancesSquared[1], 0);
+	}
+
+	@Test
+	public void testDefaultKernelMatchesScalarKernel() {
+		final Random random = new Random(0);
+
+		final DoubleDistanceKernel scalarKernel = new ScalarDoubleDistanceKernel();
+		final DoubleDistanceKernel defaultKernel = DoubleDistanceKernels.getDefault();
+
+		for (int dimensionCount = 1; dimensionCount <= MAX_DIMENSIONS; dimensionCount++) {
+			final double[] coordinates = new double[(POINT_COUNT + 1) * dimensionCount];
+			final double[] target = new double[dimensionCount];
+
+			for (int i = 0; i < coordinates.length; i++) {
+				coordinates[i] = random.nextDouble() * 1000 - 500;
+			}
+
+			for (int i = 0; i < dimensionCount; i++) {
+				target[i] = random.nextDouble() * 1000 - 500;
+			}
+
+			final double[] expected = new double[POINT_COUNT];
+			final double[] actual = new double[POINT_COUNT];
+
+			// Start at the second point, so the blocks are not aligned to the array.
+
+			scalarKernel.computeDistancesSquared(coordinates, dimensionCount, POINT_COUNT, dimensionCount, target,
+			        expected);
+			defaultKernel.computeDistancesSquared(coordinates, dimensionCount, POINT_COUNT, dimensionCount, target,
+			        actual);
+
+			for (int i = 0; i < POINT_COUNT; i++) {
+				assertEquals(expected[i], actual[i], expected[i] * RELATIVE_EPSILON);
+			}
+		}
+	}
+
+	@Test
+	public void testVectorKernelIsSelected() {
+		// Only set by the vector profile, which adds the incubator module.
+
+		assumeTrue(Boolean.getBoolean("de.jilocasin.nearestneighbour.expectVectorKernel"));
+
+		assertEquals("VectorDoubleDistanceKernel", DoubleDistanceKernels.getDefault().getClass().getSimpleName());
+	}
+}
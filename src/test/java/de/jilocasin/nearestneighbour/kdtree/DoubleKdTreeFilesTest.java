@@ -0,0 +1,166 @@
+package de.jilocasin.nearestneighbour.kdtree;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.jilocasin.nearestneighbour.kdtree.exception.InvalidKdTreeFileException;
+import de.jilocasin.nearestneighbour.nnsolver.DoubleNNSolver;
+
+public class DoubleKdTreeFilesTest {
+	private static final int POINT_COUNT = 10_000;
+	private static final int DIMENSION_COUNT = 3;
+	private static final int SEARCH_COUNT = 1_000;
+
+	/**
+	 * Segments of 4 KB, so values of the test trees are spread over many segments.
+	 */
+	private static final int SMALL_SEGMENT_SHIFT = 12;
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testWriteAndMap() throws IOException {
+		final DoubleKdTree tree = buildRandomTree(DoubleKdTree.DEFAULT_BUCKET_SIZE);
+		final Path path = write(tree);
+
+		checkSameTree(tree, DoubleKdTreeFiles.map(path));
+		checkSameTree(tree, DoubleKdTreeFiles.map(path, false));
+	}
+
+	@Test
+	public void testWriteAndMapWithSmallSegments() throws IOException {
+		for (final int bucketSize : new int[] { 1, 7, DoubleKdTree.DEFAULT_BUCKET_SIZE }) {
+			final DoubleKdTree tree = buildRandomTree(bucketSize);
+
+			checkSameTree(tree, DoubleKdTreeFiles.map(write(tree), true, SMALL_SEGMENT_SHIFT));
+		}
+	}
+
+	@Test
+	public void testWriteAndMapSinglePoint() throws IOException {
+		final DoubleKdTree tree = new DoubleKdTree(new double[][] { { 1, 2 } });
+
+		checkSameTree(tree, DoubleKdTreeFiles.map(write(tree)));
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testCloseMappedTree() throws IOException {
+		final DoubleKdTree tree = DoubleKdTreeFiles.map(write(buildRandomTree(DoubleKdTree.DEFAULT_BUCKET_SIZE)));
+
+		tree.close();
+
+		// Expected to throw.
+
+		tree.getSplitValue(0);
+	}
+
+	@Test(expected = InvalidKdTreeFileException.class)
+	public void testMapCorruptedFile() throws IOException {
+		final Path path = write(buildRandomTree(DoubleKdTree.DEFAULT_BUCKET_SIZE));
+
+		overwriteByte(path, DoubleKdTreeFiles.HEADER_LENGTH + 1000);
+
+		// Expected to throw.
+
+		DoubleKdTreeFiles.map(path);
+	}
+
+	@Test(expected = InvalidKdTreeFileException.class)
+	public void testMapFileWithInvalidMagic() throws IOException {
+		final Path path = write(buildRandomTree(DoubleKdTree.DEFAULT_BUCKET_SIZE));
+
+		overwriteByte(path, 0);
+
+		// Expected to throw.
+
+		DoubleKdTreeFiles.map(path, false);
+	}
+
+	@Test(expected = InvalidKdTreeFileException.class)
+	public void testMapTruncatedFile() throws IOException {
+		final Path path = write(buildRandomTree(DoubleKdTree.DEFAULT_BUCKET_SIZE));
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+			channel.truncate(channel.size() - 1);
+		}
+
+		// Expected to throw.
+
+		DoubleKdTreeFiles.map(path, false);
+	}
+
+	private DoubleKdTree buildRandomTree(final int bucketSize) {
+		final Random random = new Random(0);
+
+		final double[] coordinates = new double[POINT_COUNT * DIMENSION_COUNT];
+
+		for (int i = 0; i < coordinates.length; i++) {
+			coordinates[i] = random.nextDouble();
+		}
+
+		return new DoubleKdTree(coordinates, DIMENSION_COUNT, bucketSize);
+	}
+
+	private Path write(final DoubleKdTree tree) throws IOException {
+		final Path path = folder.newFile().toPath();
+
+		DoubleKdTreeFiles.write(tree, path);
+
+		return path;
+	}
+
+	private void overwriteByte(final Path path, final long position) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			final ByteBuffer buffer = ByteBuffer.allocate(1).order(ByteOrder.LITTLE_ENDIAN);
+
+			channel.read(buffer, position);
+			buffer.put(0, (byte) ~buffer.get(0));
+			buffer.rewind();
+			channel.write(buffer, position);
+		}
+	}
+
+	private void checkSameTree(final DoubleKdTree expected, final DoubleKdTree actual) {
+		assertEquals(expected.dimensionCount, actual.dimensionCount);
+		assertEquals(expected.pointCount, actual.pointCount);
+		assertEquals(expected.bucketSize, actual.bucketSize);
+		assertEquals(expected.getInternalNodeCount(), actual.getInternalNodeCount());
+
+		for (int treeIndex = 0; treeIndex < expected.pointCount; treeIndex++) {
+			assertEquals(expected.getPointIndexAt(treeIndex), actual.getPointIndexAt(treeIndex));
+
+			for (int axisIndex = 0; axisIndex < expected.dimensionCount; axisIndex++) {
+				assertEquals(expected.getAxisValueAt(treeIndex, axisIndex), actual.getAxisValueAt(treeIndex, axisIndex),
+				        0);
+			}
+		}
+
+		// Both trees must return the same nearest points.
+
+		final DoubleNNSolver expectedSolver = new DoubleNNSolver(expected);
+		final DoubleNNSolver actualSolver = new DoubleNNSolver(actual);
+
+		final Random random = new Random(1);
+		final double[] searchTarget = new double[expected.dimensionCount];
+
+		for (int i = 0; i < SEARCH_COUNT; i++) {
+			for (int axisIndex = 0; axisIndex < searchTarget.length; axisIndex++) {
+				searchTarget[axisIndex] = random.nextDouble();
+			}
+
+			assertEquals(expectedSolver.findNearestPoint(searchTarget), actualSolver.findNearestPoint(searchTarget));
+		}
+	}
+}
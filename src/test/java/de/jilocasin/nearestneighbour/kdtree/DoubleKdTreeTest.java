@@ -0,0 +1,197 @@
+package de.jilocasin.nearestneighbour.kdtree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.jilocasin.nearestneighbour.kdtree.exception.InvalidKdDimensionCountException;
+import de.jilocasin.nearestneighbour.kdtree.exception.InvalidKdPointCountException;
+
+public class DoubleKdTreeTest {
+	private static final int POINT_COUNT = 100_000;
+
+	private static final int MIN_DIMENSIONS = 1;
+	private static final int MAX_DIMENSIONS = 10;
+
+	@Test
+	public void testDoubleKdTree() {
+		for (int dimensionCount = MIN_DIMENSIONS; dimensionCount <= MAX_DIMENSIONS; dimensionCount++) {
+			testDoubleKdTreeWithDimensionCount(dimensionCount, DoubleKdTree.DEFAULT_BUCKET_SIZE);
+		}
+	}
+
+	@Test
+	public void testDoubleKdTreeWithBucketSizes() {
+		for (final int bucketSize : new int[] { 1, 2, 8, 64, POINT_COUNT }) {
+			testDoubleKdTreeWithDimensionCount(3, bucketSize);
+		}
+	}
+
+	@Test
+	public void testOffHeapDoubleKdTree() {
+		final double[] coordinates = buildRandomCoordinates(3);
+
+		final DoubleKdTree tree = new DoubleKdTree(coordinates, 3);
+
+		// Use segments of 4 KB, so the values are spread over many segments.
+
+		for (final DoubleKdTree offHeapTree : new DoubleKdTree[] { DoubleKdTree.offHeap(coordinates, 3, 16),
+		        DoubleKdTree.offHeap(coordinates, 3, 16, 12) }) {
+			assertEquals(tree.pointCount, offHeapTree.pointCount);
+			assertEquals(tree.getInternalNodeCount(), offHeapTree.getInternalNodeCount());
+
+			for (int treeIndex = 0; treeIndex < POINT_COUNT; treeIndex++) {
+				assertEquals(tree.getPointIndexAt(treeIndex), offHeapTree.getPointIndexAt(treeIndex));
+				assertEquals(tree.getAxisValueAt(treeIndex, 2), offHeapTree.getAxisValueAt(treeIndex, 2), 0);
+			}
+
+			for (int nodeIndex = 0; nodeIndex < tree.getInternalNodeCount(); nodeIndex++) {
+				assertEquals(tree.getSplitAxis(nodeIndex), offHeapTree.getSplitAxis(nodeIndex));
+				assertEquals(tree.getSplitValue(nodeIndex), offHeapTree.getSplitValue(nodeIndex), 0);
+			}
+
+			checkNode(offHeapTree, 0, 0, POINT_COUNT, 0);
+
+			offHeapTree.close();
+		}
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testClosedOffHeapDoubleKdTree() {
+		final DoubleKdTree tree = DoubleKdTree.offHeap(new double[] { 1.0, 2.0 }, 2, 16);
+
+		tree.close();
+
+		// Expected to throw.
+
+		tree.getAxisValueAt(0, 0);
+	}
+
+	@Test(expected = InvalidKdPointCountException.class)
+	public void testOffHeapDoubleKdTreeWithNoPoints() {
+		// Expected to throw.
+
+		DoubleKdTree.offHeap(new double[0], 3, 16);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDoubleKdTreeWithInvalidBucketSize() {
+		// Expected to throw.
+
+		new DoubleKdTree(new double[] { 1.0, 2.0 }, 2, 0);
+	}
+
+	@Test(expected = InvalidKdPointCountException.class)
+	public void testDoubleKdTreeWithNoPoints() {
+		// Expected to throw.
+
+		new DoubleKdTree(new double[0], 3);
+	}
+
+	@Test(expected = InvalidKdDimensionCountException.class)
+	public void testDoubleKdTreeWithIncompletePoint() {
+		// Expected to throw.
+
+		new DoubleKdTree(new double[] { 1.0, 2.0, 3.0, 4.0 }, 3);
+	}
+
+	@Test(expected = InvalidKdDimensionCountException.class)
+	public void testDoubleKdTreeWithMixedDimensions() {
+		// Expected to throw.
+
+		new DoubleKdTree(new double[][] { { 1.0, 2.0 }, { 3.0 } });
+	}
+
+	@Test
+	public void testDoubleKdTreeFromPointArray() {
+		final double[][] points = { { 5, 8 }, { 5, 5 }, { 9, 1 } };
+
+		final DoubleKdTree tree = new DoubleKdTree(points);
+
+		assertEquals(2, tree.dimensionCount);
+		assertEquals(3, tree.pointCount);
+
+		// Every tree position must hold the axis values of its original point.
+
+		for (int treeIndex = 0; treeIndex < tree.pointCount; treeIndex++) {
+			final double[] point = points[tree.getPointIndexAt(treeIndex)];
+
+			assertEquals(point[0], tree.getAxisValueAt(treeIndex, 0), 0);
+			assertEquals(point[1], tree.getAxisValueAt(treeIndex, 1), 0);
+		}
+	}
+
+	private void testDoubleKdTreeWithDimensionCount(final int dimensionCount, final int bucketSize) {
+		final double[] coordinates = buildRandomCoordinates(dimensionCount);
+
+		final DoubleKdTree tree = new DoubleKdTree(coordinates, dimensionCount, bucketSize);
+
+		assertEquals(dimensionCount, tree.dimensionCount);
+		assertEquals(POINT_COUNT, tree.pointCount);
+		assertEquals(bucketSize, tree.bucketSize);
+
+		// Each point index must be included exactly once, with unchanged axis values.
+
+		final boolean[] seen = new boolean[POINT_COUNT];
+
+		for (int treeIndex = 0; treeIndex < POINT_COUNT; treeIndex++) {
+			final int pointIndex = tree.getPointIndexAt(treeIndex);
+
+			assertTrue(!seen[pointIndex]);
+			seen[pointIndex] = true;
+
+			for (int axisIndex = 0; axisIndex < dimensionCount; axisIndex++) {
+				assertEquals(coordinates[pointIndex * dimensionCount + axisIndex],
+				        tree.getAxisValueAt(treeIndex, axisIndex), 0);
+			}
+		}
+
+		checkNode(tree, 0, 0, POINT_COUNT, 0);
+	}
+
+	private double[] buildRandomCoordinates(final int dimensionCount) {
+		final Random random = new Random(0);
+
+		final double[] coordinates = new double[POINT_COUNT * dimensionCount];
+
+		for (int i = 0; i < coordinates.length; i++) {
+			coordinates[i] = random.nextDouble();
+		}
+
+		return coordinates;
+	}
+
+	private void checkNode(final DoubleKdTree tree, final int nodeIndex, final int from, final int to,
+	        final int depth) {
+		if (tree.isLeaf(from, to)) {
+			assertTrue(to - from >= 1);
+			assertTrue(to - from <= tree.bucketSize);
+
+			return;
+		}
+
+		final int middle = (from + to) >>> 1;
+		final int axisIndex = tree.getSplitAxis(nodeIndex);
+		final double splitValue = tree.getSplitValue(nodeIndex);
+
+		assertEquals(tree.getAxisIndex(depth), axisIndex);
+
+		// Assert that all values of the left subtree are smaller than or equal to the
+		// split value, and all values of the right subtree are greater than or equal to
+		// it.
+
+		for (int i = from; i < middle; i++) {
+			assertTrue(tree.getAxisValueAt(i, axisIndex) <= splitValue);
+		}
+
+		for (int i = middle; i < to; i++) {
+			assertTrue(tree.getAxisValueAt(i, axisIndex) >= splitValue);
+		}
+
+		checkNode(tree, 2 * nodeIndex + 1, from, middle, depth + 1);
+		checkNode(tree, 2 * nodeIndex + 2, middle, to, depth + 1);
+	}
+}
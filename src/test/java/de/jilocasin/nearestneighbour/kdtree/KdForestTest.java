@@ -0,0 +1,146 @@
+package de.jilocasin.nearestneighbour.kdtree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import de.jilocasin.nearestneighbour.kdtree.exception.ImmutableKdTreeException;
+import de.jilocasin.nearestneighbour.kdtree.generator.RandomDoubleKdTreeGenerator;
+
+public class KdForestTest {
+	private static final int POINT_COUNT = 10_000;
+
+	@Test
+	public void testTreesContainAllPoints() {
+		final List<KdPoint<Double>> points = new RandomDoubleKdTreeGenerator().generatePoints(8, POINT_COUNT);
+
+		final KdForest<Double> forest = new KdForest<>(points, 3);
+
+		assertEquals(3, forest.getTreeCount());
+		assertEquals(POINT_COUNT, forest.size());
+
+		for (final KdTree<Double> tree : forest.getTrees()) {
+			assertEquals(POINT_COUNT, countNodes(tree.getRootNode()));
+			assertTrue(tree.isImmutable());
+		}
+	}
+
+	@Test
+	public void testTreesSplitDifferently() {
+		final List<KdPoint<Double>> points = new RandomDoubleKdTreeGenerator().generatePoints(16, POINT_COUNT);
+
+		final KdForest<Double> forest = new KdForest<>(points, 4);
+
+		// The chance of all trees choosing the same axes for the first levels is
+		// negligible.
+
+		final List<String> axisSignatures = new ArrayList<>();
+
+		for (final KdTree<Double> tree : forest.getTrees()) {
+			axisSignatures.add(getAxisSignature(tree.getRootNode(), 3));
+		}
+
+		assertEquals(4, axisSignatures.stream().distinct().count());
+	}
+
+	@Test
+	public void testParallelBuildMatchesSequentialBuild() {
+		final List<KdPoint<Double>> points = new RandomDoubleKdTreeGenerator().generatePoints(8, POINT_COUNT);
+
+		final KdForest<Double> sequentialForest = new KdForest<>(points, 4, KdTreeBuildStrategy.APPROXIMATE_MEDIAN,
+		        null);
+		final ForkJoinPool pool = new ForkJoinPool(4);
+		final KdForest<Double> parallelForest = new KdForest<>(points, 4, KdTreeBuildStrategy.APPROXIMATE_MEDIAN,
+		        pool);
+
+		pool.shutdown();
+
+		for (int treeIndex = 0; treeIndex < 4; treeIndex++) {
+			assertSameStructure(sequentialForest.getTrees().get(treeIndex).getRootNode(),
+			        parallelForest.getTrees().get(treeIndex).getRootNode());
+		}
+	}
+
+	@Test
+	public void testSplitsOnlyUseHighVarianceAxes() {
+		// Only the first five axes have any variance.
+
+		final Random random = new Random(0);
+		final List<KdPoint<Double>> points = new ArrayList<>();
+
+		for (int i = 0; i < POINT_COUNT; i++) {
+			points.add(new KdPoint<>(random.nextDouble(), random.nextDouble(), random.nextDouble(),
+			        random.nextDouble(), random.nextDouble(), 1.0, 1.0, 1.0));
+		}
+
+		final KdForest<Double> forest = new KdForest<>(points);
+
+		for (final KdTree<Double> tree : forest.getTrees()) {
+			assertAxesBelow(tree.getRootNode(), RandomizedAxisSelector.TOP_AXIS_COUNT);
+		}
+	}
+
+	@Test(expected = ImmutableKdTreeException.class)
+	public void testTreesCannotBeModified() {
+		final List<KdPoint<Double>> points = new RandomDoubleKdTreeGenerator().generatePoints(2, 100);
+
+		new KdForest<>(points).getTrees().get(0).insert(new KdPoint<>(1.0, 2.0));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidTreeCount() {
+		final List<KdPoint<Double>> points = new RandomDoubleKdTreeGenerator().generatePoints(2, 100);
+
+		// Expected to throw.
+
+		new KdForest<>(points, 0);
+	}
+
+	private int countNodes(final KdNode<Double> node) {
+		if (node == null) {
+			return 0;
+		}
+
+		return 1 + countNodes(node.getLeftNode()) + countNodes(node.getRightNode());
+	}
+
+	private String getAxisSignature(final KdNode<Double> node, final int levelCount) {
+		if (node == null || levelCount == 0) {
+			return "";
+		}
+
+		return node.axisIndex + "(" + getAxisSignature(node.getLeftNode(), levelCount - 1) + ","
+		        + getAxisSignature(node.getRightNode(), levelCount - 1) + ")";
+	}
+
+	private void assertSameStructure(final KdNode<Double> expected, final KdNode<Double> actual) {
+		if (expected == null) {
+			assertEquals(null, actual);
+
+			return;
+		}
+
+		assertEquals(expected.point, actual.point);
+		assertEquals(expected.axisIndex, actual.axisIndex);
+
+		assertSameStructure(expected.getLeftNode(), actual.getLeftNode());
+		assertSameStructure(expected.getRightNode(), actual.getRightNode());
+	}
+
+	private void assertAxesBelow(final KdNode<Double> node, final int axisCount) {
+		if (node == null) {
+			return;
+		}
+
+		assertTrue(node.axisIndex < axisCount);
+
+		assertAxesBelow(node.getLeftNode(), axisCount);
+		assertAxesBelow(node.getRightNode(), axisCount);
+	}
+}
@@ -1,14 +1,23 @@
 package de.jilocasin.nearestneighbour.kdtree;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 
 import org.junit.Test;
 
+import de.jilocasin.nearestneighbour.kdtree.exception.InvalidKdDimensionCountException;
 import de.jilocasin.nearestneighbour.kdtree.exception.InvalidKdPointCountException;
+import de.jilocasin.nearestneighbour.kdtree.generator.AnisotropicDoubleKdTreeGenerator;
 import de.jilocasin.nearestneighbour.kdtree.generator.RandomDoubleKdTreeGenerator;
 
 public class KdTreeTest {
@@ -24,6 +33,387 @@ public class KdTreeTest {
 		}
 	}
 
+	@Test
+	public void testKdTreeWithBuildStrategies() {
+		for (final KdTreeBuildStrategy buildStrategy : KdTreeBuildStrategy.values()) {
+			for (int dimensionCount = MIN_DIMENSIONS; dimensionCount <= 3; dimensionCount++) {
+				final RandomDoubleKdTreeGenerator treeGenerator = new RandomDoubleKdTreeGenerator();
+
+				final KdTree<Double> tree = new KdTree<>(treeGenerator.generatePoints(dimensionCount, POINT_COUNT),
+				        buildStrategy);
+
+				assertEquals(buildStrategy, tree.getBuildStrategy());
+				assertEquals(POINT_COUNT, countNodes(tree.getRootNode()));
+
+				checkNode(tree, tree.getRootNode());
+			}
+		}
+	}
+
+	@Test
+	public void testKdTreeWithAxisStrategies() {
+		final List<KdPoint<Double>> points = new AnisotropicDoubleKdTreeGenerator().generatePoints(3, POINT_COUNT);
+
+		for (final KdTreeAxisStrategy axisStrategy : KdTreeAxisStrategy.values()) {
+			final KdTree<Double> tree = new KdTree<>(points, KdTreeBuildStrategy.APPROXIMATE_MEDIAN, axisStrategy,
+			        null);
+
+			assertEquals(POINT_COUNT, countNodes(tree.getRootNode()));
+
+			checkSplits(tree.getRootNode());
+
+			// Only the cyclic strategy should split the top levels on the flat last axis.
+
+			final int flatAxisSplitCount = countAxisSplits(tree.getRootNode(), 2, 6);
+
+			if (axisStrategy == KdTreeAxisStrategy.CYCLIC) {
+				assertTrue(flatAxisSplitCount > 0);
+			} else {
+				assertEquals(0, flatAxisSplitCount);
+			}
+		}
+	}
+
+	@Test
+	public void testKdTreeWithAxisStrategyBuiltInParallel() {
+		final ForkJoinPool pool = new ForkJoinPool(4);
+
+		try {
+			final List<KdPoint<Double>> points = new AnisotropicDoubleKdTreeGenerator().generatePoints(3, POINT_COUNT);
+
+			final KdTree<Double> sequentialTree = new KdTree<>(points, KdTreeBuildStrategy.EXACT_MEDIAN,
+			        KdTreeAxisStrategy.MAX_VARIANCE, null);
+			final KdTree<Double> parallelTree = new KdTree<>(points, KdTreeBuildStrategy.EXACT_MEDIAN,
+			        KdTreeAxisStrategy.MAX_VARIANCE, pool);
+
+			assertSameStructure(sequentialTree.getRootNode(), parallelTree.getRootNode());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testKdTreeWithSortedPoints() {
+		// Sorted input used to result in very unbalanced trees for the approximated
+		// median. The exact median has to result in a perfectly balanced tree.
+
+		final List<KdPoint<Double>> points = new ArrayList<>();
+
+		for (int i = 0; i < POINT_COUNT; i++) {
+			points.add(new KdPoint<>((double) i, (double) i));
+		}
+
+		final int minimumHeight = 32 - Integer.numberOfLeadingZeros(POINT_COUNT);
+
+		final KdTree<Double> exactTree = new KdTree<>(points, KdTreeBuildStrategy.EXACT_MEDIAN);
+
+		checkNode(exactTree, exactTree.getRootNode());
+		assertEquals(minimumHeight, getHeight(exactTree.getRootNode()));
+
+		final KdTree<Double> approximatedTree = new KdTree<>(points, KdTreeBuildStrategy.APPROXIMATE_MEDIAN);
+
+		checkNode(approximatedTree, approximatedTree.getRootNode());
+		assertTrue(getHeight(approximatedTree.getRootNode()) < 2 * minimumHeight);
+	}
+
+	@Test
+	public void testKdTreeWithDuplicatePoints() {
+		for (final KdTreeBuildStrategy buildStrategy : KdTreeBuildStrategy.values()) {
+			final List<KdPoint<Integer>> points = new ArrayList<>();
+
+			for (int i = 0; i < 1_000; i++) {
+				points.add(new KdPoint<>(i % 10, i % 7));
+			}
+
+			final KdTree<Integer> tree = new KdTree<>(points, buildStrategy);
+
+			assertEquals(points.size(), countNodes(tree.getRootNode()));
+
+			checkIntegerNode(tree.getRootNode());
+		}
+	}
+
+	@Test
+	public void testExactMedianWithDuplicateValues() {
+		// Points equal to the median move into the left subtree, so the exact median
+		// only results in a balanced tree for distinct values on each axis.
+
+		final List<KdPoint<Double>> points = new ArrayList<>();
+
+		for (int i = 0; i < 1_000; i++) {
+			points.add(new KdPoint<>(1.0, (double) i));
+		}
+
+		KdTreeShape shape = new KdTree<>(points, KdTreeBuildStrategy.EXACT_MEDIAN).getShape();
+
+		// Each node on the first axis only splits off its own point, each node on the
+		// second axis halves the remaining points.
+
+		assertTrue(shape.getHeight() > 15);
+		assertTrue(shape.getHeight() < 25);
+
+		// Points sharing all values form a chain.
+
+		points.clear();
+
+		for (int i = 0; i < 1_000; i++) {
+			points.add(new KdPoint<>(1.0, 2.0));
+		}
+
+		shape = new KdTree<>(points, KdTreeBuildStrategy.EXACT_MEDIAN).getShape();
+
+		assertEquals(999, shape.getHeight());
+		assertEquals(1, shape.getLeafCount());
+	}
+
+	@Test
+	public void testKdTreeDoesNotModifyPoints() {
+		final RandomDoubleKdTreeGenerator treeGenerator = new RandomDoubleKdTreeGenerator();
+
+		final List<KdPoint<Double>> points = treeGenerator.generatePoints(3, 1_000);
+		final List<KdPoint<Double>> pointsCopy = new ArrayList<>(points);
+
+		new KdTree<>(points, KdTreeBuildStrategy.EXACT_MEDIAN);
+
+		assertEquals(pointsCopy, points);
+	}
+
+	@Test
+	public void testKdTreeBuiltInParallel() {
+		final ForkJoinPool pool = new ForkJoinPool(4);
+
+		try {
+			for (final KdTreeBuildStrategy buildStrategy : KdTreeBuildStrategy.values()) {
+				final RandomDoubleKdTreeGenerator treeGenerator = new RandomDoubleKdTreeGenerator();
+
+				final List<KdPoint<Double>> points = treeGenerator.generatePoints(3, POINT_COUNT);
+
+				final KdTree<Double> sequentialTree = new KdTree<>(points, buildStrategy);
+				final KdTree<Double> parallelTree = new KdTree<>(points, buildStrategy, pool);
+
+				// Both trees must consist of the same point instances at the same positions.
+
+				checkNode(parallelTree, parallelTree.getRootNode());
+				assertSameStructure(sequentialTree.getRootNode(), parallelTree.getRootNode());
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testInsertIntoEmptyTree() {
+		final int dimensionCount = 3;
+
+		final RandomDoubleKdTreeGenerator treeGenerator = new RandomDoubleKdTreeGenerator();
+		final List<KdPoint<Double>> points = treeGenerator.generatePoints(dimensionCount, POINT_COUNT);
+
+		final KdTree<Double> tree = new KdTree<>(dimensionCount);
+
+		assertTrue(tree.isEmpty());
+		assertNull(tree.getRootNode());
+
+		for (final KdPoint<Double> point : points) {
+			tree.insert(point);
+		}
+
+		assertEquals(POINT_COUNT, tree.size());
+		assertEquals(POINT_COUNT, countNodes(tree.getRootNode()));
+		assertEquals(POINT_COUNT, tree.getRootNode().getSubtreeSize());
+
+		checkNode(tree, tree.getRootNode());
+		checkSubtreeSizes(tree.getRootNode());
+
+		// Partial rebuilds must keep the height logarithmic.
+
+		final double maxHeight = Math.log(POINT_COUNT) / Math.log(1 / 0.7) + 1;
+
+		assertTrue(getHeight(tree.getRootNode()) <= maxHeight);
+	}
+
+	@Test
+	public void testInsertSortedPoints() {
+		// Sorted points would result in a linked list without any rebuilds.
+
+		final KdTree<Double> tree = new KdTree<>(2);
+
+		for (int i = 0; i < POINT_COUNT; i++) {
+			tree.insert(new KdPoint<>((double) i, (double) i));
+		}
+
+		assertEquals(POINT_COUNT, countNodes(tree.getRootNode()));
+		assertTrue(getHeight(tree.getRootNode()) <= Math.log(POINT_COUNT) / Math.log(1 / 0.7) + 1);
+
+		checkNode(tree, tree.getRootNode());
+		checkSubtreeSizes(tree.getRootNode());
+	}
+
+	@Test
+	public void testRemove() {
+		final int dimensionCount = 3;
+
+		final RandomDoubleKdTreeGenerator treeGenerator = new RandomDoubleKdTreeGenerator();
+		final List<KdPoint<Double>> points = treeGenerator.generatePoints(dimensionCount, POINT_COUNT);
+
+		final KdTree<Double> tree = new KdTree<>(points);
+
+		// Points are identified by their instance, not their axis values.
+
+		assertFalse(tree.remove(new KdPoint<>(points.get(0))));
+
+		for (int i = 0; i < POINT_COUNT; i += 2) {
+			assertTrue(tree.remove(points.get(i)));
+		}
+
+		assertFalse(tree.remove(points.get(0)));
+		assertEquals(POINT_COUNT / 2, tree.size());
+
+		checkNode(tree, tree.getRootNode());
+		checkSubtreeSizes(tree.getRootNode());
+
+		// Removing all other points empties the tree.
+
+		for (int i = 1; i < POINT_COUNT; i += 2) {
+			assertTrue(tree.remove(points.get(i)));
+		}
+
+		assertTrue(tree.isEmpty());
+		assertNull(tree.getRootNode());
+
+		// The tree can still be filled again.
+
+		tree.insert(points.get(0));
+
+		assertSame(points.get(0), tree.getRootNode().point);
+	}
+
+	@Test
+	public void testShape() {
+		final List<KdPoint<Double>> points = new ArrayList<>();
+
+		for (int i = 0; i < 7; i++) {
+			points.add(new KdPoint<>((double) i));
+		}
+
+		final KdTree<Double> tree = new KdTree<>(points, KdTreeBuildStrategy.EXACT_MEDIAN);
+
+		KdTreeShape shape = tree.getShape();
+
+		assertEquals(7, shape.getPointCount());
+		assertEquals(7, shape.getNodeCount());
+		assertEquals(4, shape.getLeafCount());
+		assertEquals(2, shape.getHeight());
+		assertArrayEquals(new int[] { 1, 2, 4 }, shape.getDepthHistogram());
+		assertEquals(2, shape.getAverageLeafDepth(), 0);
+		assertEquals(1, shape.getBalanceFactor(), 0);
+
+		// Removed points keep their nodes until the next rebuild.
+
+		tree.remove(points.get(0));
+
+		shape = tree.getShape();
+
+		assertEquals(6, shape.getPointCount());
+		assertEquals(7, shape.getNodeCount());
+		assertEquals(1, shape.getRemovedNodeCount());
+	}
+
+	@Test
+	public void testShapeOfInsertedPoints() {
+		final KdTree<Double> tree = new KdTree<>(2);
+
+		assertEquals(-1, tree.getShape().getHeight());
+		assertEquals(0, tree.getShape().getNodeCount());
+
+		for (int i = 0; i < POINT_COUNT; i++) {
+			tree.insert(new KdPoint<>((double) i, (double) i));
+		}
+
+		final KdTreeShape shape = tree.getShape();
+		final int[] depthHistogram = shape.getDepthHistogram();
+
+		assertEquals(POINT_COUNT, shape.getNodeCount());
+		assertEquals(POINT_COUNT, Arrays.stream(depthHistogram).sum());
+		assertEquals(getHeight(tree.getRootNode()) - 1, shape.getHeight());
+		assertEquals(1, depthHistogram[0]);
+
+		// Rebuilding keeps the tree within a constant factor of the balanced height.
+
+		assertTrue(shape.getBalanceFactor() >= 1);
+		assertTrue(shape.getBalanceFactor() < 2.5);
+	}
+
+	@Test(expected = InvalidKdDimensionCountException.class)
+	public void testInsertWithInvalidDimensionCount() {
+		final KdTree<Double> tree = new KdTree<>(2);
+
+		// Expected to throw.
+
+		tree.insert(new KdPoint<>(1.0, 2.0, 3.0));
+	}
+
+	private int checkSubtreeSizes(final KdNode<?> node) {
+		if (node == null) {
+			return 0;
+		}
+
+		final int subtreeSize = 1 + checkSubtreeSizes(node.getLeftNode()) + checkSubtreeSizes(node.getRightNode());
+
+		assertEquals(subtreeSize, node.getSubtreeSize());
+
+		return subtreeSize;
+	}
+
+	private void assertSameStructure(final KdNode<Double> expected, final KdNode<Double> actual) {
+		if (expected == null) {
+			assertNull(actual);
+
+			return;
+		}
+
+		assertSame(expected.point, actual.point);
+		assertEquals(expected.depth, actual.depth);
+		assertEquals(expected.axisIndex, actual.axisIndex);
+
+		assertSameStructure(expected.getLeftNode(), actual.getLeftNode());
+		assertSameStructure(expected.getRightNode(), actual.getRightNode());
+	}
+
+	private int countNodes(final KdNode<?> node) {
+		return node == null ? 0 : 1 + countNodes(node.getLeftNode()) + countNodes(node.getRightNode());
+	}
+
+	private int getHeight(final KdNode<?> node) {
+		return node == null ? 0 : 1 + Math.max(getHeight(node.getLeftNode()), getHeight(node.getRightNode()));
+	}
+
+	private void checkIntegerNode(final KdNode<Integer> node) {
+		// Check the split invariant for all nodes of a subtree.
+
+		forEachPoint(node.getLeftNode(), point -> assertTrue(
+		        point.getAxisValue(node.axisIndex) <= node.point.getAxisValue(node.axisIndex)));
+		forEachPoint(node.getRightNode(), point -> assertTrue(
+		        point.getAxisValue(node.axisIndex) > node.point.getAxisValue(node.axisIndex)));
+
+		if (node.hasLeftNode()) {
+			checkIntegerNode(node.getLeftNode());
+		}
+
+		if (node.hasRightNode()) {
+			checkIntegerNode(node.getRightNode());
+		}
+	}
+
+	private <T extends Number & Comparable<T>> void forEachPoint(final KdNode<T> node,
+	        final Consumer<KdPoint<T>> consumer) {
+		if (node != null) {
+			consumer.accept(node.point);
+
+			forEachPoint(node.getLeftNode(), consumer);
+			forEachPoint(node.getRightNode(), consumer);
+		}
+	}
+
 	@Test(expected = InvalidKdPointCountException.class)
 	public void testKdTreeWithNoPoints() {
 		// Expected to throw.
@@ -38,11 +428,42 @@ public class KdTreeTest {
 
 		assertEquals(dimensionCount, tree.dimensionCount);
 
-		assertFalse(tree.rootNode.hasParentNode());
+		assertFalse(tree.getRootNode().hasParentNode());
 
 		// To test the tree, we have to traverse each node, performing various checks.
 
-		checkNode(tree, tree.rootNode);
+		checkNode(tree, tree.getRootNode());
+	}
+
+	/**
+	 * Checks that all points in the subtrees of each node are on the correct side
+	 * of it, independent of the axis of the node.
+	 */
+	private void checkSplits(final KdNode<Double> node) {
+		if (node == null) {
+			return;
+		}
+
+		final double splitValue = node.point.getAxisValue(node.axisIndex);
+
+		forEachPoint(node.getLeftNode(), point -> assertTrue(point.getAxisValue(node.axisIndex) <= splitValue));
+		forEachPoint(node.getRightNode(), point -> assertTrue(point.getAxisValue(node.axisIndex) > splitValue));
+
+		checkSplits(node.getLeftNode());
+		checkSplits(node.getRightNode());
+	}
+
+	/**
+	 * Returns the number of nodes in the given number of top levels that split on
+	 * the given axis.
+	 */
+	private int countAxisSplits(final KdNode<Double> node, final int axisIndex, final int levelCount) {
+		if (node == null || levelCount == 0) {
+			return 0;
+		}
+
+		return (node.axisIndex == axisIndex ? 1 : 0) + countAxisSplits(node.getLeftNode(), axisIndex, levelCount - 1)
+		        + countAxisSplits(node.getRightNode(), axisIndex, levelCount - 1);
 	}
 
 	private void checkNode(final KdTree<Double> tree, final KdNode<Double> node) {
@@ -0,0 +1,146 @@
+package de.jilocasin.nearestneighbour.kdtree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+import de.jilocasin.nearestneighbour.kdtree.exception.ImmutableKdTreeException;
+import de.jilocasin.nearestneighbour.kdtree.exception.InvalidKdDimensionCountException;
+import de.jilocasin.nearestneighbour.kdtree.generator.RandomDoubleKdTreeGenerator;
+import de.jilocasin.nearestneighbour.nnsolver.NNSolver;
+
+public class VersionedKdTreeTest {
+	private static final int POINT_COUNT = 10_000;
+
+	@Test
+	public void testUpdatesPublishNewSnapshots() {
+		final RandomDoubleKdTreeGenerator treeGenerator = new RandomDoubleKdTreeGenerator();
+		final List<KdPoint<Double>> points = treeGenerator.generatePoints(3, POINT_COUNT);
+
+		final KdTree<Double> sourceTree = new KdTree<>(points.subList(0, POINT_COUNT / 2));
+		final VersionedKdTree<Double> tree = new VersionedKdTree<>(sourceTree);
+
+		final KdTree<Double> initialSnapshot = tree.getSnapshot();
+
+		assertNotSame(sourceTree, initialSnapshot);
+		assertTrue(initialSnapshot.isImmutable());
+		assertFalse(sourceTree.isImmutable());
+
+		tree.insertAll(points.subList(POINT_COUNT / 2, POINT_COUNT));
+
+		assertTrue(tree.remove(points.get(0)));
+
+		// Removing a missing point does not publish a new snapshot.
+
+		final KdTree<Double> snapshot = tree.getSnapshot();
+
+		assertFalse(tree.remove(points.get(0)));
+		assertFalse(tree.remove(new KdPoint<>(points.get(1))));
+		assertSame(snapshot, tree.getSnapshot());
+
+		// Older snapshots are not affected by updates.
+
+		assertEquals(POINT_COUNT / 2, initialSnapshot.size());
+		assertEquals(POINT_COUNT - 1, tree.getSnapshot().size());
+
+		final NNSolver<Double> solver = new NNSolver<>(tree.getSnapshot());
+
+		assertSame(points.get(POINT_COUNT - 1), solver.findNearestPoint(new KdPoint<>(points.get(POINT_COUNT - 1))));
+		assertNotSame(points.get(0), solver.findNearestPoint(new KdPoint<>(points.get(0))));
+	}
+
+	@Test(expected = ImmutableKdTreeException.class)
+	public void testSnapshotCannotBeModified() {
+		final VersionedKdTree<Double> tree = new VersionedKdTree<>(2);
+
+		// Expected to throw.
+
+		tree.getSnapshot().insert(new KdPoint<>(1.0, 2.0));
+	}
+
+	@Test
+	public void testFailedUpdateIsNotPublished() {
+		final VersionedKdTree<Double> tree = new VersionedKdTree<>(2);
+
+		final List<KdPoint<Double>> points = new ArrayList<>();
+
+		points.add(new KdPoint<>(1.0, 2.0));
+		points.add(new KdPoint<>(1.0, 2.0, 3.0));
+
+		final KdTree<Double> snapshot = tree.getSnapshot();
+
+		try {
+			tree.insertAll(points);
+
+			fail();
+		} catch (final InvalidKdDimensionCountException e) {
+			assertSame(snapshot, tree.getSnapshot());
+			assertTrue(tree.getSnapshot().isEmpty());
+		}
+	}
+
+	@Test
+	public void testSearchWhileUpdating() throws Exception {
+		final RandomDoubleKdTreeGenerator treeGenerator = new RandomDoubleKdTreeGenerator();
+		final List<KdPoint<Double>> points = treeGenerator.generatePoints(3, POINT_COUNT);
+		final List<KdPoint<Double>> searchPoints = treeGenerator.generatePoints(3, 100);
+
+		final VersionedKdTree<Double> tree = new VersionedKdTree<>(points.subList(0, 1));
+
+		final AtomicBoolean updating = new AtomicBoolean(true);
+		final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+		try {
+			// Each reader compares the solver result on its snapshot against a brute force
+			// search over the points of that snapshot.
+
+			final List<Future<?>> readers = new ArrayList<>();
+
+			for (int i = 0; i < 2; i++) {
+				readers.add(executor.submit(() -> {
+					do {
+						final KdTree<Double> snapshot = tree.getSnapshot();
+						final List<KdPoint<Double>> snapshotPoints = points.subList(0, snapshot.size());
+
+						final NNSolver<Double> solver = new NNSolver<>(snapshot);
+
+						for (final KdPoint<Double> searchPoint : searchPoints) {
+							final KdPoint<Double> nearestPoint = solver.findNearestPoint(searchPoint);
+
+							for (final KdPoint<Double> point : snapshotPoints) {
+								assertTrue(nearestPoint.getDistanceSquared(searchPoint) <= point
+								        .getDistanceSquared(searchPoint));
+							}
+						}
+					} while (updating.get());
+				}));
+			}
+
+			for (int from = 1; from < POINT_COUNT; from += 500) {
+				tree.insertAll(points.subList(from, Math.min(from + 500, POINT_COUNT)));
+			}
+
+			updating.set(false);
+
+			for (final Future<?> reader : readers) {
+				reader.get();
+			}
+
+			assertEquals(POINT_COUNT, tree.getSnapshot().size());
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,130 @@
+package de.jilocasin.nearestneighbour.kdtree.distance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.jilocasin.nearestneighbour.kdtree.KdPoint;
+
+public class KdDistanceCalculatorTest {
+	private static final double EPSILON = 0.00001;
+
+	/**
+	 * Tolerance for rounding errors of comparable haversine distances, which are
+	 * between 0 and 1.
+	 */
+	private static final double HAVERSINE_EPSILON = 1e-12;
+
+	private static final int SAMPLE_COUNT = 100_000;
+
+	@Test
+	public void testDistances() {
+		final KdPoint<Double> point = new KdPoint<>(1.0, 2.0, 3.0);
+		final KdPoint<Double> otherPoint = new KdPoint<>(4.0, -2.0, 3.0);
+
+		assertEquals(25, new EuclideanDistanceCalculator().getComparableDistance(point, otherPoint), EPSILON);
+		assertEquals(7, new ManhattanDistanceCalculator().getComparableDistance(point, otherPoint), EPSILON);
+		assertEquals(4, new ChebyshevDistanceCalculator().getComparableDistance(point, otherPoint), EPSILON);
+		assertEquals(2 * 9 + 0.5 * 16,
+		        new WeightedEuclideanDistanceCalculator(2, 0.5, 1).getComparableDistance(point, otherPoint), EPSILON);
+	}
+
+	@Test
+	public void testHaversineDistance() {
+		final HaversineDistanceCalculator calculator = new HaversineDistanceCalculator();
+
+		// Berlin and Paris are about 878 km apart.
+
+		final KdPoint<Double> berlin = new KdPoint<>(52.5200, 13.4050);
+		final KdPoint<Double> paris = new KdPoint<>(48.8566, 2.3522);
+
+		final double comparableDistance = calculator.getComparableDistance(berlin, paris);
+
+		assertTrue(comparableDistance > calculator.toComparableDistance(870_000));
+		assertTrue(comparableDistance < calculator.toComparableDistance(885_000));
+
+		// Points on both sides of the antimeridian are close to each other.
+
+		final KdPoint<Double> west = new KdPoint<>(0.0, 179.5);
+		final KdPoint<Double> east = new KdPoint<>(0.0, -179.5);
+
+		assertEquals(calculator.toComparableDistance(Math.toRadians(1) * HaversineDistanceCalculator.EARTH_RADIUS),
+		        calculator.getComparableDistance(west, east), HAVERSINE_EPSILON);
+
+		assertEquals(1, calculator.toComparableDistance(Double.MAX_VALUE), EPSILON);
+	}
+
+	@Test
+	public void testAxisDistancesAreLowerBounds() {
+		final Random random = new Random(0);
+
+		assertLowerBounds(new EuclideanDistanceCalculator(), random, 3, 100);
+		assertLowerBounds(new ManhattanDistanceCalculator(), random, 3, 100);
+		assertLowerBounds(new ChebyshevDistanceCalculator(), random, 3, 100);
+		assertLowerBounds(new WeightedEuclideanDistanceCalculator(0.5, 2, 0), random, 3, 100);
+		assertLowerBounds(new HaversineDistanceCalculator(), random, 2, 0);
+	}
+
+	@Test
+	public void testFromComparableDistance() {
+		final KdDistanceCalculator[] calculators = { new EuclideanDistanceCalculator(),
+		        new ManhattanDistanceCalculator(), new ChebyshevDistanceCalculator(),
+		        new WeightedEuclideanDistanceCalculator(2, 0.5), new HaversineDistanceCalculator() };
+
+		for (final KdDistanceCalculator calculator : calculators) {
+			for (final double distance : new double[] { 0, 0.5, 3, 1_000, 878_000 }) {
+				assertEquals(distance, calculator.fromComparableDistance(calculator.toComparableDistance(distance)),
+				        distance * EPSILON);
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeWeight() {
+		// Expected to throw.
+
+		new WeightedEuclideanDistanceCalculator(1, -1);
+	}
+
+	/**
+	 * Checks the axis distance against the distance to random points on the other
+	 * side of a random hyperplane. Random values are between -range and range, or
+	 * valid latitude and longitude values if range is zero.
+	 */
+	private void assertLowerBounds(final KdDistanceCalculator calculator, final Random random,
+	        final int dimensionCount, final double range) {
+		for (int i = 0; i < SAMPLE_COUNT; i++) {
+			final KdPoint<Double> targetPoint = randomPoint(random, dimensionCount, range);
+			final KdPoint<Double> otherPoint = randomPoint(random, dimensionCount, range);
+
+			final int axisIndex = random.nextInt(dimensionCount);
+
+			// Split anywhere between both points.
+
+			final double targetValue = targetPoint.getAxisValue(axisIndex);
+			final double otherValue = otherPoint.getAxisValue(axisIndex);
+
+			final double splitValue = targetValue + random.nextDouble() * (otherValue - targetValue);
+
+			assertTrue(calculator.getComparableAxisDistance(targetPoint, axisIndex, splitValue) <= calculator
+			        .getComparableDistance(targetPoint, otherPoint) + HAVERSINE_EPSILON);
+		}
+	}
+
+	private KdPoint<Double> randomPoint(final Random random, final int dimensionCount, final double range) {
+		final Double[] axisValues = new Double[dimensionCount];
+
+		for (int i = 0; i < dimensionCount; i++) {
+			if (range > 0) {
+				axisValues[i] = (random.nextDouble() * 2 - 1) * range;
+			} else {
+				axisValues[i] = (random.nextDouble() * 2 - 1) * (i == 0 ? 90 : 180);
+			}
+		}
+
+		return new KdPoint<>(axisValues);
+	}
+}
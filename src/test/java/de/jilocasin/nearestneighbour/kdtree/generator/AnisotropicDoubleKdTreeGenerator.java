@@ -0,0 +1,25 @@
+package de.jilocasin.nearestneighbour.kdtree.generator;
+
+import java.util.List;
+
+/**
+ * Generates uniformly distributed points, whose values on the last axis only
+ * vary by a small fraction of the range of the other axes, like the altitude
+ * of points given by latitude, longitude and altitude.
+ */
+public class AnisotropicDoubleKdTreeGenerator extends RandomDoubleKdTreeGenerator {
+	/**
+	 * The range of the last axis compared to the range of the other axes.
+	 */
+	private static final double LAST_AXIS_SCALE = 0.001;
+
+	@Override
+	public List<Double> buildRandomPosition(final int dimensionCount) {
+		final List<Double> position = super.buildRandomPosition(dimensionCount);
+		final int lastAxisIndex = dimensionCount - 1;
+
+		position.set(lastAxisIndex, position.get(lastAxisIndex) * LAST_AXIS_SCALE);
+
+		return position;
+	}
+}
@@ -0,0 +1,42 @@
+package de.jilocasin.nearestneighbour.kdtree.generator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates points normally distributed around a fixed number of random
+ * cluster centers.
+ */
+public class ClusteredDoubleKdTreeGenerator extends RandomDoubleKdTreeGenerator {
+	private static final int CLUSTER_COUNT = 32;
+
+	/**
+	 * The standard deviation of the points around their cluster center.
+	 */
+	private static final double CLUSTER_DEVIATION = 5_000;
+
+	private final Random random = new Random(0);
+
+	private final List<List<Double>> clusterCenters = new ArrayList<>(CLUSTER_COUNT);
+
+	@Override
+	public List<Double> buildRandomPosition(final int dimensionCount) {
+		if (clusterCenters.isEmpty() || clusterCenters.get(0).size() != dimensionCount) {
+			clusterCenters.clear();
+
+			for (int i = 0; i < CLUSTER_COUNT; i++) {
+				clusterCenters.add(super.buildRandomPosition(dimensionCount));
+			}
+		}
+
+		final List<Double> center = clusterCenters.get(random.nextInt(CLUSTER_COUNT));
+		final List<Double> position = new ArrayList<>(dimensionCount);
+
+		for (final double centerValue : center) {
+			position.add(centerValue + random.nextGaussian() * CLUSTER_DEVIATION);
+		}
+
+		return position;
+	}
+}
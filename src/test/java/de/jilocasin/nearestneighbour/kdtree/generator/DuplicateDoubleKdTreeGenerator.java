@@ -0,0 +1,32 @@
+package de.jilocasin.nearestneighbour.kdtree.generator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates points at only a small number of distinct random positions, so most
+ * points share their axis values with many others.
+ */
+public class DuplicateDoubleKdTreeGenerator extends RandomDoubleKdTreeGenerator {
+	private static final int DISTINCT_POSITION_COUNT = 1_000;
+
+	private final Random random = new Random(0);
+
+	private final List<List<Double>> distinctPositions = new ArrayList<>(DISTINCT_POSITION_COUNT);
+
+	@Override
+	public List<Double> buildRandomPosition(final int dimensionCount) {
+		if (distinctPositions.isEmpty() || distinctPositions.get(0).size() != dimensionCount) {
+			distinctPositions.clear();
+
+			for (int i = 0; i < DISTINCT_POSITION_COUNT; i++) {
+				distinctPositions.add(super.buildRandomPosition(dimensionCount));
+			}
+		}
+
+		// Each point needs its own list of values, since KdPoint keeps the list.
+
+		return new ArrayList<>(distinctPositions.get(random.nextInt(DISTINCT_POSITION_COUNT)));
+	}
+}
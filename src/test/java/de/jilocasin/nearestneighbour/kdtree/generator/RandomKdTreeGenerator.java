@@ -16,16 +16,24 @@ public abstract class RandomKdTreeGenerator<T extends Number & Comparable<T>> {
 		final List<KdPoint<T>> points = new ArrayList<>(pointCount);
 
 		for (int i = 0; i < pointCount; i++) {
-			final List<T> position = new ArrayList<>(dimensionCount);
+			points.add(new KdPoint<>(buildRandomPosition(dimensionCount)));
+		}
 
-			for (int axisIndex = 0; axisIndex < dimensionCount; axisIndex++) {
-				position.add(buildRandomValue());
-			}
+		return points;
+	}
 
-			points.add(new KdPoint<>(position));
+	/**
+	 * Returns the axis values of a new random point. By default, each value is
+	 * chosen independently via {@link #buildRandomValue()}.
+	 */
+	public List<T> buildRandomPosition(final int dimensionCount) {
+		final List<T> position = new ArrayList<>(dimensionCount);
+
+		for (int axisIndex = 0; axisIndex < dimensionCount; axisIndex++) {
+			position.add(buildRandomValue());
 		}
 
-		return points;
+		return position;
 	}
 
 	public abstract T buildRandomValue();
@@ -0,0 +1,95 @@
+package de.jilocasin.nearestneighbour.nnsolver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import de.jilocasin.nearestneighbour.kdtree.CompactKdTree;
+import de.jilocasin.nearestneighbour.kdtree.KdPoint;
+import de.jilocasin.nearestneighbour.kdtree.KdTree;
+import de.jilocasin.nearestneighbour.kdtree.distance.KdDistanceCalculator;
+import de.jilocasin.nearestneighbour.kdtree.distance.ManhattanDistanceCalculator;
+import de.jilocasin.nearestneighbour.kdtree.generator.RandomDoubleKdTreeGenerator;
+
+public class CompactNNSolverTest {
+	private static final int POINT_COUNT = 10_000;
+	private static final int QUERY_COUNT = 1_000;
+
+	private static final int K = 10;
+
+	@Test
+	public void testFindNearestPoint() {
+		for (int dimensionCount = 1; dimensionCount <= 5; dimensionCount++) {
+			testSameAsPointerTree(dimensionCount, null);
+		}
+	}
+
+	@Test
+	public void testFindNearestPointWithDistanceCalculator() {
+		testSameAsPointerTree(3, new ManhattanDistanceCalculator());
+	}
+
+	@Test
+	public void testFindNearestPointOfTreePoint() {
+		final List<KdPoint<Double>> points = new RandomDoubleKdTreeGenerator().generatePoints(3, POINT_COUNT);
+		final CompactNNSolver<Double> solver = new CompactNNSolver<>(new CompactKdTree<>(points));
+
+		// A point instance included in the tree must not be its own nearest point.
+
+		for (final KdPoint<Double> point : points.subList(0, QUERY_COUNT)) {
+			assertNotSame(point, solver.findNearestPoint(point));
+			assertNotSame(point, solver.findKNearestPoints(point, K).get(0));
+		}
+	}
+
+	@Test
+	public void testFindNearestPointInSinglePointTree() {
+		final KdPoint<Double> point = new KdPoint<>(1.0, 2.0);
+		final CompactNNSolver<Double> solver = new CompactNNSolver<>(
+		        new CompactKdTree<>(Collections.singletonList(point)));
+
+		assertNull(solver.findNearestPoint(point));
+		assertEquals(point, solver.findNearestPoint(new KdPoint<>(1.0, 2.0)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testFindKNearestPointsWithInvalidK() {
+		final CompactNNSolver<Double> solver = new CompactNNSolver<>(
+		        new CompactKdTree<>(Collections.singletonList(new KdPoint<>(1.0, 2.0))));
+
+		// Expected to throw.
+
+		solver.findKNearestPoints(new KdPoint<>(1.0, 2.0), 0);
+	}
+
+	private void testSameAsPointerTree(final int dimensionCount, final KdDistanceCalculator distanceCalculator) {
+		final RandomDoubleKdTreeGenerator generator = new RandomDoubleKdTreeGenerator();
+		final List<KdPoint<Double>> points = generator.generatePoints(dimensionCount, POINT_COUNT);
+
+		final KdTree<Double> tree = new KdTree<>(points);
+
+		final NNSolver<Double> solver;
+		final CompactNNSolver<Double> compactSolver;
+
+		if (distanceCalculator == null) {
+			solver = new NNSolver<>(tree);
+			compactSolver = new CompactNNSolver<>(new CompactKdTree<>(tree));
+		} else {
+			solver = new NNSolver<>(tree, distanceCalculator);
+			compactSolver = new CompactNNSolver<>(new CompactKdTree<>(tree), distanceCalculator);
+		}
+
+		// Both trees must return the same points. Random points don't share distances,
+		// so the results are unique.
+
+		for (final KdPoint<Double> searchPoint : generator.generatePoints(dimensionCount, QUERY_COUNT)) {
+			assertEquals(solver.findNearestPoint(searchPoint), compactSolver.findNearestPoint(searchPoint));
+			assertEquals(solver.findKNearestPoints(searchPoint, K), compactSolver.findKNearestPoints(searchPoint, K));
+		}
+	}
+}
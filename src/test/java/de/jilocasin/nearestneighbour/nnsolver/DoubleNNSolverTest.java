@@ -0,0 +1,130 @@
+package de.jilocasin.nearestneighbour.nnsolver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.jilocasin.nearestneighbour.kdtree.DoubleKdTree;
+
+public class DoubleNNSolverTest {
+	private static final int POINT_COUNT = 10_000;
+	private static final int QUERY_COUNT = 500;
+
+	private static final int MIN_DIMENSIONS = 1;
+	private static final int MAX_DIMENSIONS = 5;
+
+	@Test
+	public void testFindNearestPointForAllDimensions() {
+		for (int dimensionCount = MIN_DIMENSIONS; dimensionCount <= MAX_DIMENSIONS; dimensionCount++) {
+			testFindNearestPointForDimensionCount(dimensionCount, DoubleKdTree.DEFAULT_BUCKET_SIZE);
+		}
+	}
+
+	@Test
+	public void testFindNearestPointWithBucketSizes() {
+		for (final int bucketSize : new int[] { 1, 8, 64, POINT_COUNT }) {
+			testFindNearestPointForDimensionCount(3, bucketSize);
+		}
+	}
+
+	@Test
+	public void testFindNearestPointForExplicitData() {
+		// Same data as the explicit NNSolver test, so both solvers have to agree.
+
+		final double[][] points = { { 0.0, 0.0 }, { 5.0, 5.0 }, { 8.0, 5.0 }, { -30.0, -30.0 }, { -40.0, -40.0 },
+		        { 0.01, 0.01 } };
+
+		final DoubleNNSolver solver = new DoubleNNSolver(new DoubleKdTree(points));
+
+		assertEquals(5, solver.findNearestPoint(points[0], 0));
+		assertEquals(2, solver.findNearestPoint(points[1], 1));
+		assertEquals(1, solver.findNearestPoint(points[2], 2));
+		assertEquals(4, solver.findNearestPoint(points[3], 3));
+		assertEquals(3, solver.findNearestPoint(points[4], 4));
+		assertEquals(0, solver.findNearestPoint(points[5], 5));
+
+		// Without excluding a point, each point is its own nearest neighbour.
+
+		for (int i = 0; i < points.length; i++) {
+			assertEquals(i, solver.findNearestPoint(points[i]));
+		}
+	}
+
+	@Test
+	public void testFindNearestPointWithSinglePoint() {
+		final DoubleNNSolver solver = new DoubleNNSolver(new DoubleKdTree(new double[][] { { 1.0, 2.0 } }));
+
+		assertEquals(0, solver.findNearestPoint(new double[] { 5.0, 5.0 }));
+		assertEquals(DoubleNNSolver.NO_POINT, solver.findNearestPoint(new double[] { 1.0, 2.0 }, 0));
+	}
+
+	private void testFindNearestPointForDimensionCount(final int dimensionCount, final int bucketSize) {
+		final Random random = new Random(0);
+
+		final double[] coordinates = new double[POINT_COUNT * dimensionCount];
+
+		for (int i = 0; i < coordinates.length; i++) {
+			coordinates[i] = random.nextDouble();
+		}
+
+		final DoubleNNSolver solver = new DoubleNNSolver(new DoubleKdTree(coordinates, dimensionCount, bucketSize));
+
+		for (int queryIndex = 0; queryIndex < QUERY_COUNT; queryIndex++) {
+			final double[] target = new double[dimensionCount];
+
+			for (int axisIndex = 0; axisIndex < dimensionCount; axisIndex++) {
+				target[axisIndex] = random.nextDouble();
+			}
+
+			// Compare the distance against a brute force search, since ties may return any
+			// of the closest points.
+
+			final int nearest = solver.findNearestPoint(target);
+
+			assertEquals(bruteForceNearestDistanceSquared(coordinates, dimensionCount, target, -1),
+			        distanceSquared(coordinates, dimensionCount, nearest, target), 0);
+
+			// Searching from an existing point while excluding it must not return itself.
+
+			final int pointIndex = random.nextInt(POINT_COUNT);
+			final double[] pointTarget = new double[dimensionCount];
+
+			System.arraycopy(coordinates, pointIndex * dimensionCount, pointTarget, 0, dimensionCount);
+
+			final int nearestOther = solver.findNearestPoint(pointTarget, pointIndex);
+
+			assertNotEquals(pointIndex, nearestOther);
+			assertEquals(bruteForceNearestDistanceSquared(coordinates, dimensionCount, pointTarget, pointIndex),
+			        distanceSquared(coordinates, dimensionCount, nearestOther, pointTarget), 0);
+		}
+	}
+
+	private double bruteForceNearestDistanceSquared(final double[] coordinates, final int dimensionCount,
+	        final double[] target, final int excludedPointIndex) {
+		double best = Double.POSITIVE_INFINITY;
+
+		for (int pointIndex = 0; pointIndex < coordinates.length / dimensionCount; pointIndex++) {
+			if (pointIndex != excludedPointIndex) {
+				best = Math.min(best, distanceSquared(coordinates, dimensionCount, pointIndex, target));
+			}
+		}
+
+		return best;
+	}
+
+	private double distanceSquared(final double[] coordinates, final int dimensionCount, final int pointIndex,
+	        final double[] target) {
+		double distance = 0;
+
+		for (int axisIndex = 0; axisIndex < dimensionCount; axisIndex++) {
+			final double delta = coordinates[pointIndex * dimensionCount + axisIndex] - target[axisIndex];
+
+			distance += delta * delta;
+		}
+
+		return distance;
+	}
+}
@@ -0,0 +1,281 @@
+package de.jilocasin.nearestneighbour.nnsolver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import de.jilocasin.nearestneighbour.kdtree.KdPoint;
+import de.jilocasin.nearestneighbour.kdtree.KdTree;
+import de.jilocasin.nearestneighbour.kdtree.VersionedKdTree;
+import de.jilocasin.nearestneighbour.kdtree.generator.RandomDoubleKdTreeGenerator;
+
+public class NNResultCacheTest {
+	private static final int POINT_COUNT = 10_000;
+	private static final int QUERY_COUNT = 500;
+
+	/**
+	 * Large enough for all queries, even if they are not spread evenly between the
+	 * stripes of the cache.
+	 */
+	private static final int CACHE_SIZE = 4 * QUERY_COUNT;
+
+	private static final double EPSILON = 0.00001;
+
+	@Test
+	public void testCachedResults() {
+		final RandomDoubleKdTreeGenerator treeGenerator = new RandomDoubleKdTreeGenerator();
+
+		final KdTree<Double> tree = new KdTree<>(treeGenerator.generatePoints(3, POINT_COUNT));
+		final List<KdPoint<Double>> searchPoints = treeGenerator.generatePoints(3, QUERY_COUNT);
+
+		final NNSolver<Double> solver = new NNSolver<>(tree);
+		final NNSolver<Double> cachedSolver = new NNSolver<>(tree);
+		final NNResultCache<Double> cache = new NNResultCache<>(CACHE_SIZE);
+
+		cachedSolver.setResultCache(cache);
+
+		for (int round = 0; round < 2; round++) {
+			for (final KdPoint<Double> searchPoint : searchPoints) {
+				// Search for a new instance each time, the cache only looks at the axis
+				// values.
+
+				final KdPoint<Double> searchPointCopy = new KdPoint<>(searchPoint);
+
+				final KdPoint<Double> expectedPoint = solver.findNearestPoint(searchPoint);
+				final KdPoint<Double> cachedPoint = cachedSolver.findNearestPoint(searchPointCopy);
+
+				assertEquals(expectedPoint.getDistanceSquared(searchPoint), cachedPoint.getDistanceSquared(searchPoint),
+				        EPSILON);
+			}
+		}
+
+		assertEquals(QUERY_COUNT, cache.getMissCount());
+		assertEquals(QUERY_COUNT, cache.getHitCount());
+		assertEquals(QUERY_COUNT, cache.size());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedEviction() {
+		final List<KdPoint<Double>> points = new ArrayList<>();
+
+		points.add(new KdPoint<>(0.0, 0.0));
+		points.add(new KdPoint<>(10.0, 10.0));
+
+		final NNSolver<Double> solver = new NNSolver<>(new KdTree<>(points));
+		final NNResultCache<Double> cache = new NNResultCache<>(2);
+
+		solver.setResultCache(cache);
+
+		solver.findNearestPoint(new KdPoint<>(1.0, 1.0));
+		solver.findNearestPoint(new KdPoint<>(2.0, 2.0));
+
+		// Use the first result again, so the second one is evicted next.
+
+		solver.findNearestPoint(new KdPoint<>(1.0, 1.0));
+		solver.findNearestPoint(new KdPoint<>(3.0, 3.0));
+
+		assertEquals(1, cache.getHitCount());
+		assertEquals(3, cache.getMissCount());
+		assertEquals(2, cache.size());
+
+		solver.findNearestPoint(new KdPoint<>(1.0, 1.0));
+		solver.findNearestPoint(new KdPoint<>(2.0, 2.0));
+
+		assertEquals(2, cache.getHitCount());
+		assertEquals(4, cache.getMissCount());
+	}
+
+	@Test
+	public void testInvalidateOnTreeChange() {
+		final List<KdPoint<Double>> points = new ArrayList<>();
+
+		points.add(new KdPoint<>(0.0, 0.0));
+		points.add(new KdPoint<>(10.0, 10.0));
+
+		final KdTree<Double> tree = new KdTree<>(points);
+		final NNSolver<Double> solver = new NNSolver<>(tree);
+
+		solver.setResultCache(new NNResultCache<>(10));
+
+		assertSame(points.get(0), solver.findNearestPoint(new KdPoint<>(4.0, 4.0)));
+
+		final KdPoint<Double> insertedPoint = new KdPoint<>(5.0, 5.0);
+
+		tree.insert(insertedPoint);
+
+		assertSame(insertedPoint, solver.findNearestPoint(new KdPoint<>(4.0, 4.0)));
+
+		// The outdated result was replaced instead of being kept next to the new one.
+
+		assertEquals(1, solver.getResultCache().size());
+
+		tree.remove(insertedPoint);
+
+		assertSame(points.get(0), solver.findNearestPoint(new KdPoint<>(4.0, 4.0)));
+		assertEquals(0, solver.getResultCache().getHitCount());
+	}
+
+	@Test
+	public void testInvalidateOnNewSnapshot() {
+		final List<KdPoint<Double>> points = new ArrayList<>();
+
+		points.add(new KdPoint<>(0.0, 0.0));
+		points.add(new KdPoint<>(10.0, 10.0));
+
+		final VersionedKdTree<Double> tree = new VersionedKdTree<>(points);
+		final NNResultCache<Double> cache = new NNResultCache<>(10);
+
+		final NNSolver<Double> solver = new NNSolver<>(tree.getSnapshot());
+
+		solver.setResultCache(cache);
+
+		assertSame(points.get(1), solver.findNearestPoint(new KdPoint<>(6.0, 6.0)));
+
+		final KdPoint<Double> insertedPoint = new KdPoint<>(5.0, 5.0);
+
+		tree.insert(insertedPoint);
+
+		// Solvers of the new snapshot must not see the results of the old one, even
+		// though they share the cache.
+
+		final NNSolver<Double> snapshotSolver = new NNSolver<>(tree.getSnapshot());
+
+		snapshotSolver.setResultCache(cache);
+
+		assertSame(insertedPoint, snapshotSolver.findNearestPoint(new KdPoint<>(6.0, 6.0)));
+		assertSame(points.get(1), solver.findNearestPoint(new KdPoint<>(6.0, 6.0)));
+	}
+
+	@Test
+	public void testCacheDoesNotKeepTreeAlive() throws InterruptedException {
+		final NNResultCache<Double> cache = new NNResultCache<>(10);
+		final WeakReference<KdTree<Double>> treeReference = cacheResultOfDiscardedTree(cache);
+
+		assertEquals(1, cache.size());
+
+		for (int i = 0; i < 100 && treeReference.get() != null; i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+
+		assertNull(treeReference.get());
+	}
+
+	@Test
+	public void testSearchForTreePoint() {
+		final List<KdPoint<Double>> points = new ArrayList<>();
+
+		points.add(new KdPoint<>(0.0, 0.0));
+		points.add(new KdPoint<>(1.0, 1.0));
+		points.add(new KdPoint<>(5.0, 5.0));
+
+		final NNSolver<Double> solver = new NNSolver<>(new KdTree<>(points));
+		final NNResultCache<Double> cache = new NNResultCache<>(10);
+
+		solver.setResultCache(cache);
+
+		// The result for a tree point excludes the point itself, so it must not be
+		// reused for other instances at the same position.
+
+		assertSame(points.get(1), solver.findNearestPoint(points.get(0)));
+		assertEquals(0, cache.size());
+
+		assertSame(points.get(0), solver.findNearestPoint(new KdPoint<>(0.0, 0.0)));
+		assertEquals(1, cache.size());
+
+		// The other way around, the cached result must not be returned for the tree
+		// point itself.
+
+		assertSame(points.get(1), solver.findNearestPoint(points.get(0)));
+		assertSame(points.get(0), solver.findNearestPoint(new KdPoint<>(0.0, 0.0)));
+
+		assertEquals(1, cache.getHitCount());
+	}
+
+	@Test
+	public void testQuantisedKeys() {
+		final List<KdPoint<Double>> points = new ArrayList<>();
+
+		points.add(new KdPoint<>(0.0, 0.0));
+		points.add(new KdPoint<>(10.0, 10.0));
+
+		final NNSolver<Double> solver = new NNSolver<>(new KdTree<>(points));
+		final NNResultCache<Double> cache = new NNResultCache<>(10, 1.0);
+
+		solver.setResultCache(cache);
+
+		assertSame(points.get(0), solver.findNearestPoint(new KdPoint<>(2.25, 2.5)));
+		assertSame(points.get(0), solver.findNearestPoint(new KdPoint<>(2.75, 2.0)));
+		assertSame(points.get(0), solver.findNearestPoint(new KdPoint<>(-0.25, 0.5)));
+
+		assertEquals(1, cache.getHitCount());
+		assertEquals(2, cache.getMissCount());
+	}
+
+	@Test
+	public void testOrchestratorWithCache() {
+		final RandomDoubleKdTreeGenerator treeGenerator = new RandomDoubleKdTreeGenerator();
+
+		final KdTree<Double> tree = new KdTree<>(treeGenerator.generatePoints(2, POINT_COUNT));
+		final List<KdPoint<Double>> searchPoints = treeGenerator.generatePoints(2, QUERY_COUNT);
+
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+		try {
+			final NNSolverOrchestrator<Double> orchestrator = new NNSolverOrchestrator<>(tree, executor, 4);
+			final NNResultCache<Double> cache = new NNResultCache<>(CACHE_SIZE);
+
+			orchestrator.setResultCache(cache);
+
+			final List<KdPoint<Double>> firstResults = orchestrator.findNearestPoints(searchPoints);
+			final List<KdPoint<Double>> secondResults = orchestrator.findNearestPoints(searchPoints);
+
+			for (int i = 0; i < QUERY_COUNT; i++) {
+				assertSame(firstResults.get(i), secondResults.get(i));
+			}
+
+			assertEquals(QUERY_COUNT, cache.getMissCount());
+			assertEquals(QUERY_COUNT, cache.getHitCount());
+
+			orchestrator.setResultCache(null);
+
+			assertEquals(QUERY_COUNT, orchestrator.findNearestPoints(searchPoints).size());
+			assertEquals(QUERY_COUNT, cache.getHitCount());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private WeakReference<KdTree<Double>> cacheResultOfDiscardedTree(final NNResultCache<Double> cache) {
+		final List<KdPoint<Double>> points = new ArrayList<>();
+
+		points.add(new KdPoint<>(0.0, 0.0));
+		points.add(new KdPoint<>(10.0, 10.0));
+
+		final KdTree<Double> tree = new KdTree<>(points);
+		final NNSolver<Double> solver = new NNSolver<>(tree);
+
+		solver.setResultCache(cache);
+		solver.findNearestPoint(new KdPoint<>(1.0, 1.0));
+
+		return new WeakReference<>(tree);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidMaxSize() {
+		new NNResultCache<Double>(0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidQuantum() {
+		new NNResultCache<Double>(10, -1);
+	}
+}
@@ -0,0 +1,119 @@
+package de.jilocasin.nearestneighbour.nnsolver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import de.jilocasin.nearestneighbour.kdtree.KdPoint;
+import de.jilocasin.nearestneighbour.kdtree.KdTree;
+import de.jilocasin.nearestneighbour.kdtree.generator.RandomDoubleKdTreeGenerator;
+
+public class NNSearchStatisticsTest {
+	private static final int POINT_COUNT = 10_000;
+	private static final int QUERY_COUNT = 200;
+
+	@Test
+	public void testStatisticsForAllStrategies() {
+		final RandomDoubleKdTreeGenerator treeGenerator = new RandomDoubleKdTreeGenerator();
+
+		final KdTree<Double> tree = new KdTree<>(treeGenerator.generatePoints(3, POINT_COUNT));
+		final List<KdPoint<Double>> searchPoints = treeGenerator.generatePoints(3, QUERY_COUNT);
+
+		final int height = tree.getShape().getHeight();
+
+		for (final NNSearchStrategy strategy : NNSearchStrategy.values()) {
+			final NNSolver<Double> solver = new NNSolver<>(tree, strategy);
+			final NNSearchStatistics statistics = new NNSearchStatistics();
+
+			solver.setSearchRecorder(statistics);
+
+			long nodeVisitCount = 0;
+			long distanceComputationCount = 0;
+
+			for (final KdPoint<Double> searchPoint : searchPoints) {
+				solver.findNearestPoint(searchPoint);
+
+				// Each search moves down to at least one leaf, but should only check a
+				// small part of the tree.
+
+				assertTrue(statistics.getNodeVisitCount() >= 1);
+				assertTrue(statistics.getNodeVisitCount() < POINT_COUNT / 10);
+				assertTrue(statistics.getDistanceComputationCount() >= 1);
+				assertTrue(statistics.getDistanceComputationCount() <= statistics.getNodeVisitCount());
+				assertTrue(statistics.getMaxDepth() <= height);
+				assertTrue(statistics.getPruneRatio() >= 0 && statistics.getPruneRatio() <= 1);
+
+				nodeVisitCount += statistics.getNodeVisitCount();
+				distanceComputationCount += statistics.getDistanceComputationCount();
+			}
+
+			assertEquals(QUERY_COUNT, statistics.getSearchCount());
+			assertEquals(nodeVisitCount, statistics.getTotalNodeVisitCount());
+			assertEquals(distanceComputationCount, statistics.getTotalDistanceComputationCount());
+			assertEquals((double) nodeVisitCount / QUERY_COUNT, statistics.getAverageNodeVisitCount(), 0.000001);
+
+			assertTrue(statistics.getTotalBacktrackCount() > 0);
+			assertTrue(statistics.getTotalPrunedBranchCount() > 0);
+			assertTrue(statistics.getTotalMaxDepth() <= height);
+		}
+	}
+
+	@Test
+	public void testStatisticsForSinglePoint() {
+		final List<KdPoint<Double>> points = new ArrayList<>();
+
+		points.add(new KdPoint<>(1.0, 2.0));
+
+		final NNSolver<Double> solver = new NNSolver<>(new KdTree<>(points));
+		final NNSearchStatistics statistics = new NNSearchStatistics();
+
+		solver.setSearchRecorder(statistics);
+
+		assertSame(points.get(0), solver.findNearestPoint(new KdPoint<>(0.0, 0.0)));
+
+		assertEquals(1, statistics.getNodeVisitCount());
+		assertEquals(1, statistics.getDistanceComputationCount());
+		assertEquals(0, statistics.getBacktrackCount());
+		assertEquals(0, statistics.getPrunedBranchCount());
+		assertEquals(0, statistics.getMaxDepth());
+		assertEquals(1, statistics.getPruneRatio(), 0);
+
+		// The search point itself is visited, but its distance is not computed.
+
+		solver.findNearestPoint(points.get(0));
+
+		assertEquals(1, statistics.getNodeVisitCount());
+		assertEquals(0, statistics.getDistanceComputationCount());
+		assertEquals(2, statistics.getSearchCount());
+	}
+
+	@Test
+	public void testResetAndRemoveRecorder() {
+		final RandomDoubleKdTreeGenerator treeGenerator = new RandomDoubleKdTreeGenerator();
+
+		final KdTree<Double> tree = new KdTree<>(treeGenerator.generatePoints(2, POINT_COUNT));
+		final NNSolver<Double> solver = new NNSolver<>(tree);
+		final NNSearchStatistics statistics = new NNSearchStatistics();
+
+		solver.setSearchRecorder(statistics);
+		solver.findNearestPoint(new KdPoint<>(0.5, 0.5));
+
+		assertEquals(1, statistics.getSearchCount());
+
+		statistics.reset();
+
+		assertEquals(0, statistics.getSearchCount());
+		assertEquals(0, statistics.getNodeVisitCount());
+		assertEquals(0, statistics.getTotalNodeVisitCount());
+
+		solver.setSearchRecorder(null);
+		solver.findNearestPoint(new KdPoint<>(0.5, 0.5));
+
+		assertEquals(0, statistics.getSearchCount());
+	}
+}
@@ -1,15 +1,32 @@
 package de.jilocasin.nearestneighbour.nnsolver;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.junit.Test;
 
 import de.jilocasin.nearestneighbour.kdtree.KdPoint;
 import de.jilocasin.nearestneighbour.kdtree.KdTree;
+import de.jilocasin.nearestneighbour.kdtree.VersionedKdTree;
 import de.jilocasin.nearestneighbour.kdtree.generator.RandomDoubleKdTreeGenerator;
 
 public class NNSolverOrchestratorTest {
@@ -24,11 +41,11 @@ public class NNSolverOrchestratorTest {
 		final List<KdPoint<Double>> inputPoints = treeGenerator.generatePoints(dimensionCount, POINT_COUNT);
 		final KdTree<Double> tree = new KdTree<>(inputPoints);
 
-		final NNSolverOrchestrator<Double> orchestrator = new NNSolverOrchestrator<>(tree);
+		try (final NNSolverOrchestrator<Double> orchestrator = new NNSolverOrchestrator<>(tree)) {
+			Thread.currentThread().interrupt();
 
-		Thread.currentThread().interrupt();
-
-		orchestrator.findNearestPoints(inputPoints);
+			orchestrator.findNearestPoints(inputPoints);
+		}
 	}
 
 	@Test
@@ -41,9 +58,9 @@ public class NNSolverOrchestratorTest {
 		final List<KdPoint<Double>> inputPoints = treeGenerator.generatePoints(dimensionCount, POINT_COUNT);
 		final KdTree<Double> tree = new KdTree<>(inputPoints);
 
-		final NNSolverOrchestrator<Double> orchestrator = new NNSolverOrchestrator<>(tree, workerThreadsCount);
-
-		performOrchestratorTest(orchestrator, inputPoints);
+		try (final NNSolverOrchestrator<Double> orchestrator = new NNSolverOrchestrator<>(tree, workerThreadsCount)) {
+			performOrchestratorTest(orchestrator, inputPoints);
+		}
 	}
 
 	@Test
@@ -55,9 +72,478 @@ public class NNSolverOrchestratorTest {
 		final List<KdPoint<Double>> inputPoints = treeGenerator.generatePoints(dimensionCount, POINT_COUNT);
 		final KdTree<Double> tree = new KdTree<>(inputPoints);
 
-		final NNSolverOrchestrator<Double> orchestrator = new NNSolverOrchestrator<>(tree);
+		try (final NNSolverOrchestrator<Double> orchestrator = new NNSolverOrchestrator<>(tree)) {
+			performOrchestratorTest(orchestrator, inputPoints);
+		}
+	}
+
+	@Test
+	public void testFindKNearestPoints() {
+		final int dimensionCount = 3;
+		final int workerThreadsCount = 4;
+		final int k = 5;
+
+		final RandomDoubleKdTreeGenerator treeGenerator = new RandomDoubleKdTreeGenerator();
+
+		final List<KdPoint<Double>> inputPoints = treeGenerator.generatePoints(dimensionCount, POINT_COUNT);
+		final KdTree<Double> tree = new KdTree<>(inputPoints);
+
+		try (final NNSolverOrchestrator<Double> orchestrator = new NNSolverOrchestrator<>(tree, workerThreadsCount)) {
+			final List<List<KdPoint<Double>>> resultPoints = orchestrator.findKNearestPoints(inputPoints, k);
+
+			assertEquals(inputPoints.size(), resultPoints.size());
+
+			// Each result must match a single solver for the point at the same index.
+
+			final NNSolver<Double> solver = new NNSolver<>(tree);
+
+			for (int i = 0; i < resultPoints.size(); i += 100) {
+				assertEquals(solver.findKNearestPoints(inputPoints.get(i), k), resultPoints.get(i));
+			}
+		}
+	}
+
+	@Test
+	public void testFindNearestPointsWithFewInputPoints() {
+		// Inputs not evenly divisible by the number of worker threads, or smaller than
+		// it, must still return a result for every search point.
+
+		final int dimensionCount = 3;
+		final int workerThreadsCount = 8;
+
+		final RandomDoubleKdTreeGenerator treeGenerator = new RandomDoubleKdTreeGenerator();
+
+		final List<KdPoint<Double>> inputPoints = treeGenerator.generatePoints(dimensionCount, POINT_COUNT);
+		final KdTree<Double> tree = new KdTree<>(inputPoints);
+
+		try (final NNSolverOrchestrator<Double> orchestrator = new NNSolverOrchestrator<>(tree, workerThreadsCount)) {
+			for (final int searchPointCount : new int[] { 0, 1, workerThreadsCount - 1, 1_001 }) {
+				final List<KdPoint<Double>> searchPoints = treeGenerator.generatePoints(dimensionCount, searchPointCount);
+
+				assertSameAsSolver(tree, searchPoints, orchestrator.findNearestPoints(searchPoints));
+			}
+		}
+	}
+
+	@Test
+	public void testFindNearestPointsInMortonOrder() {
+		final int dimensionCount = 3;
+		final int workerThreadsCount = 4;
+
+		final RandomDoubleKdTreeGenerator treeGenerator = new RandomDoubleKdTreeGenerator();
+
+		final List<KdPoint<Double>> inputPoints = treeGenerator.generatePoints(dimensionCount, POINT_COUNT);
+		final KdTree<Double> tree = new KdTree<>(inputPoints);
+
+		try (final NNSolverOrchestrator<Double> orchestrator = new NNSolverOrchestrator<>(tree, workerThreadsCount)) {
+			// The results must be returned in the order of the search points.
+
+			for (final int searchPointCount : new int[] { 0, 1, 2, 1_001, 10_000 }) {
+				final List<KdPoint<Double>> searchPoints = new LinkedList<>(
+				        treeGenerator.generatePoints(dimensionCount, searchPointCount));
+
+				assertSameAsSolver(tree, searchPoints, orchestrator.findNearestPoints(searchPoints, NNQueryOrder.MORTON));
+			}
+
+			final List<List<KdPoint<Double>>> resultPoints = orchestrator.findKNearestPoints(inputPoints, 3,
+			        NNQueryOrder.MORTON);
+
+			final NNSolver<Double> solver = new NNSolver<>(tree);
+
+			for (int i = 0; i < resultPoints.size(); i += 100) {
+				assertEquals(solver.findKNearestPoints(inputPoints.get(i), 3), resultPoints.get(i));
+			}
+		}
+	}
+
+	@Test
+	public void testFindNearestPointsFromIterator() {
+		final int dimensionCount = 3;
+		final int workerThreadsCount = 3;
+
+		final RandomDoubleKdTreeGenerator treeGenerator = new RandomDoubleKdTreeGenerator();
+
+		final KdTree<Double> tree = treeGenerator.generate(dimensionCount, POINT_COUNT);
+		try (final NNSolverOrchestrator<Double> orchestrator = new NNSolverOrchestrator<>(tree, workerThreadsCount)) {
+			for (final int searchPointCount : new int[] { 0, 1, 99, 100, 10_001 }) {
+				final List<KdPoint<Double>> searchPoints = treeGenerator.generatePoints(dimensionCount, searchPointCount);
+				final List<KdPoint<Double>> resultPoints = new ArrayList<>();
+
+				orchestrator.findNearestPoints(searchPoints.iterator(), 100, (index, searchPoint, nearestPoint) -> {
+					// The results must be passed in the order of the search points.
+
+					assertEquals(resultPoints.size(), index);
+					assertSame(searchPoints.get((int) index), searchPoint);
+
+					resultPoints.add(nearestPoint);
+				});
+
+				assertSameAsSolver(tree, searchPoints, resultPoints);
+			}
+
+			final List<KdPoint<Double>> searchPoints = treeGenerator.generatePoints(dimensionCount, 1_000);
+			final NNSolver<Double> solver = new NNSolver<>(tree);
+
+			orchestrator.findKNearestPoints(searchPoints.iterator(), 3, 64, (index, searchPoint, nearestPoints) -> {
+				assertEquals(solver.findKNearestPoints(searchPoint, 3), nearestPoints);
+			});
+		}
+	}
+
+	@Test
+	public void testFindNearestPointsFromIteratorIsBounded() {
+		final int dimensionCount = 3;
+		final int workerThreadsCount = 2;
+		final int chunkSize = 50;
+
+		final RandomDoubleKdTreeGenerator treeGenerator = new RandomDoubleKdTreeGenerator();
+
+		final KdTree<Double> tree = treeGenerator.generate(dimensionCount, 1_000);
+		try (final NNSolverOrchestrator<Double> orchestrator = new NNSolverOrchestrator<>(tree, workerThreadsCount)) {
+			// Generate the search points while iterating, so they are never all held in
+			// memory at once.
+
+			final int searchPointCount = 100_000;
+			final AtomicLong readCount = new AtomicLong();
+			final AtomicLong consumedCount = new AtomicLong();
+
+			final Iterator<KdPoint<Double>> searchPoints = new Iterator<KdPoint<Double>>() {
+				@Override
+				public boolean hasNext() {
+					return readCount.get() < searchPointCount;
+				}
+
+				@Override
+				public KdPoint<Double> next() {
+					readCount.incrementAndGet();
+
+					return new KdPoint<>(treeGenerator.buildRandomPosition(dimensionCount));
+				}
+			};
+
+			orchestrator.findNearestPoints(searchPoints, chunkSize, (index, searchPoint, nearestPoint) -> {
+				consumedCount.incrementAndGet();
+
+				// No more than two chunks per worker thread may have been read ahead.
+
+				assertTrue(readCount.get() - consumedCount.get() < 2 * workerThreadsCount * chunkSize);
+			});
+
+			assertEquals(searchPointCount, consumedCount.get());
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testFindNearestPointsFromIteratorWithFailingConsumer() {
+		final RandomDoubleKdTreeGenerator treeGenerator = new RandomDoubleKdTreeGenerator();
+
+		try (final NNSolverOrchestrator<Double> orchestrator = new NNSolverOrchestrator<>(
+		        treeGenerator.generate(3, 1_000), 2)) {
+			// Expected to throw.
 
-		performOrchestratorTest(orchestrator, inputPoints);
+			orchestrator.findNearestPoints(treeGenerator.generatePoints(3, 10_000).iterator(), 10,
+			        (index, searchPoint, nearestPoint) -> {
+				        throw new IllegalStateException();
+			        });
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testFindNearestPointsFromIteratorWithInvalidChunkSize() {
+		final RandomDoubleKdTreeGenerator treeGenerator = new RandomDoubleKdTreeGenerator();
+
+		try (final NNSolverOrchestrator<Double> orchestrator = new NNSolverOrchestrator<>(
+		        treeGenerator.generate(3, 1_000), 2)) {
+			// Expected to throw.
+
+			orchestrator.findNearestPoints(treeGenerator.generatePoints(3, 10).iterator(), 0,
+			        (index, searchPoint, nearestPoint) -> {
+			        });
+		}
+	}
+
+	@Test
+	public void testFindNearestPointsAsync() throws Exception {
+		final int dimensionCount = 3;
+		final int workerThreadsCount = 3;
+
+		final RandomDoubleKdTreeGenerator treeGenerator = new RandomDoubleKdTreeGenerator();
+
+		final KdTree<Double> tree = treeGenerator.generate(dimensionCount, POINT_COUNT);
+		try (final NNSolverOrchestrator<Double> orchestrator = new NNSolverOrchestrator<>(tree, workerThreadsCount)) {
+			final NNSolver<Double> solver = new NNSolver<>(tree);
+
+			for (final int searchPointCount : new int[] { 0, 1, 10_000 }) {
+				final List<KdPoint<Double>> searchPoints = treeGenerator.generatePoints(dimensionCount, searchPointCount);
+
+				assertSameAsSolver(tree, searchPoints, orchestrator.findNearestPointsAsync(searchPoints).get());
+				assertSameAsSolver(tree, searchPoints,
+				        orchestrator.findNearestPointsAsync(searchPoints, NNQueryOrder.MORTON).get());
+
+				final List<List<KdPoint<Double>>> resultPoints = orchestrator.findKNearestPointsAsync(searchPoints, 3)
+				        .get();
+
+				for (int i = 0; i < searchPointCount; i += 100) {
+					assertEquals(solver.findKNearestPoints(searchPoints.get(i), 3), resultPoints.get(i));
+				}
+			}
+
+			final KdPoint<Double> searchPoint = new KdPoint<>(treeGenerator.buildRandomPosition(dimensionCount));
+
+			assertEquals(solver.findNearestPoint(searchPoint), orchestrator.findNearestPointAsync(searchPoint).get());
+		}
+	}
+
+	@Test
+	public void testCancelFindNearestPointsAsync() throws Exception {
+		final int dimensionCount = 3;
+
+		final RandomDoubleKdTreeGenerator treeGenerator = new RandomDoubleKdTreeGenerator();
+		final KdTree<Double> tree = treeGenerator.generate(dimensionCount, 1_000);
+
+		// Count the axis value reads of the search points to see whether any search
+		// ran.
+
+		final AtomicLong readCount = new AtomicLong();
+		final List<KdPoint<Double>> searchPoints = new ArrayList<>();
+
+		for (int i = 0; i < 10_000; i++) {
+			searchPoints.add(new KdPoint<Double>(treeGenerator.buildRandomPosition(dimensionCount)) {
+				@Override
+				public Double getAxisValue(final int axisIndex) {
+					readCount.incrementAndGet();
+
+					return super.getAxisValue(axisIndex);
+				}
+			});
+		}
+
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+		try {
+			// Keep the executor busy until the call was cancelled.
+
+			final CountDownLatch latch = new CountDownLatch(1);
+
+			executor.execute(() -> {
+				try {
+					latch.await();
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+
+			final NNSolverOrchestrator<Double> orchestrator = new NNSolverOrchestrator<>(tree, executor, 1);
+			final CompletableFuture<List<KdPoint<Double>>> future = orchestrator.findNearestPointsAsync(searchPoints);
+
+			assertTrue(future.cancel(false));
+
+			latch.countDown();
+		} finally {
+			executor.shutdown();
+			executor.awaitTermination(1, TimeUnit.MINUTES);
+		}
+
+		assertEquals(0, readCount.get());
+	}
+
+	@Test
+	public void testCloseShutsDownOwnPool() {
+		final RandomDoubleKdTreeGenerator treeGenerator = new RandomDoubleKdTreeGenerator();
+
+		final List<KdPoint<Double>> searchPoints = treeGenerator.generatePoints(3, 1_000);
+		final NNSolverOrchestrator<Double> orchestrator = new NNSolverOrchestrator<>(treeGenerator.generate(3, 1_000),
+		        2);
+
+		assertEquals(searchPoints.size(), orchestrator.findNearestPoints(searchPoints).size());
+
+		orchestrator.close();
+
+		try {
+			orchestrator.findNearestPoints(searchPoints);
+
+			fail("Expected the closed pool to reject the search");
+		} catch (final RejectedExecutionException e) {
+			// Expected.
+		}
+	}
+
+	@Test
+	public void testCloseKeepsProvidedExecutorRunning() throws InterruptedException {
+		final RandomDoubleKdTreeGenerator treeGenerator = new RandomDoubleKdTreeGenerator();
+
+		final KdTree<Double> tree = treeGenerator.generate(3, 1_000);
+		final List<KdPoint<Double>> searchPoints = treeGenerator.generatePoints(3, 1_000);
+
+		final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+		try {
+			new NNSolverOrchestrator<>(tree, executor, 2).close();
+
+			assertFalse(executor.isShutdown());
+
+			try (final NNSolverOrchestrator<Double> orchestrator = new NNSolverOrchestrator<>(tree, executor, 2)) {
+				assertSameAsSolver(tree, searchPoints, orchestrator.findNearestPoints(searchPoints));
+			}
+		} finally {
+			executor.shutdown();
+			executor.awaitTermination(1, TimeUnit.MINUTES);
+		}
+	}
+
+	@Test
+	public void testFindNearestPointsAsyncWithFailingSearch() throws Exception {
+		final RandomDoubleKdTreeGenerator treeGenerator = new RandomDoubleKdTreeGenerator();
+
+		try (final NNSolverOrchestrator<Double> orchestrator = new NNSolverOrchestrator<>(
+		        treeGenerator.generate(3, 1_000), 2)) {
+			// A point with too few axis values makes the search fail.
+
+			final List<KdPoint<Double>> searchPoints = treeGenerator.generatePoints(3, 1_000);
+
+			searchPoints.set(500, new KdPoint<>(1.0));
+
+			try {
+				orchestrator.findNearestPointsAsync(searchPoints).get();
+
+				fail("Expected the search to fail");
+			} catch (final ExecutionException e) {
+				assertTrue(e.getCause() instanceof IndexOutOfBoundsException);
+			}
+		}
+	}
+
+	@Test
+	public void testMortonOrder() {
+		// Points in a 4 x 4 grid, sorted along the Z curve.
+
+		final List<KdPoint<Double>> points = new ArrayList<>();
+
+		for (double y = 0; y < 4; y++) {
+			for (double x = 0; x < 4; x++) {
+				points.add(new KdPoint<>(x, y));
+			}
+		}
+
+		final int[] order = NNMortonOrder.sort(toArray(points));
+
+		final int[] expectedOrder = { 0, 4, 1, 5, 8, 12, 9, 13, 2, 6, 3, 7, 10, 14, 11, 15 };
+
+		assertArrayEquals(expectedOrder, order);
+	}
+
+	@Test
+	public void testMortonOrderWithDegenerateValues() {
+		final List<KdPoint<Double>> points = new ArrayList<>();
+
+		points.add(new KdPoint<>(1.0, Double.NaN));
+		points.add(new KdPoint<>(1.0, Double.POSITIVE_INFINITY));
+		points.add(new KdPoint<>(1.0, Double.NEGATIVE_INFINITY));
+		points.add(new KdPoint<>(1.0, 0.0));
+
+		// Each index must still be returned exactly once.
+
+		final int[] order = NNMortonOrder.sort(toArray(points));
+
+		Arrays.sort(order);
+
+		assertArrayEquals(new int[] { 0, 1, 2, 3 }, order);
+	}
+
+	@Test
+	public void testMortonOrderWithNaNValue() {
+		// A NaN value must not affect the order of the other points.
+
+		final List<KdPoint<Double>> points = new ArrayList<>();
+
+		for (double y = 0; y < 4; y++) {
+			for (double x = 0; x < 4; x++) {
+				points.add(new KdPoint<>(x, y));
+			}
+		}
+
+		points.add(new KdPoint<>(Double.NaN, 1.0));
+
+		final int[] order = Arrays.stream(NNMortonOrder.sort(toArray(points))).filter(index -> index != 16)
+		        .toArray();
+
+		final int[] expectedOrder = { 0, 4, 1, 5, 8, 12, 9, 13, 2, 6, 3, 7, 10, 14, 11, 15 };
+
+		assertArrayEquals(expectedOrder, order);
+	}
+
+	@Test
+	public void testFindNearestPointsWithProvidedExecutor() {
+		final int dimensionCount = 3;
+		final int workerThreadsCount = 3;
+
+		final RandomDoubleKdTreeGenerator treeGenerator = new RandomDoubleKdTreeGenerator();
+
+		final List<KdPoint<Double>> inputPoints = treeGenerator.generatePoints(dimensionCount, POINT_COUNT);
+		final KdTree<Double> tree = new KdTree<>(inputPoints);
+
+		final ExecutorService executor = Executors.newFixedThreadPool(workerThreadsCount);
+
+		try {
+			final NNSolverOrchestrator<Double> orchestrator = new NNSolverOrchestrator<>(tree, executor,
+			        workerThreadsCount);
+
+			// The executor is reused across calls.
+
+			for (int i = 0; i < 3; i++) {
+				final List<KdPoint<Double>> searchPoints = treeGenerator.generatePoints(dimensionCount, 10_000);
+
+				assertSameAsSolver(tree, searchPoints, orchestrator.findNearestPoints(searchPoints));
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testFindNearestPointsWithVersionedTree() {
+		final int dimensionCount = 3;
+		final int workerThreadsCount = 2;
+
+		final RandomDoubleKdTreeGenerator treeGenerator = new RandomDoubleKdTreeGenerator();
+
+		final List<KdPoint<Double>> inputPoints = treeGenerator.generatePoints(dimensionCount, POINT_COUNT);
+		final VersionedKdTree<Double> tree = new VersionedKdTree<>(inputPoints.subList(0, POINT_COUNT / 2));
+
+		final ExecutorService executor = Executors.newFixedThreadPool(workerThreadsCount);
+
+		try {
+			final NNSolverOrchestrator<Double> orchestrator = new NNSolverOrchestrator<>(tree, executor,
+			        workerThreadsCount);
+
+			final List<KdPoint<Double>> searchPoints = treeGenerator.generatePoints(dimensionCount, 10_000);
+
+			assertSameAsSolver(tree.getSnapshot(), searchPoints, orchestrator.findNearestPoints(searchPoints));
+
+			// The next call has to search the updated tree.
+
+			tree.insertAll(inputPoints.subList(POINT_COUNT / 2, POINT_COUNT));
+
+			assertSameAsSolver(tree.getSnapshot(), searchPoints, orchestrator.findNearestPoints(searchPoints));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private KdPoint<Double>[] toArray(final List<KdPoint<Double>> points) {
+		return points.toArray(new KdPoint[points.size()]);
+	}
+
+	private void assertSameAsSolver(final KdTree<Double> tree, final List<KdPoint<Double>> searchPoints,
+	        final List<KdPoint<Double>> resultPoints) {
+		final NNSolver<Double> solver = new NNSolver<>(tree);
+
+		assertEquals(searchPoints.size(), resultPoints.size());
+
+		for (int i = 0; i < searchPoints.size(); i++) {
+			assertEquals(solver.findNearestPoint(searchPoints.get(i)), resultPoints.get(i));
+		}
 	}
 
 	private void performOrchestratorTest(final NNSolverOrchestrator<Double> orchestrator,
@@ -1,15 +1,35 @@
 package de.jilocasin.nearestneighbour.nnsolver;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.stream.Collectors;
 
 import org.junit.Test;
 
+import de.jilocasin.nearestneighbour.kdtree.KdForest;
 import de.jilocasin.nearestneighbour.kdtree.KdPoint;
 import de.jilocasin.nearestneighbour.kdtree.KdTree;
+import de.jilocasin.nearestneighbour.kdtree.KdTreeAxisStrategy;
+import de.jilocasin.nearestneighbour.kdtree.KdTreeBuildStrategy;
+import de.jilocasin.nearestneighbour.kdtree.distance.ChebyshevDistanceCalculator;
+import de.jilocasin.nearestneighbour.kdtree.distance.EuclideanDistanceCalculator;
+import de.jilocasin.nearestneighbour.kdtree.distance.HaversineDistanceCalculator;
+import de.jilocasin.nearestneighbour.kdtree.distance.KdDistanceCalculator;
+import de.jilocasin.nearestneighbour.kdtree.distance.ManhattanDistanceCalculator;
+import de.jilocasin.nearestneighbour.kdtree.distance.WeightedEuclideanDistanceCalculator;
+import de.jilocasin.nearestneighbour.kdtree.generator.AnisotropicDoubleKdTreeGenerator;
 import de.jilocasin.nearestneighbour.kdtree.generator.RandomDoubleKdTreeGenerator;
 
 public class NNSolverTest {
@@ -18,6 +38,9 @@ public class NNSolverTest {
 	private static final int MIN_DIMENSIONS = 3;
 	private static final int MAX_DIMENSIONS = 3;
 
+	private static final int K_NEAREST_POINT_COUNT = 10_000;
+	private static final int K_NEAREST_QUERY_COUNT = 200;
+
 	private static final double EPSILON = 0.00001;
 
 	private List<KdPoint<Double>> inputPoints;
@@ -68,6 +91,718 @@ public class NNSolverTest {
 		assertEquals(inputPoints.get(0), nearestToIndex.get(5));
 	}
 
+	@Test
+	public void testFindKNearestPointsForExplicitData() {
+		inputPoints = new ArrayList<>();
+
+		inputPoints.add(new KdPoint<>(0.0, 0.0));
+		inputPoints.add(new KdPoint<>(5.0, 5.0));
+		inputPoints.add(new KdPoint<>(8.0, 5.0));
+		inputPoints.add(new KdPoint<>(-30.0, -30.0));
+		inputPoints.add(new KdPoint<>(-40.0, -40.0));
+		inputPoints.add(new KdPoint<>(0.01, 0.01));
+
+		tree = new KdTree<>(inputPoints);
+		solver = new NNSolver<>(tree);
+
+		// The result is ordered by distance and excludes the search point itself.
+
+		final List<KdPoint<Double>> nearestToFirst = solver.findKNearestPoints(inputPoints.get(0), 3);
+
+		assertEquals(3, nearestToFirst.size());
+		assertEquals(inputPoints.get(5), nearestToFirst.get(0));
+		assertEquals(inputPoints.get(1), nearestToFirst.get(1));
+		assertEquals(inputPoints.get(2), nearestToFirst.get(2));
+
+		// Requesting more points than available returns all other points.
+
+		final List<KdPoint<Double>> allOthers = solver.findKNearestPoints(inputPoints.get(3), 10);
+
+		assertEquals(inputPoints.size() - 1, allOthers.size());
+		assertEquals(inputPoints.get(4), allOthers.get(0));
+		assertEquals(inputPoints.get(2), allOthers.get(allOthers.size() - 1));
+	}
+
+	@Test
+	public void testFindKNearestPointsAgainstBruteForce() {
+		final int dimensionCount = 3;
+
+		final RandomDoubleKdTreeGenerator treeGenerator = new RandomDoubleKdTreeGenerator();
+
+		inputPoints = treeGenerator.generatePoints(dimensionCount, K_NEAREST_POINT_COUNT);
+		tree = new KdTree<>(inputPoints);
+		solver = new NNSolver<>(tree);
+
+		final List<KdPoint<Double>> searchPoints = treeGenerator.generatePoints(dimensionCount, K_NEAREST_QUERY_COUNT);
+
+		for (final int k : new int[] { 1, 10, 200 }) {
+			for (final KdPoint<Double> searchPoint : searchPoints) {
+				final List<KdPoint<Double>> nearest = solver.findKNearestPoints(searchPoint, k);
+
+				final List<KdPoint<Double>> expected = inputPoints.stream()
+				        .sorted(Comparator.comparingDouble(point -> point.getDistanceSquared(searchPoint)))
+				        .limit(k)
+				        .collect(Collectors.toList());
+
+				assertEquals(k, nearest.size());
+
+				// Compare distances, since ties may be returned in any order.
+
+				for (int i = 0; i < k; i++) {
+					assertEquals(expected.get(i).getDistanceSquared(searchPoint),
+					        nearest.get(i).getDistanceSquared(searchPoint), EPSILON);
+				}
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testFindKNearestPointsWithInvalidK() {
+		inputPoints = new ArrayList<>();
+		inputPoints.add(new KdPoint<>(0.0, 0.0));
+
+		solver = new NNSolver<>(new KdTree<>(inputPoints));
+
+		// Expected to throw.
+
+		solver.findKNearestPoints(new KdPoint<>(1.0, 1.0), 0);
+	}
+
+	@Test
+	public void testFindNearestPointAfterKNearestPoints() {
+		// Searches of different kinds on the same solver must not influence each other.
+
+		final int dimensionCount = 3;
+
+		final RandomDoubleKdTreeGenerator treeGenerator = new RandomDoubleKdTreeGenerator();
+
+		inputPoints = treeGenerator.generatePoints(dimensionCount, K_NEAREST_POINT_COUNT);
+		tree = new KdTree<>(inputPoints);
+		solver = new NNSolver<>(tree);
+
+		for (final KdPoint<Double> inputPoint : inputPoints.subList(0, K_NEAREST_QUERY_COUNT)) {
+			final List<KdPoint<Double>> nearest = solver.findKNearestPoints(inputPoint, 5);
+			final KdPoint<Double> nearestPoint = solver.findNearestPoint(inputPoint);
+
+			assertEquals(nearest.get(0).getDistanceSquared(inputPoint), nearestPoint.getDistanceSquared(inputPoint),
+			        EPSILON);
+		}
+	}
+
+	@Test
+	public void testFindPointsWithinRadius() {
+		final int dimensionCount = 3;
+		final double radius = 50_000;
+
+		final RandomDoubleKdTreeGenerator treeGenerator = new RandomDoubleKdTreeGenerator();
+
+		inputPoints = treeGenerator.generatePoints(dimensionCount, K_NEAREST_POINT_COUNT);
+		tree = new KdTree<>(inputPoints);
+		solver = new NNSolver<>(tree);
+
+		final List<KdPoint<Double>> searchPoints = treeGenerator.generatePoints(dimensionCount, K_NEAREST_QUERY_COUNT);
+
+		for (final KdPoint<Double> searchPoint : searchPoints) {
+			final Set<KdPoint<Double>> expected = inputPoints.stream()
+			        .filter(point -> point.getDistanceSquared(searchPoint) <= radius * radius)
+			        .collect(Collectors.toSet());
+
+			final Set<KdPoint<Double>> found = new HashSet<>();
+
+			solver.findPointsWithinRadius(searchPoint, radius, found::add);
+
+			assertEquals(expected, found);
+			assertEquals(expected.size(), solver.countPointsWithinRadius(searchPoint, radius));
+		}
+	}
+
+	@Test
+	public void testFindPointsWithinRadiusForExplicitData() {
+		inputPoints = new ArrayList<>();
+
+		inputPoints.add(new KdPoint<>(0.0, 0.0));
+		inputPoints.add(new KdPoint<>(3.0, 4.0));
+		inputPoints.add(new KdPoint<>(-3.0, -4.0));
+		inputPoints.add(new KdPoint<>(6.0, 0.0));
+
+		tree = new KdTree<>(inputPoints);
+		solver = new NNSolver<>(tree);
+
+		// Points exactly on the radius are included.
+
+		assertEquals(3, solver.countPointsWithinRadius(new KdPoint<>(0.0, 0.0), 5.0));
+
+		// The search point instance itself is excluded.
+
+		assertEquals(2, solver.countPointsWithinRadius(inputPoints.get(0), 5.0));
+		assertEquals(0, solver.countPointsWithinRadius(inputPoints.get(0), 1.0));
+	}
+
+	@Test
+	public void testFindPointsInRange() {
+		final int dimensionCount = 3;
+
+		final RandomDoubleKdTreeGenerator treeGenerator = new RandomDoubleKdTreeGenerator();
+
+		inputPoints = treeGenerator.generatePoints(dimensionCount, K_NEAREST_POINT_COUNT);
+		tree = new KdTree<>(inputPoints);
+		solver = new NNSolver<>(tree);
+
+		final List<KdPoint<Double>> cornerPoints = treeGenerator.generatePoints(dimensionCount,
+		        K_NEAREST_QUERY_COUNT * 2);
+
+		for (int i = 0; i < cornerPoints.size(); i += 2) {
+			// Use the smaller and larger values of two random points as box corners.
+
+			final List<Double> minValues = new ArrayList<>();
+			final List<Double> maxValues = new ArrayList<>();
+
+			for (int axisIndex = 0; axisIndex < dimensionCount; axisIndex++) {
+				final double a = cornerPoints.get(i).getAxisValue(axisIndex);
+				final double b = cornerPoints.get(i + 1).getAxisValue(axisIndex);
+
+				minValues.add(Math.min(a, b));
+				maxValues.add(Math.max(a, b));
+			}
+
+			final KdPoint<Double> minPoint = new KdPoint<>(minValues);
+			final KdPoint<Double> maxPoint = new KdPoint<>(maxValues);
+
+			final Set<KdPoint<Double>> expected = inputPoints.stream()
+			        .filter(point -> isInRange(point, minValues, maxValues))
+			        .collect(Collectors.toSet());
+
+			final Set<KdPoint<Double>> found = new HashSet<>();
+
+			solver.findPointsInRange(minPoint, maxPoint, found::add);
+
+			assertEquals(expected, found);
+			assertEquals(expected.size(), solver.countPointsInRange(minPoint, maxPoint));
+		}
+
+		// Tree points on the border of the box are included.
+
+		final KdPoint<Double> point = inputPoints.get(0);
+
+		assertEquals(1, solver.countPointsInRange(point, point));
+	}
+
+	@Test
+	public void testIterativeStrategyMatchesRecursiveStrategy() {
+		final int dimensionCount = 3;
+
+		final RandomDoubleKdTreeGenerator treeGenerator = new RandomDoubleKdTreeGenerator();
+
+		inputPoints = treeGenerator.generatePoints(dimensionCount, K_NEAREST_POINT_COUNT);
+		tree = new KdTree<>(inputPoints);
+
+		final NNSolver<Double> recursiveSolver = new NNSolver<>(tree, NNSearchStrategy.RECURSIVE);
+		final NNSolver<Double> iterativeSolver = new NNSolver<>(tree, NNSearchStrategy.ITERATIVE);
+
+		final List<KdPoint<Double>> searchPoints = treeGenerator.generatePoints(dimensionCount, K_NEAREST_QUERY_COUNT);
+
+		// Include tree points, which must not be returned as their own neighbours.
+
+		searchPoints.addAll(inputPoints.subList(0, K_NEAREST_QUERY_COUNT));
+
+		for (final KdPoint<Double> searchPoint : searchPoints) {
+			assertEquals(recursiveSolver.findNearestPoint(searchPoint).getDistanceSquared(searchPoint),
+			        iterativeSolver.findNearestPoint(searchPoint).getDistanceSquared(searchPoint), EPSILON);
+
+			final List<KdPoint<Double>> recursiveNearest = recursiveSolver.findKNearestPoints(searchPoint, 20);
+			final List<KdPoint<Double>> iterativeNearest = iterativeSolver.findKNearestPoints(searchPoint, 20);
+
+			for (int i = 0; i < recursiveNearest.size(); i++) {
+				assertEquals(recursiveNearest.get(i).getDistanceSquared(searchPoint),
+				        iterativeNearest.get(i).getDistanceSquared(searchPoint), EPSILON);
+			}
+
+			assertEquals(recursiveSolver.countPointsWithinRadius(searchPoint, 50_000),
+			        iterativeSolver.countPointsWithinRadius(searchPoint, 50_000));
+		}
+	}
+
+	@Test
+	public void testCancelledSearch() {
+		final int dimensionCount = 16;
+
+		final RandomDoubleKdTreeGenerator treeGenerator = new RandomDoubleKdTreeGenerator();
+
+		inputPoints = treeGenerator.generatePoints(dimensionCount, K_NEAREST_POINT_COUNT);
+		tree = new KdTree<>(inputPoints);
+
+		final KdPoint<Double> searchPoint = new KdPoint<>(treeGenerator.buildRandomPosition(dimensionCount));
+
+		for (final NNSearchStrategy strategy : NNSearchStrategy.values()) {
+			solver = new NNSolver<>(tree, strategy);
+
+			final KdPoint<Double> expectedPoint = solver.findNearestPoint(searchPoint);
+
+			// A search in 16 dimensions visits far more leaves than the check interval, so
+			// it has to be stopped in the middle of the traversal.
+
+			solver.setCancellationCheck(() -> true);
+
+			try {
+				solver.findNearestPoint(searchPoint);
+
+				fail("Expected the search to be cancelled");
+			} catch (final CancellationException e) {
+				// Expected.
+			}
+
+			// The solver must still return correct results afterwards.
+
+			solver.setCancellationCheck(null);
+
+			assertEquals(expectedPoint, solver.findNearestPoint(searchPoint));
+		}
+	}
+
+	@Test
+	public void testExactSearchAfterFailedApproximateSearch() {
+		final RandomDoubleKdTreeGenerator treeGenerator = new RandomDoubleKdTreeGenerator();
+
+		inputPoints = treeGenerator.generatePoints(3, K_NEAREST_POINT_COUNT);
+		tree = new KdTree<>(inputPoints);
+
+		final List<KdPoint<Double>> searchPoints = treeGenerator.generatePoints(3, K_NEAREST_QUERY_COUNT);
+
+		for (final NNSearchStrategy strategy : NNSearchStrategy.values()) {
+			solver = new NNSolver<>(tree, strategy);
+
+			solver.setSearchRecorder(new NNSearchRecorder() {
+				@Override
+				public void nodeVisited(final int depth) {
+					throw new IllegalStateException("Recorder failed");
+				}
+			});
+
+			try {
+				solver.findNearestPoint(searchPoints.get(0), 1, 1);
+
+				fail("Expected the search to fail");
+			} catch (final IllegalStateException e) {
+				// Expected.
+			}
+
+			// The epsilon and leaf visit budget of the failed search must not apply to
+			// the following exact searches.
+
+			solver.setSearchRecorder(null);
+
+			for (final KdPoint<Double> searchPoint : searchPoints) {
+				final double expectedDistance = inputPoints.stream()
+				        .mapToDouble(point -> point.getDistanceSquared(searchPoint))
+				        .min()
+				        .getAsDouble();
+
+				assertEquals(expectedDistance, solver.findNearestPoint(searchPoint).getDistanceSquared(searchPoint), 0);
+			}
+		}
+	}
+
+	@Test
+	public void testBestBinFirstStrategyInHighDimensions() {
+		final int dimensionCount = 16;
+
+		final RandomDoubleKdTreeGenerator treeGenerator = new RandomDoubleKdTreeGenerator();
+
+		inputPoints = treeGenerator.generatePoints(dimensionCount, K_NEAREST_POINT_COUNT);
+		tree = new KdTree<>(inputPoints);
+
+		final NNSolver<Double> iterativeSolver = new NNSolver<>(tree, NNSearchStrategy.ITERATIVE);
+		final NNSolver<Double> bestBinFirstSolver = new NNSolver<>(tree, NNSearchStrategy.BEST_BIN_FIRST);
+
+		final List<KdPoint<Double>> searchPoints = treeGenerator.generatePoints(dimensionCount, K_NEAREST_QUERY_COUNT);
+
+		searchPoints.addAll(inputPoints.subList(0, K_NEAREST_QUERY_COUNT));
+
+		for (final KdPoint<Double> searchPoint : searchPoints) {
+			final NNSearchResult<Double> iterativeResult = iterativeSolver.findNearestPoint(searchPoint, 0);
+			final NNSearchResult<Double> bestBinFirstResult = bestBinFirstSolver.findNearestPoint(searchPoint, 0);
+
+			assertEquals(iterativeResult.getDistance(), bestBinFirstResult.getDistance(), EPSILON);
+			assertNotEquals(searchPoint, bestBinFirstResult.getPoint());
+
+			final List<KdPoint<Double>> iterativeNearest = iterativeSolver.findKNearestPoints(searchPoint, 20);
+			final List<KdPoint<Double>> bestBinFirstNearest = bestBinFirstSolver.findKNearestPoints(searchPoint, 20);
+
+			for (int i = 0; i < iterativeNearest.size(); i++) {
+				assertEquals(iterativeNearest.get(i).getDistanceSquared(searchPoint),
+				        bestBinFirstNearest.get(i).getDistanceSquared(searchPoint), EPSILON);
+			}
+		}
+	}
+
+	@Test
+	public void testSearchWithAxisStrategies() {
+		final AnisotropicDoubleKdTreeGenerator treeGenerator = new AnisotropicDoubleKdTreeGenerator();
+
+		inputPoints = treeGenerator.generatePoints(3, K_NEAREST_POINT_COUNT);
+
+		final NNSolver<Double> cyclicSolver = new NNSolver<>(new KdTree<>(inputPoints));
+		final List<KdPoint<Double>> searchPoints = treeGenerator.generatePoints(3, K_NEAREST_QUERY_COUNT);
+
+		searchPoints.addAll(inputPoints.subList(0, K_NEAREST_QUERY_COUNT));
+
+		for (final KdTreeAxisStrategy axisStrategy : KdTreeAxisStrategy.values()) {
+			tree = new KdTree<>(inputPoints, KdTreeBuildStrategy.APPROXIMATE_MEDIAN, axisStrategy, null);
+
+			for (final NNSearchStrategy strategy : NNSearchStrategy.values()) {
+				solver = new NNSolver<>(tree, strategy);
+
+				for (final KdPoint<Double> searchPoint : searchPoints) {
+					assertEquals(cyclicSolver.findNearestPoint(searchPoint).getDistanceSquared(searchPoint),
+					        solver.findNearestPoint(searchPoint).getDistanceSquared(searchPoint), EPSILON);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testSearchForest() {
+		final int dimensionCount = 16;
+
+		final RandomDoubleKdTreeGenerator treeGenerator = new RandomDoubleKdTreeGenerator();
+
+		inputPoints = treeGenerator.generatePoints(dimensionCount, K_NEAREST_POINT_COUNT);
+		tree = new KdTree<>(inputPoints);
+
+		final KdForest<Double> forest = new KdForest<>(inputPoints);
+		final NNSolver<Double> treeSolver = new NNSolver<>(tree);
+
+		final List<KdPoint<Double>> searchPoints = treeGenerator.generatePoints(dimensionCount, 50);
+
+		searchPoints.addAll(inputPoints.subList(0, 50));
+
+		for (final NNSearchStrategy strategy : NNSearchStrategy.values()) {
+			final NNSolver<Double> forestSolver = new NNSolver<>(forest, strategy, new EuclideanDistanceCalculator());
+
+			for (final KdPoint<Double> searchPoint : searchPoints) {
+				final NNSearchResult<Double> result = forestSolver.findNearestPoint(searchPoint, 0);
+
+				assertTrue(result.isExact());
+				assertEquals(treeSolver.findNearestPoint(searchPoint).getDistanceSquared(searchPoint),
+				        result.getPoint().getDistanceSquared(searchPoint), EPSILON);
+
+				// Each point is contained in all trees, but must only be returned once.
+
+				final List<KdPoint<Double>> treeNearest = treeSolver.findKNearestPoints(searchPoint, 20);
+				final List<KdPoint<Double>> forestNearest = forestSolver.findKNearestPoints(searchPoint, 20);
+
+				assertEquals(20, new HashSet<>(forestNearest).size());
+
+				for (int i = 0; i < treeNearest.size(); i++) {
+					assertEquals(treeNearest.get(i).getDistanceSquared(searchPoint),
+					        forestNearest.get(i).getDistanceSquared(searchPoint), EPSILON);
+				}
+
+				assertEquals(treeSolver.countPointsWithinRadius(searchPoint, 200_000),
+				        forestSolver.countPointsWithinRadius(searchPoint, 200_000));
+
+				// The leaf visit budget is shared by all trees.
+
+				assertEquals(3, forestSolver.findNearestPoint(searchPoint, 0, 3).getLeafVisitCount());
+			}
+		}
+	}
+
+	@Test
+	public void testSearchAfterInsertAndRemove() {
+		final int dimensionCount = 3;
+
+		final RandomDoubleKdTreeGenerator treeGenerator = new RandomDoubleKdTreeGenerator();
+
+		inputPoints = treeGenerator.generatePoints(dimensionCount, K_NEAREST_POINT_COUNT);
+		tree = new KdTree<>(inputPoints.subList(0, K_NEAREST_POINT_COUNT / 2));
+
+		for (final KdPoint<Double> point : inputPoints.subList(K_NEAREST_POINT_COUNT / 2, K_NEAREST_POINT_COUNT)) {
+			tree.insert(point);
+		}
+
+		// Remove every third point, which must not be found anymore.
+
+		final List<KdPoint<Double>> remainingPoints = new ArrayList<>();
+
+		for (int i = 0; i < inputPoints.size(); i++) {
+			if (i % 3 == 0) {
+				tree.remove(inputPoints.get(i));
+			} else {
+				remainingPoints.add(inputPoints.get(i));
+			}
+		}
+
+		final List<KdPoint<Double>> searchPoints = treeGenerator.generatePoints(dimensionCount, K_NEAREST_QUERY_COUNT);
+
+		for (final NNSearchStrategy strategy : NNSearchStrategy.values()) {
+			solver = new NNSolver<>(tree, strategy);
+
+			for (final KdPoint<Double> searchPoint : searchPoints) {
+				final List<KdPoint<Double>> expected = remainingPoints.stream()
+				        .sorted(Comparator.comparingDouble(point -> point.getDistanceSquared(searchPoint)))
+				        .limit(10)
+				        .collect(Collectors.toList());
+
+				assertEquals(expected.get(0).getDistanceSquared(searchPoint),
+				        solver.findNearestPoint(searchPoint).getDistanceSquared(searchPoint), EPSILON);
+
+				final List<KdPoint<Double>> nearest = solver.findKNearestPoints(searchPoint, 10);
+
+				for (int i = 0; i < expected.size(); i++) {
+					assertEquals(expected.get(i).getDistanceSquared(searchPoint),
+					        nearest.get(i).getDistanceSquared(searchPoint), EPSILON);
+				}
+			}
+
+			final KdPoint<Double> minPoint = new KdPoint<>(-Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE);
+			final KdPoint<Double> maxPoint = new KdPoint<>(Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE);
+
+			assertEquals(remainingPoints.size(), solver.countPointsInRange(minPoint, maxPoint));
+		}
+	}
+
+	@Test
+	public void testFindNearestPointInEmptyTree() {
+		tree = new KdTree<>(2);
+		solver = new NNSolver<>(tree);
+
+		assertNull(solver.findNearestPoint(new KdPoint<>(1.0, 1.0)));
+		assertEquals(0, solver.findKNearestPoints(new KdPoint<>(1.0, 1.0), 3).size());
+		assertEquals(0, solver.countPointsWithinRadius(new KdPoint<>(1.0, 1.0), 10));
+	}
+
+	@Test
+	public void testFindNearestPointsWithDistanceCalculators() {
+		final RandomDoubleKdTreeGenerator treeGenerator = new RandomDoubleKdTreeGenerator();
+
+		inputPoints = treeGenerator.generatePoints(3, K_NEAREST_POINT_COUNT);
+		tree = new KdTree<>(inputPoints);
+
+		final List<KdPoint<Double>> searchPoints = treeGenerator.generatePoints(3, K_NEAREST_QUERY_COUNT);
+
+		final KdDistanceCalculator[] distanceCalculators = { new EuclideanDistanceCalculator(),
+		        new ManhattanDistanceCalculator(), new ChebyshevDistanceCalculator(),
+		        new WeightedEuclideanDistanceCalculator(1, 4, 0.25), new ScaledManhattanDistanceCalculator() };
+
+		for (final KdDistanceCalculator distanceCalculator : distanceCalculators) {
+			assertSameAsBruteForce(distanceCalculator, searchPoints, 20_000);
+		}
+	}
+
+	@Test
+	public void testFindNearestPointsWithHaversineDistance() {
+		// Spread points over the whole globe, so searches cross the antimeridian and
+		// the poles.
+
+		final Random random = new Random(0);
+
+		inputPoints = new ArrayList<>();
+
+		for (int i = 0; i < K_NEAREST_POINT_COUNT; i++) {
+			inputPoints.add(randomLocation(random));
+		}
+
+		tree = new KdTree<>(inputPoints);
+
+		final List<KdPoint<Double>> searchPoints = new ArrayList<>();
+
+		for (int i = 0; i < K_NEAREST_QUERY_COUNT; i++) {
+			searchPoints.add(randomLocation(random));
+		}
+
+		searchPoints.add(new KdPoint<>(0.0, 180.0));
+		searchPoints.add(new KdPoint<>(10.0, -179.99));
+		searchPoints.add(new KdPoint<>(90.0, 0.0));
+		searchPoints.add(new KdPoint<>(-89.9, 45.0));
+
+		assertSameAsBruteForce(new HaversineDistanceCalculator(), searchPoints, 500_000);
+	}
+
+	@Test
+	public void testApproximateNearestPoint() {
+		final RandomDoubleKdTreeGenerator treeGenerator = new RandomDoubleKdTreeGenerator();
+
+		inputPoints = treeGenerator.generatePoints(8, K_NEAREST_POINT_COUNT);
+		tree = new KdTree<>(inputPoints);
+
+		final List<KdPoint<Double>> searchPoints = treeGenerator.generatePoints(8, K_NEAREST_QUERY_COUNT);
+
+		final KdDistanceCalculator[] distanceCalculators = { new EuclideanDistanceCalculator(),
+		        new ManhattanDistanceCalculator(), new ScaledManhattanDistanceCalculator() };
+
+		for (final KdDistanceCalculator distanceCalculator : distanceCalculators) {
+			for (final NNSearchStrategy strategy : NNSearchStrategy.values()) {
+				solver = new NNSolver<>(tree, strategy, distanceCalculator);
+
+				for (final KdPoint<Double> searchPoint : searchPoints) {
+					final KdPoint<Double> nearestPoint = solver.findNearestPoint(searchPoint);
+					final double nearestDistance = distanceCalculator.fromComparableDistance(
+					        distanceCalculator.getComparableDistance(nearestPoint, searchPoint));
+
+					// An epsilon of 0 has to find the exact nearest point.
+
+					final NNSearchResult<Double> exactResult = solver.findNearestPoint(searchPoint, 0);
+
+					assertTrue(exactResult.isExact());
+					assertEquals(nearestDistance, exactResult.getDistance(), EPSILON);
+
+					// The approximate point may be farther away, but only by the factor 1 + epsilon.
+
+					final NNSearchResult<Double> approximateResult = solver.findNearestPoint(searchPoint, 0.5);
+
+					assertTrue(approximateResult.getDistance() <= 1.5 * nearestDistance + EPSILON);
+
+					if (approximateResult.isExact()) {
+						assertEquals(nearestDistance, approximateResult.getDistance(), EPSILON);
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testNearestPointWithLeafVisitBudget() {
+		final RandomDoubleKdTreeGenerator treeGenerator = new RandomDoubleKdTreeGenerator();
+
+		inputPoints = treeGenerator.generatePoints(8, K_NEAREST_POINT_COUNT);
+		tree = new KdTree<>(inputPoints);
+
+		for (final NNSearchStrategy strategy : NNSearchStrategy.values()) {
+			solver = new NNSolver<>(tree, strategy);
+
+			for (final KdPoint<Double> searchPoint : treeGenerator.generatePoints(8, K_NEAREST_QUERY_COUNT)) {
+				final NNSearchResult<Double> exactResult = solver.findNearestPoint(searchPoint, 0);
+
+				// A budget of the visits of the exact search must not change the result.
+
+				final NNSearchResult<Double> sameResult = solver.findNearestPoint(searchPoint, 0,
+				        exactResult.getLeafVisitCount());
+
+				assertTrue(sameResult.isExact());
+				assertEquals(exactResult.getPoint(), sameResult.getPoint());
+
+				// A single leaf visit is never enough in 8 dimensions.
+
+				final NNSearchResult<Double> budgetResult = solver.findNearestPoint(searchPoint, 0, 1);
+
+				assertFalse(budgetResult.isExact());
+				assertEquals(1, budgetResult.getLeafVisitCount());
+				assertTrue(budgetResult.getDistance() >= exactResult.getDistance());
+			}
+
+			// The exact search must not be limited after an approximate one.
+
+			final KdPoint<Double> searchPoint = inputPoints.get(0);
+
+			solver.findNearestPoint(searchPoint, 1, 1);
+
+			assertEquals(solver.findNearestPoint(searchPoint, 0).getPoint(), solver.findNearestPoint(searchPoint));
+		}
+	}
+
+	@Test
+	public void testApproximateNearestPointInEmptyTree() {
+		tree = new KdTree<>(2);
+		solver = new NNSolver<>(tree);
+
+		final NNSearchResult<Double> result = solver.findNearestPoint(new KdPoint<>(1.0, 1.0), 0.1, 10);
+
+		assertNull(result.getPoint());
+		assertTrue(result.isExact());
+		assertEquals(Double.POSITIVE_INFINITY, result.getDistance(), 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testApproximateNearestPointWithNegativeEpsilon() {
+		tree = new KdTree<>(2);
+		solver = new NNSolver<>(tree);
+
+		solver.findNearestPoint(new KdPoint<>(1.0, 1.0), -0.1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testApproximateNearestPointWithInvalidBudget() {
+		tree = new KdTree<>(2);
+		solver = new NNSolver<>(tree);
+
+		solver.findNearestPoint(new KdPoint<>(1.0, 1.0), 0, 0);
+	}
+
+	/**
+	 * A custom calculator, which the solver has no fast path for.
+	 */
+	private static class ScaledManhattanDistanceCalculator implements KdDistanceCalculator {
+		private final ManhattanDistanceCalculator manhattanDistanceCalculator = new ManhattanDistanceCalculator();
+
+		@Override
+		public <T extends Number & Comparable<T>> double getComparableDistance(final KdPoint<T> point,
+		        final KdPoint<T> otherPoint) {
+			return 2 * manhattanDistanceCalculator.getComparableDistance(point, otherPoint);
+		}
+
+		@Override
+		public <T extends Number & Comparable<T>> double getComparableAxisDistance(final KdPoint<T> targetPoint,
+		        final int axisIndex, final double splitValue) {
+			return 2 * manhattanDistanceCalculator.getComparableAxisDistance(targetPoint, axisIndex, splitValue);
+		}
+
+		@Override
+		public double toComparableDistance(final double distance) {
+			return 2 * distance;
+		}
+
+		@Override
+		public double fromComparableDistance(final double comparableDistance) {
+			return comparableDistance / 2;
+		}
+	}
+
+	private KdPoint<Double> randomLocation(final Random random) {
+		return new KdPoint<>(Math.toDegrees(Math.asin(random.nextDouble() * 2 - 1)), random.nextDouble() * 360 - 180);
+	}
+
+	private void assertSameAsBruteForce(final KdDistanceCalculator distanceCalculator,
+	        final List<KdPoint<Double>> searchPoints, final double radius) {
+		for (final NNSearchStrategy strategy : NNSearchStrategy.values()) {
+			solver = new NNSolver<>(tree, strategy, distanceCalculator);
+
+			for (final KdPoint<Double> searchPoint : searchPoints) {
+				final List<Double> expectedDistances = inputPoints.stream()
+				        .map(point -> distanceCalculator.getComparableDistance(point, searchPoint))
+				        .sorted()
+				        .collect(Collectors.toList());
+
+				assertEquals(expectedDistances.get(0), distanceCalculator
+				        .getComparableDistance(solver.findNearestPoint(searchPoint), searchPoint), 0);
+
+				final List<KdPoint<Double>> nearest = solver.findKNearestPoints(searchPoint, 10);
+
+				for (int i = 0; i < nearest.size(); i++) {
+					assertEquals(expectedDistances.get(i),
+					        distanceCalculator.getComparableDistance(nearest.get(i), searchPoint), 0);
+				}
+
+				final double comparableRadius = distanceCalculator.toComparableDistance(radius);
+
+				assertEquals(expectedDistances.stream().filter(distance -> distance <= comparableRadius).count(),
+				        solver.countPointsWithinRadius(searchPoint, radius));
+			}
+		}
+	}
+
+	private boolean isInRange(final KdPoint<Double> point, final List<Double> minValues, final List<Double> maxValues) {
+		for (int axisIndex = 0; axisIndex < minValues.size(); axisIndex++) {
+			final double value = point.getAxisValue(axisIndex);
+
+			if (value < minValues.get(axisIndex) || value > maxValues.get(axisIndex)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
 	public void testFindNearestPointForDimensionCount(final int dimensionCount) {
 		final RandomDoubleKdTreeGenerator treeGenerator = new RandomDoubleKdTreeGenerator();
 
@@ -0,0 +1,66 @@
+package de.jilocasin.nearestneighbour.kdtree;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * <p>
+ * Computes squared distances using the SIMD instructions of the CPU through the
+ * incubating Vector API. Only built by the <code>vector</code> Maven profile and
+ * selected by {@link DoubleDistanceKernels} at runtime.
+ * </p>
+ * 
+ * <p>
+ * The axis values of each point are processed in vectors of the preferred
+ * species, so points with fewer axes than a single vector are left to the
+ * {@link ScalarDoubleDistanceKernel}. The results may differ from the scalar
+ * kernel by rounding errors, since the values are summed up in a different
+ * order.
+ * </p>
+ */
+public final class VectorDoubleDistanceKernel implements DoubleDistanceKernel {
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+	private final ScalarDoubleDistanceKernel scalarKernel = new ScalarDoubleDistanceKernel();
+
+	@Override
+	public void computeDistancesSquared(final double[] coordinates, final int offset, final int pointCount,
+	        final int dimensionCount, final double[] target, final double[] distancesSquared) {
+		if (dimensionCount < SPECIES.length()) {
+			scalarKernel.computeDistancesSquared(coordinates, offset, pointCount, dimensionCount, target,
+			        distancesSquared);
+
+			return;
+		}
+
+		final int vectorAxisCount = SPECIES.loopBound(dimensionCount);
+
+		for (int i = 0; i < pointCount; i++) {
+			final int pointOffset = offset + i * dimensionCount;
+
+			DoubleVector sum = DoubleVector.zero(SPECIES);
+
+			int axisIndex = 0;
+
+			for (; axisIndex < vectorAxisCount; axisIndex += SPECIES.length()) {
+				final DoubleVector delta = DoubleVector.fromArray(SPECIES, coordinates, pointOffset + axisIndex)
+				        .sub(DoubleVector.fromArray(SPECIES, target, axisIndex));
+
+				sum = delta.fma(delta, sum);
+			}
+
+			double distanceSquared = sum.reduceLanes(VectorOperators.ADD);
+
+			// Add the remaining axes, which don't fill a whole vector.
+
+			for (; axisIndex < dimensionCount; axisIndex++) {
+				final double delta = coordinates[pointOffset + axisIndex] - target[axisIndex];
+
+				distanceSquared += (delta * delta);
+			}
+
+			distancesSquared[i] = distanceSquared;
+		}
+	}
+}